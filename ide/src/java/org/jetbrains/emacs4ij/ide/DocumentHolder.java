@@ -72,6 +72,10 @@ abstract class DocumentHolder {
     return getDocument().getText();
   }
 
+  public CharSequence getCharSequence() {
+    return getDocument().getCharsSequence();
+  }
+
   public void setText(String text) {
     getDocument().setText(text);
   }
@@ -1,23 +1,48 @@
 package org.jetbrains.emacs4ij.ide;
 
-import com.intellij.openapi.components.PersistentStateComponent;
-import com.intellij.openapi.components.RoamingType;
-import com.intellij.openapi.components.State;
-import com.intellij.openapi.components.Storage;
-import com.intellij.util.xmlb.XmlSerializerUtil;
+import com.intellij.openapi.application.PathManager;
 import org.jetbrains.emacs4ij.jelisp.DefinitionIndex;
+import org.jetbrains.emacs4ij.jelisp.FormCache;
+import org.jetbrains.emacs4ij.jelisp.LogUtil;
+import org.jetbrains.emacs4ij.jelisp.exception.LispException;
 
-@State(
-    name="EmacsIndex",
-    storages = @Storage(id="emacsIndex", file = "$APP_CONFIG$/emacs4ij_index.xml"),
-    reloadable = true,
-    roamingType = RoamingType.DISABLED
-)
+import java.io.File;
+import java.io.IOException;
 
-public class EmacsIndexService implements PersistentStateComponent<EmacsIndexService> {
-  protected DefinitionIndex myEmacsIndex = new DefinitionIndex();
+/**
+ * keeps the index of Emacs sources in a binary file which is memory-mapped on load,
+ * @see org.jetbrains.emacs4ij.jelisp.DefinitionIndex#load(java.io.File)
+ * and the parsed definitions next to it, @see org.jetbrains.emacs4ij.jelisp.FormCache
+ */
+public class EmacsIndexService {
+  private static final String INDEX_FILE = "emacs4ij_index.bin";
+  private static final String FORMS_FILE = "emacs4ij_forms.bin";
+  protected DefinitionIndex myEmacsIndex = null;
+
+  private static File getIndexFile() {
+    return new File(PathManager.getSystemPath(), INDEX_FILE);
+  }
 
   public DefinitionIndex getEmacsIndex() {
+    if (myEmacsIndex == null) {
+      myEmacsIndex = new DefinitionIndex();
+      File file = getIndexFile();
+      if (file.isFile()) {
+        try {
+          myEmacsIndex = DefinitionIndex.load(file);
+        } catch (IOException | LispException e) {
+          LogUtil.log("failed to load Emacs index, it will be rebuilt", e);
+        }
+      }
+      File forms = new File(PathManager.getSystemPath(), FORMS_FILE);
+      if (forms.isFile()) {
+        try {
+          FormCache.load(forms);
+        } catch (IOException | LispException e) {
+          LogUtil.log("failed to load parsed Emacs definitions", e);
+        }
+      }
+    }
     return myEmacsIndex;
   }
 
@@ -25,13 +50,23 @@ public class EmacsIndexService implements PersistentStateComponent<EmacsIndexSer
     myEmacsIndex = index;
   }
 
-  @Override
-  public EmacsIndexService getState() {
-    return myEmacsIndex.isEmpty() ? null : this;
-  }
-
-  @Override
-  public void loadState(EmacsIndexService state) {
-    XmlSerializerUtil.copyBean(state, this);
+  /**
+   * writes the index if it was built or updated in this session and the definitions parsed since last save
+   */
+  public void save() {
+    if (FormCache.isModified()) {
+      try {
+        FormCache.save(new File(PathManager.getSystemPath(), FORMS_FILE));
+      } catch (IOException e) {
+        LogUtil.log("failed to save parsed Emacs definitions", e);
+      }
+    }
+    if (myEmacsIndex == null || !myEmacsIndex.isModified() || myEmacsIndex.isEmpty())
+      return;
+    try {
+      myEmacsIndex.save(getIndexFile());
+    } catch (IOException e) {
+      LogUtil.log("failed to save Emacs index", e);
+    }
   }
 }
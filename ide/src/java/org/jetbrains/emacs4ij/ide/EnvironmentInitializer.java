@@ -1,6 +1,7 @@
 package org.jetbrains.emacs4ij.ide;
 
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
@@ -14,6 +15,7 @@ import com.intellij.openapi.wm.WindowManager;
 import com.intellij.openapi.wm.impl.IdeFrameImpl;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.emacs4ij.jelisp.DefinitionLoader;
+import org.jetbrains.emacs4ij.jelisp.DefinitionPrefetcher;
 import org.jetbrains.emacs4ij.jelisp.Environment;
 import org.jetbrains.emacs4ij.jelisp.GlobalEnvironment;
 import org.jetbrains.emacs4ij.jelisp.LogUtil;
@@ -22,7 +24,10 @@ import org.jetbrains.emacs4ij.jelisp.exception.DoubleBufferException;
 import org.jetbrains.emacs4ij.jelisp.exception.LispException;
 import org.jetbrains.emacs4ij.jelisp.platformDependent.LispFrame;
 
+import java.io.File;
+
 public abstract class EnvironmentInitializer {
+  private static final String SNAPSHOT_FILE = "emacs4ij_environment.bin";
   private static boolean isGlobalInitialized = false;
 
   private EnvironmentInitializer() {}
@@ -63,8 +68,11 @@ public abstract class EnvironmentInitializer {
 
     EmacsIndexService indexService = ServiceManager.getService(EmacsIndexService.class);
     DefinitionLoader.initialize(indexService == null ? null : indexService.getEmacsIndex());
+    if (indexService != null)
+      indexService.save();
 
     Keymap userKeymap = KeymapManager.getInstance().getActiveKeymap();
+    GlobalEnvironment.setSnapshotFile(new File(PathManager.getSystemPath(), SNAPSHOT_FILE));
     try {
       GlobalEnvironment.initialize(new KeymapCreator(), new BufferCreator(), new WindowCreator(), new IdeProvider(), new Runnable() {
         @Override
@@ -73,6 +81,7 @@ public abstract class EnvironmentInitializer {
         }
       });
       isGlobalInitialized = true;
+      DefinitionPrefetcher.setEnabled(true);
     } catch (LispException e) {
       ((KeymapManagerImpl) KeymapManager.getInstance()).setActiveKeymap(userKeymap);
       throw e;
@@ -115,6 +115,11 @@ public final class IdeaBuffer extends LispBuffer {
     return myDocumentHolder.getText();
   }
 
+  @Override
+  public CharSequence getCharSequence() {
+    return myDocumentHolder.getCharSequence();
+  }
+
   @Override
   public void setText(String text) {
     myDocumentHolder.setText(text);
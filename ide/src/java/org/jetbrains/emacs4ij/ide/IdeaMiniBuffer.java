@@ -242,6 +242,11 @@ public final class IdeaMiniBuffer extends LispMinibuffer {
     return myDocumentHolder.getText();
   }
 
+  @Override
+  public CharSequence getCharSequence() {
+    return myDocumentHolder.getCharSequence();
+  }
+
   @Override
   public void setText(String text) {
     myDocumentHolder.setText(text);
@@ -1,6 +1,7 @@
 package org.jetbrains.emacs4ij.ide;
 
 import com.intellij.openapi.components.ApplicationComponent;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.wm.IdeFrame;
 import com.intellij.openapi.wm.WindowManager;
 import com.intellij.openapi.wm.WindowManagerListener;
@@ -68,7 +69,9 @@ public class MyApplicationComponent implements ApplicationComponent {
   }
 
   public void disposeComponent() {
-    // TODO: insert component disposal logic here
+    EmacsIndexService indexService = ServiceManager.getService(EmacsIndexService.class);
+    if (indexService != null)
+      indexService.save();
   }
 
   @NotNull
@@ -769,9 +769,9 @@ public class BufferTest extends IdeTestCase {
   }
 
   public void testLookingAt() {
-    String regexp = callLookingAt(4, LispSymbol.T);
+    String regexp = callLookingAt(5, LispSymbol.T);
     Assert.assertEquals(myEnvironment.getBufferCurrentForEditing(), Match.getBuffer());
-    Assert.assertArrayEquals(new Integer[] {4, 4 + regexp.length()}, Match.getLastMatch().toArray(new Integer[2]));
+    Assert.assertArrayEquals(new Integer[] {5, 5 + regexp.length()}, Match.getLastMatch().toArray(new Integer[2]));
   }
 
   public void testLookingAtFurther() {
@@ -781,7 +781,7 @@ public class BufferTest extends IdeTestCase {
   }
 
   public void testLookingAtFalse() {
-    callLookingAt(5, LispSymbol.NIL);
+    callLookingAt(6, LispSymbol.NIL);
     Assert.assertNull(Match.getBuffer());
     Assert.assertTrue(Match.getLastMatch().isEmpty());
   }
@@ -798,6 +798,19 @@ public class BufferTest extends IdeTestCase {
     return regexp;
   }
 
+  public void testReSearchBackward() {
+    evaluateString("(switch-to-buffer \"5.txt\")");
+    evaluateString("(goto-char (point-max))");
+    Assert.assertEquals(new LispInteger(59), evaluateString("(re-search-backward \"li\\\\(st\\\\)\")"));
+    Assert.assertEquals(new LispInteger(59), evaluateString("(point)"));
+    Assert.assertArrayEquals(new Integer[] {59, 63, 61, 63}, Match.getLastMatch().toArray(new Integer[4]));
+    Assert.assertEquals(new LispInteger(5), evaluateString("(re-search-backward \"sage\")"));
+    Assert.assertEquals(LispSymbol.NIL, evaluateString("(re-search-backward \"list\" nil t)"));
+    Assert.assertEquals(new LispInteger(5), evaluateString("(point)"));
+    Assert.assertEquals(LispSymbol.NIL, evaluateString("(re-search-backward \"list\" nil 'move)"));
+    Assert.assertEquals(new LispInteger(1), evaluateString("(point)"));
+  }
+
   //requirements: load font-lock.el (set TestMode.LOAD_FILES = true)
   public void testAssignFaces() {
     evaluateString("(switch-to-buffer \"5.txt\")");
@@ -105,6 +105,11 @@ public class TestIdeaMinibuffer extends LispMinibuffer {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public CharSequence getCharSequence() {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void setText(String text) {
   }
@@ -0,0 +1,74 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * shallow binding of dynamic variables, the analogue of emacs specpdl.
+ * A binding puts the new value right into the value cell visible from the binding environment
+ * (usually the global symbol) and saves the previous one here; unwinding puts the saved values back.
+ * So a variable read costs the same at any depth of nested lets and calls.
+ *
+ * Every thread unwinds its own bindings, but the value cells are shared:
+ * lisp code is expected to be evaluated by one thread at a time.
+ */
+public final class BindingStack {
+  private static final class Bindings {
+    private final ArrayList<LispSymbol> myCells = new ArrayList<>();
+    private final ArrayList<LispObject> mySavedValues = new ArrayList<>();
+    /** bindings which interned their cell, it is uninterned on unwinding if nothing else was set in it */
+    private final BitSet myInterned = new BitSet();
+  }
+
+  private static final ThreadLocal<Bindings> ourBindings = new ThreadLocal<Bindings>() {
+    @Override
+    protected Bindings initialValue() {
+      return new Bindings();
+    }
+  };
+
+  private BindingStack() {}
+
+  public static int depth() {
+    return ourBindings.get().myCells.size();
+  }
+
+  /**
+   * @return the value cell which now holds the given value
+   */
+  public static LispSymbol bind (Environment environment, String name, @Nullable LispObject value) {
+    Bindings bindings = ourBindings.get();
+    LispSymbol cell = environment.find(name);
+    if (cell == null) {
+      cell = GlobalEnvironment.INSTANCE.intern(name);
+      bindings.myInterned.set(bindings.myCells.size());
+    }
+    LispObject saved = cell.getValue();
+    cell.setValue(value);
+    bindings.myCells.add(cell);
+    bindings.mySavedValues.add(saved);
+    return cell;
+  }
+
+  /**
+   * restores all the bindings made since the stack had the given depth, the latest first
+   */
+  public static void unbindTo (int depth) {
+    Bindings bindings = ourBindings.get();
+    for (int i = bindings.myCells.size() - 1; i >= depth; --i) {
+      LispSymbol cell = bindings.myCells.remove(i);
+      LispObject saved = bindings.mySavedValues.remove(i);
+      cell.setValue(saved);
+      if (bindings.myInterned.get(i)) {
+        bindings.myInterned.clear(i);
+        if (!cell.hasValue() && !cell.isFunction() && !cell.isBufferLocal() && cell.getPropertyList().isEmpty()
+            && GlobalEnvironment.INSTANCE.find(cell.getName()) == cell)
+          GlobalEnvironment.INSTANCE.remove(cell.getName());
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * single-pass recognizer of definition forms like "(defun name" or "(defcustom 'name" in a source line.
+ * The definition keywords of {@link DefinitionLoader} are kept in a trie, so every '(' is checked
+ * by one walk over the following characters, no regular expressions and no intermediate strings are involved.
+ * The accepted syntax is the one of {@link DefinitionLoader#defStartIndex}: '(', optional whitespace, keyword,
+ * whitespace, optional quote, name, and then ')', whitespace or the line end.
+ */
+final class DefFormLexer {
+  private static final Node ourKeywords = new Node();
+
+  static {
+    for (String def: DefinitionLoader.myDefFuns)
+      ourKeywords.add(def, DefinitionLoader.DefType.FUN);
+    for (String def: DefinitionLoader.myDefVars)
+      ourKeywords.add(def, DefinitionLoader.DefType.VAR);
+  }
+
+  private String myKeyword;
+  private DefinitionLoader.DefType myType;
+  private int myNameStart;
+  private int myNameEnd;
+
+  /**
+   * @return the index of the first definition form start in line at or after from, or -1 if there is none.
+   * On success the keyword, its type and the name bounds of the found form are available.
+   */
+  int find (CharSequence line, int from) {
+    int length = line.length();
+    for (int i = from; i < length; ++i) {
+      if (line.charAt(i) == '(' && matchAt(line, i + 1, length))
+        return i;
+    }
+    return -1;
+  }
+
+  private boolean matchAt (CharSequence line, int i, int length) {
+    while (i < length && isSpace(line.charAt(i)))
+      ++i;
+    Node node = ourKeywords;
+    while (i < length && !isSpace(line.charAt(i))) {
+      node = node.myChildren.get(line.charAt(i));
+      if (node == null)
+        return false;
+      ++i;
+    }
+    if (node.myKeyword == null || i == length)
+      return false;
+    while (i < length && isSpace(line.charAt(i)))
+      ++i;
+    if (i < length && line.charAt(i) == '\'')
+      ++i;
+    int nameStart = i;
+    while (i < length && !isSpace(line.charAt(i)) && !isDelimiter(line.charAt(i)))
+      ++i;
+    if (i == nameStart || (i < length && line.charAt(i) != ')' && !isSpace(line.charAt(i))))
+      return false;
+    myKeyword = node.myKeyword;
+    myType = node.myType;
+    myNameStart = nameStart;
+    myNameEnd = i;
+    return true;
+  }
+
+  /**
+   * @return whether the last found form is defined with one of given keywords and has given name
+   */
+  boolean matches (CharSequence line, List<String> defForms, String name) {
+    if (!defForms.contains(myKeyword) || name.length() != myNameEnd - myNameStart)
+      return false;
+    for (int i = 0; i != name.length(); ++i) {
+      if (line.charAt(myNameStart + i) != name.charAt(i))
+        return false;
+    }
+    return true;
+  }
+
+  String getKeyword() {
+    return myKeyword;
+  }
+
+  DefinitionLoader.DefType getType() {
+    return myType;
+  }
+
+  int getNameStart() {
+    return myNameStart;
+  }
+
+  int getNameEnd() {
+    return myNameEnd;
+  }
+
+  //the same characters as \s in java regular expressions
+  private static boolean isSpace (char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static boolean isDelimiter (char c) {
+    return c == '\'' || c == '(' || c == ')';
+  }
+
+  private static final class Node {
+    private final Map<Character, Node> myChildren = new HashMap<>();
+    private String myKeyword;
+    private DefinitionLoader.DefType myType;
+
+    private void add (String keyword, DefinitionLoader.DefType type) {
+      Node node = this;
+      for (int i = 0; i != keyword.length(); ++i) {
+        Node child = node.myChildren.get(keyword.charAt(i));
+        if (child == null) {
+          child = new Node();
+          node.myChildren.put(keyword.charAt(i), child);
+        }
+        node = child;
+      }
+      node.myKeyword = keyword;
+      node.myType = type;
+    }
+  }
+}
@@ -1,61 +1,134 @@
 package org.jetbrains.emacs4ij.jelisp;
 
-import com.intellij.util.xmlb.annotations.MapAnnotation;
-
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 
 /**
  * DefinitionIndex is a wrapper for map which is an index for Emacs symbols definitions (in source code of Emacs).
- * It has public API for serialization and deserialization for index persistence.
+ * It is persisted in a binary file, @see #save(java.io.File)
+ * An index loaded from binary file is queried in place, only the entries asked for are put into the map.
+ * The stamps of indexed files allow to rescan only the changed ones, @see DefinitionLoader#updateIndex
  */
 public final class DefinitionIndex {
   private Map<Identifier, IdLocation> myValue = new HashMap<>();
+  private DefinitionIndexFile myFile = null;
+  private int myAddedSize = 0;
+  private Map<String, FileStamp> myFileStamps = new HashMap<>();
+  private boolean isModified = false;
+
+  /**
+   * @param file the binary index written by {@link #save(java.io.File)}
+   * @return index mapped from given file
+   */
+  public static DefinitionIndex load (File file) throws IOException {
+    DefinitionIndex index = new DefinitionIndex();
+    index.myFile = DefinitionIndexFile.map(file);
+    index.myFileStamps = index.myFile.getFileStamps();
+    return index;
+  }
+
+  public void save (File file) throws IOException {
+    DefinitionIndexFile.write(this, file);
+    isModified = false;
+  }
 
   /**
-   * Don't use this setter! It is only for deserialization of persistent data.
-   * @param index the map to be set as index value.
+   * @return whether the index was built or changed since it was loaded or saved
    */
-  @Deprecated
-  public void setValue(Map<Identifier, IdLocation> index) {
-    myValue = index;
+  public boolean isModified() {
+    return isModified;
   }
 
-  @MapAnnotation(surroundWithTag = false, entryTagName = "index", keyAttributeName = "id", valueAttributeName = "locations", surroundValueWithTag = false, surroundKeyWithTag = false)
-  public Map<Identifier, IdLocation> getValue() {
-    return myValue;
+  public boolean isMapped() {
+    return myFile != null;
+  }
+
+  private void materialize() {
+    if (myFile == null)
+      return;
+    Map<Identifier, IdLocation> all = myFile.getAll();
+    all.putAll(myValue);
+    myValue = all;
+    myFile = null;
+    myAddedSize = 0;
   }
 
   public boolean isEmpty() {
-    return myValue.isEmpty();
+    return size() == 0;
   }
 
   void setWith (DefinitionIndex index) {
-    myValue = index.getValue();
+    myValue = index.myValue;
+    myFile = index.myFile;
+    myAddedSize = index.myAddedSize;
+    myFileStamps = index.myFileStamps;
+    isModified = index.isModified;
   }
 
   SortedMap<String, Long> get (Identifier key) {
-    if (!containsKey(key))
+    IdLocation location = myValue.get(key);
+    if (location != null)
+      return location.getLocations();
+    if (myFile == null)
       return null;
-//      throw new IllegalStateException(key.getName());
-    return myValue.get(key).getLocations();
+    SortedMap<String, Long> locations = myFile.get(key);
+    if (locations != null)
+      myValue.put(key, new IdLocation(locations));
+    return locations;
   }
 
   boolean containsKey (Identifier id) {
-    return myValue.containsKey(id);
+    return myValue.containsKey(id) || (myFile != null && myFile.contains(id));
+  }
+
+  Set<Identifier> keySet() {
+    materialize();
+    return myValue.keySet();
   }
 
   Set<Map.Entry<Identifier,IdLocation>> entrySet() {
+    materialize();
     return myValue.entrySet();
   }
 
   int size() {
-    return myValue.size();
+    return myFile == null ? myValue.size() : myFile.size() + myAddedSize;
   }
 
   void put (Identifier id, SortedMap<String, Long> value) {
+    if (myFile != null && !containsKey(id))
+      myAddedSize++;
     myValue.put(id, new IdLocation(value));
+    isModified = true;
+  }
+
+  Map<String, FileStamp> getFileStamps() {
+    return myFileStamps;
+  }
+
+  void putFileStamp (String path, FileStamp stamp) {
+    myFileStamps.put(path, stamp);
+    isModified = true;
+  }
+
+  /**
+   * forgets all the definitions in given files and their stamps
+   */
+  void removeFiles (Collection<String> paths) {
+    materialize();
+    for (Iterator<IdLocation> iterator = myValue.values().iterator(); iterator.hasNext(); ) {
+      SortedMap<String, Long> locations = iterator.next().getLocations();
+      locations.keySet().removeAll(paths);
+      if (locations.isEmpty())
+        iterator.remove();
+    }
+    myFileStamps.keySet().removeAll(paths);
+    isModified = true;
   }
 }
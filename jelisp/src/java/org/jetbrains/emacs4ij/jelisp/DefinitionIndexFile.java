@@ -0,0 +1,280 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.emacs4ij.jelisp.exception.ReadException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * binary persistent form of {@link DefinitionIndex} which is memory-mapped and queried in place.
+ * Saving an index reads it off the mapping first; if the mapped file can't be replaced yet,
+ * the new one is written next to it and is switched to on the next load, @see #getPendingFile
+ *
+ * Layout (big-endian):
+ * header: magic, version, number of files, number of identifiers;
+ * file table: string pool offset of every file path and its stamp (size, modification time and checksum,
+ * the size is -1 when the file has no stamp);
+ * identifier table: sorted by type and then by name bytes, per identifier:
+ * string pool offset of name, type ordinal, index of first location, number of locations;
+ * location table: file table index and offset, in the file precedence order;
+ * string pool: length and UTF-8 bytes per string.
+ */
+final class DefinitionIndexFile {
+  private static final int MAGIC = 0x45344958; //E4IX
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 16;
+  private static final int FILE_RECORD_SIZE = 28;
+  private static final int ID_RECORD_SIZE = 16;
+  private static final int LOCATION_RECORD_SIZE = 12;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final DefinitionLoader.DefType[] TYPES = DefinitionLoader.DefType.values();
+
+  private final ByteBuffer myBuffer;
+  private final int myFileCount;
+  private final int myIdCount;
+  private final int myIdTable;
+  private final int myLocationTable;
+  private final String[] myFiles;
+
+  private DefinitionIndexFile (ByteBuffer buffer, String path) {
+    myBuffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+      throw new ReadException(JelispBundle.message("invalid.index.file", path));
+    myFileCount = buffer.getInt(8);
+    myIdCount = buffer.getInt(12);
+    myIdTable = HEADER_SIZE + FILE_RECORD_SIZE * myFileCount;
+    myLocationTable = myIdTable + ID_RECORD_SIZE * myIdCount;
+    myFiles = new String[myFileCount];
+  }
+
+  /**
+   * the index written while the file it is meant for was mapped and couldn't be replaced (on Windows),
+   * it takes the place of that file on the next load
+   */
+  static File getPendingFile (File file) {
+    return new File(file.getPath() + ".new");
+  }
+
+  static DefinitionIndexFile map (File file) throws IOException {
+    File pending = getPendingFile(file);
+    if (pending.isFile()) {
+      if (file.isFile() && pending.lastModified() < file.lastModified())
+        pending.delete();
+      else if (!((!file.exists() || file.delete()) && pending.renameTo(file)))
+        file = pending;
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      return new DefinitionIndexFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.getPath());
+    } finally {
+      raf.close();
+    }
+  }
+
+  int size() {
+    return myIdCount;
+  }
+
+  boolean contains (Identifier id) {
+    return find(id) != -1;
+  }
+
+  /**
+   * @return the locations of given identifier decoded from the file or null if it is not indexed
+   */
+  SortedMap<String, Long> get (Identifier id) {
+    int record = find(id);
+    if (record == -1)
+      return null;
+    int first = myBuffer.getInt(record + 8);
+    int count = myBuffer.getInt(record + 12);
+    SortedMap<String, Long> locations = new TreeMap<>(DefinitionLoader.FileNamesComparator.INSTANCE);
+    for (int i = first; i != first + count; ++i) {
+      int location = myLocationTable + LOCATION_RECORD_SIZE * i;
+      locations.put(getFile(myBuffer.getInt(location)), myBuffer.getLong(location + 4));
+    }
+    return locations;
+  }
+
+  Map<Identifier, IdLocation> getAll() {
+    Map<Identifier, IdLocation> all = new HashMap<>(myIdCount * 2);
+    for (int i = 0; i != myIdCount; ++i) {
+      int record = myIdTable + ID_RECORD_SIZE * i;
+      Identifier id = new Identifier(getString(myBuffer.getInt(record)), TYPES[myBuffer.getInt(record + 4)]);
+      all.put(id, new IdLocation(get(id)));
+    }
+    return all;
+  }
+
+  Map<String, FileStamp> getFileStamps() {
+    Map<String, FileStamp> stamps = new HashMap<>();
+    for (int i = 0; i != myFileCount; ++i) {
+      int record = HEADER_SIZE + FILE_RECORD_SIZE * i;
+      long size = myBuffer.getLong(record + 4);
+      if (size != -1)
+        stamps.put(getFile(i), new FileStamp(size, myBuffer.getLong(record + 12), myBuffer.getLong(record + 20)));
+    }
+    return stamps;
+  }
+
+  private synchronized String getFile (int index) {
+    if (myFiles[index] == null)
+      myFiles[index] = getString(myBuffer.getInt(HEADER_SIZE + FILE_RECORD_SIZE * index));
+    return myFiles[index];
+  }
+
+  private String getString (int offset) {
+    byte[] bytes = new byte[myBuffer.getInt(offset)];
+    for (int i = 0; i != bytes.length; ++i) {
+      bytes[i] = myBuffer.get(offset + 4 + i);
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  //binary search in the identifier table, no strings are decoded
+  private int find (Identifier id) {
+    byte[] name = id.getName().getBytes(UTF_8);
+    int type = id.getType().ordinal();
+    int low = 0;
+    int high = myIdCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int record = myIdTable + ID_RECORD_SIZE * middle;
+      int c = compare(myBuffer.getInt(record + 4), myBuffer.getInt(record), type, name);
+      if (c < 0)
+        low = middle + 1;
+      else if (c > 0)
+        high = middle - 1;
+      else
+        return record;
+    }
+    return -1;
+  }
+
+  private int compare (int type, int nameOffset, int otherType, byte[] otherName) {
+    if (type != otherType)
+      return type < otherType ? -1 : 1;
+    int length = myBuffer.getInt(nameOffset);
+    int n = Math.min(length, otherName.length);
+    for (int i = 0; i != n; ++i) {
+      int c = (myBuffer.get(nameOffset + 4 + i) & 0xff) - (otherName[i] & 0xff);
+      if (c != 0)
+        return c;
+    }
+    return length - otherName.length;
+  }
+
+  private static int compare (byte[] one, byte[] two) {
+    int n = Math.min(one.length, two.length);
+    for (int i = 0; i != n; ++i) {
+      int c = (one[i] & 0xff) - (two[i] & 0xff);
+      if (c != 0)
+        return c;
+    }
+    return one.length - two.length;
+  }
+
+  static void write (DefinitionIndex index, File file) throws IOException {
+    final Map<Identifier, byte[]> names = new HashMap<>();
+    List<Identifier> ids = new ArrayList<>();
+    Map<String, Integer> files = new HashMap<>();
+    List<String> fileList = new ArrayList<>();
+    Map<String, FileStamp> stamps = index.getFileStamps();
+    for (String path: stamps.keySet()) {
+      files.put(path, fileList.size());
+      fileList.add(path);
+    }
+    for (Map.Entry<Identifier, IdLocation> entry: index.entrySet()) {
+      ids.add(entry.getKey());
+      names.put(entry.getKey(), entry.getKey().getName().getBytes(UTF_8));
+      for (String path: entry.getValue().getLocations().keySet()) {
+        if (!files.containsKey(path)) {
+          files.put(path, fileList.size());
+          fileList.add(path);
+        }
+      }
+    }
+    Collections.sort(ids, new Comparator<Identifier>() {
+      @Override
+      public int compare(Identifier o1, Identifier o2) {
+        int c = o1.getType().ordinal() - o2.getType().ordinal();
+        return c != 0 ? c : DefinitionIndexFile.compare(names.get(o1), names.get(o2));
+      }
+    });
+
+    int locationCount = 0;
+    for (Identifier id: ids) {
+      locationCount += index.get(id).size();
+    }
+    int pool = HEADER_SIZE + FILE_RECORD_SIZE * fileList.size() + ID_RECORD_SIZE * ids.size() + LOCATION_RECORD_SIZE * locationCount;
+
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(fileList.size());
+      out.writeInt(ids.size());
+      int offset = pool;
+      List<byte[]> strings = new ArrayList<>();
+      for (String path: fileList) {
+        byte[] bytes = path.getBytes(UTF_8);
+        out.writeInt(offset);
+        offset += 4 + bytes.length;
+        strings.add(bytes);
+        FileStamp stamp = stamps.get(path);
+        out.writeLong(stamp == null ? -1 : stamp.getSize());
+        out.writeLong(stamp == null ? 0 : stamp.getModified());
+        out.writeLong(stamp == null ? 0 : stamp.getHash());
+      }
+      int location = 0;
+      for (Identifier id: ids) {
+        byte[] bytes = names.get(id);
+        out.writeInt(offset);
+        offset += 4 + bytes.length;
+        strings.add(bytes);
+        out.writeInt(id.getType().ordinal());
+        out.writeInt(location);
+        int count = index.get(id).size();
+        out.writeInt(count);
+        location += count;
+      }
+      for (Identifier id: ids) {
+        for (Map.Entry<String, Long> entry: index.get(id).entrySet()) {
+          out.writeInt(files.get(entry.getKey()));
+          out.writeLong(entry.getValue());
+        }
+      }
+      for (byte[] bytes: strings) {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    } finally {
+      out.close();
+    }
+    File pending = getPendingFile(file);
+    if ((!file.exists() || file.delete()) && temp.renameTo(file)) {
+      pending.delete();
+      return;
+    }
+    //the file is still mapped by the index loaded from it
+    if (pending.exists() && !pending.delete() || !temp.renameTo(pending))
+      throw new IOException(JelispBundle.message("invalid.index.file", file.getPath()));
+  }
+}
@@ -1,7 +1,6 @@
 package org.jetbrains.emacs4ij.jelisp;
 
 import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.util.text.StringUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
@@ -14,27 +13,30 @@ import org.jetbrains.emacs4ij.jelisp.exception.LispException;
 import org.jetbrains.emacs4ij.jelisp.exception.ReadException;
 import org.jetbrains.emacs4ij.jelisp.exception.VoidFunctionException;
 import org.jetbrains.emacs4ij.jelisp.exception.VoidVariableException;
-import org.jetbrains.emacs4ij.jelisp.parser.ForwardMultilineParser;
+import org.jetbrains.emacs4ij.jelisp.parser.SourceFile;
+import org.jetbrains.emacs4ij.jelisp.parser.LispReader;
+import org.jetbrains.emacs4ij.jelisp.parser.SourceReader;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Predicate;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public final class DefinitionLoader {
   static enum DefType {VAR, FUN, GENERIC} //todo: not private for test only  && IDENTIFIER
@@ -59,28 +61,130 @@ public final class DefinitionLoader {
       index = new DefinitionIndex();
     }
 
+    File root = new File(GlobalEnvironment.getEmacsSource() + "/lisp/");
     if (index.isEmpty() && TestMode.INIT_GLOBAL_ENV_FROM_EMACS_SOURCES) {
-      scan(new File(GlobalEnvironment.getEmacsSource() + "/lisp/"));
+      myIndex = buildIndex(root);
       index.setWith(myIndex);
     } else {
+      if (TestMode.INIT_GLOBAL_ENV_FROM_EMACS_SOURCES)
+        updateIndex(index, root);
       myIndex = index;
     }
 
     LogUtil.info("DefinitionLoader: init finish");
   }
 
-  private static void scan (File file) {
-    if (file.isDirectory() && notSkipped(file.getAbsolutePath())) {
-      File[] files = file.listFiles();
-      if (files == null)
-        return;
-      for (File f: files) {
-        scan(f);
+  /**
+   * scans all the elisp sources under given file in parallel, every file is scanned by its own task
+   */
+  static DefinitionIndex buildIndex (File root) {
+    return scanInParallel(root);
+  }
+
+  private static DefinitionIndex scanInParallel (File... files) {
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      return pool.invoke(new ScanTask(files));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * rescans only the sources under root which were added, changed or removed since they were indexed
+   * and patches the index with them. Files are compared by size and modification time and then by checksum.
+   */
+  static void updateIndex (DefinitionIndex index, File root) {
+    List<File> sources = new ArrayList<>();
+    collectSources(root, sources);
+    Map<String, FileStamp> stamps = index.getFileStamps();
+    Set<String> outdated = new HashSet<>(stamps.keySet());
+    List<File> changed = new ArrayList<>();
+    for (File file: sources) {
+      String path = file.getAbsolutePath();
+      outdated.remove(path);
+      FileStamp stamp = stamps.get(path);
+      if (stamp != null && stamp.isUnchanged(file))
+        continue;
+      try {
+        FileStamp actual = FileStamp.of(file);
+        if (stamp != null && stamp.hasSameContent(actual)) {
+          index.putFileStamp(path, actual);
+          continue;
+        }
+      } catch (IOException e) {
+        //will be rescanned
       }
+      changed.add(file);
+    }
+    LogUtil.info("DefinitionLoader: " + changed.size() + " changed, " + outdated.size() + " removed files");
+    if (changed.isEmpty() && outdated.isEmpty())
       return;
+    for (File file: changed) {
+      outdated.add(file.getAbsolutePath());
     }
-    if (file.getAbsolutePath().endsWith(".el") && notSkipped(file.getAbsolutePath())) {
-      FileScanner.scan(file);
+    index.removeFiles(outdated);
+    if (!changed.isEmpty())
+      mergeDefIndex(index, scanInParallel(changed.toArray(new File[changed.size()])));
+  }
+
+  private static void collectSources (File file, List<File> sources) {
+    if (!notSkipped(file.getAbsolutePath()))
+      return;
+    if (file.isDirectory()) {
+      File[] files = file.listFiles();
+      if (files != null)
+        for (File f: files)
+          collectSources(f, sources);
+      return;
+    }
+    if (file.getName().endsWith(".el"))
+      sources.add(file);
+  }
+
+  private static final class ScanTask extends RecursiveTask<DefinitionIndex> {
+    private static final long serialVersionUID = 1L;
+    private final File[] myFiles;
+
+    private ScanTask (File... files) {
+      myFiles = files;
+    }
+
+    @Override
+    protected DefinitionIndex compute() {
+      if (myFiles.length == 1)
+        return scan(myFiles[0]);
+      DefinitionIndex index = new DefinitionIndex();
+      List<ScanTask> tasks = new ArrayList<>(myFiles.length);
+      for (File f: myFiles) {
+        tasks.add(new ScanTask(f));
+      }
+      invokeAll(tasks);
+      for (ScanTask task: tasks) {
+        mergeDefIndex(index, task.join());
+      }
+      return index;
+    }
+
+    private DefinitionIndex scan (File file) {
+      String path = file.getAbsolutePath();
+      if (!notSkipped(path))
+        return new DefinitionIndex();
+      if (file.isDirectory()) {
+        File[] files = file.listFiles();
+        return files == null || files.length == 0 ? new DefinitionIndex() : new ScanTask(files).compute();
+      }
+      if (!path.endsWith(".el"))
+        return new DefinitionIndex();
+      FileStamp stamp;
+      try {
+        stamp = FileStamp.of(file);
+      } catch (IOException e) {
+        throw new ReadException(JelispBundle.message("no.file", path));
+      }
+      DefinitionIndex index = FileScanner.scan(file);
+      index.putFileStamp(path, stamp);
+      return index;
     }
   }
 
@@ -93,6 +197,13 @@ public final class DefinitionLoader {
   }
 
   //for test
+  /**
+   * @return the files which definitions were loaded from on the fly
+   */
+  static Set<String> getUploadedFiles() {
+    return new HashSet<>(myUploadHistory.values());
+  }
+
   public static void addSkipForms(String... forms) {
     Collections.addAll(mySkipForms, forms);
   }
@@ -116,10 +227,25 @@ public final class DefinitionLoader {
     return false;
   }
 
-  private static Long getFileOffset(RandomAccessFile file, final String path) {
+  private static boolean skip (CharSequence source, int start) {
+    for (String form: mySkipForms) {
+      if (start + form.length() <= source.length()
+          && source.subSequence(start, start + form.length()).toString().equals(form))
+        return true;
+    }
+    return false;
+  }
+
+  private static SourceReader openSource(String path) throws FileNotFoundException {
+    return new SourceReader(mapSource(path), path);
+  }
+
+  private static SourceFile mapSource(String path) throws FileNotFoundException {
     try {
-      return file.getFilePointer();
-    } catch (IOException | NullPointerException e) {
+      return SourceFile.get(path);
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
       throw new ReadException(JelispBundle.message("invalid.file.state", path));
     }
   }
@@ -134,33 +260,17 @@ public final class DefinitionLoader {
 
   public static void loadFile(String fileName) throws FileNotFoundException {
     LogUtil.info("load " + fileName);
-    RandomAccessFile reader = new RandomAccessFile(fileName, "r");
-    String line;
-    ForwardMultilineParser p = new ForwardMultilineParser(reader, fileName);
-    while (true) {
-      try {
-        line = reader.readLine();
-      } catch (IOException e) {
-        //todo: line index
-        throw new ReadException(fileName +  ", line " + 0);
-      }
-      if (line == null) break;
-
-      boolean skip = skip(line);
-      Long offset = getFileOffset(reader, fileName);
-      LispObject parsed = p.parse(line, offset);
-      if (Predicate.isNil(parsed) || skip)
+    LispReader reader = new LispReader(mapSource(fileName), fileName);
+    while (!reader.isFinished()) {
+      LispObject parsed = reader.readForm();
+      long offset = reader.getFormStart();
+      if (Predicate.isNil(parsed) || skip(reader.getSource(), (int) offset))
         continue;
-
-      while (true) {
-        try {
-          saveLoadHistory(parsed, fileName, offset);
-          parsed.evaluate(GlobalEnvironment.INSTANCE);
-        } catch (LispException e) {
-          LogUtil.log(JelispBundle.message("loader.error", fileName, p.getLine(), e.getMessage()), GlobalEnvironment.MessageType.ERROR);
-        }
-        if (p.isFinished()) break;
-        parsed = p.parseNext();
+      try {
+        saveLoadHistory(parsed, fileName, offset);
+        parsed.evaluate(GlobalEnvironment.INSTANCE);
+      } catch (LispException e) {
+        LogUtil.log(JelispBundle.message("loader.error", fileName, reader.getLine(), e.getMessage()), GlobalEnvironment.MessageType.ERROR);
       }
     }
   }
@@ -199,52 +309,37 @@ public final class DefinitionLoader {
     index.put(id, map);
   }
 
-  public static LispList getDefFromFile(String fileName, String functionName, DefType type) {
-    return FileScanner.getDefFromFile(fileName, -1, new Identifier(functionName, type));
-  }
-
-  protected static Pair<Integer, String> defStartIndex(String line, List<String> defForms) {
-    Matcher m = defStart(line, null, defForms);
-    if (m.find()) {
-      String match = m.group();
-      int length = match.length();
-      char c = match.charAt(length - 1);
-      int nameEnd = c == ')' || Character.isWhitespace(c) ? length - 1 : length;
-      int nameReversedStart = length - nameEnd;
-      String reversed = new StringBuffer(match).reverse().toString();
-      for (; nameReversedStart < reversed.length(); nameReversedStart++) {
-        c = reversed.charAt(nameReversedStart);
-        if (Character.isWhitespace(c) || c == '\'')
-          break;
+  /**
+   * adds all the definition locations from part to index, the precedence of files is kept by their comparator
+   */
+  private static void mergeDefIndex(DefinitionIndex index, DefinitionIndex part) {
+    for (Map.Entry<String, FileStamp> stamp: part.getFileStamps().entrySet()) {
+      index.putFileStamp(stamp.getKey(), stamp.getValue());
+    }
+    for (Map.Entry<Identifier, IdLocation> entry: part.entrySet()) {
+      for (Map.Entry<String, Long> location: entry.getValue().getLocations().entrySet()) {
+        putToDefIndex(index, entry.getKey(), location.getKey(), location.getValue());
       }
-      String name = match.substring(length - nameReversedStart, nameEnd);
-      return new Pair<>(m.start(), name);
     }
-    return null;
   }
 
-  protected static int defStartIndex(String line, @NotNull String name, List<String> defForms) {
-    Matcher m = defStart(line, name, defForms);
-    if (m.find()) {
-      return m.start();
-    }
-    return -1;
+  public static LispList getDefFromFile(String fileName, String functionName, DefType type) {
+    return FileScanner.getDefFromFile(fileName, -1, new Identifier(functionName, type));
   }
 
-  private static Matcher defStart(String line, @Nullable String name, List<String> defForms) {
-    StringBuilder defs = new StringBuilder();
-    for (String def: defForms) {
-      defs.append(def).append('|');
+  protected static int defStartIndex(String line, @NotNull String name, List<String> defForms) {
+    DefFormLexer lexer = new DefFormLexer();
+    for (int start = lexer.find(line, 0); start != -1; start = lexer.find(line, start + 1)) {
+      if (lexer.matches(line, defForms, name))
+        return start;
     }
-    String defAlternative = defs.toString().substring(0, defs.length()-1);
-    String nameRegex = name == null ? "[^\\s'\\(\\)]+" : StringUtil.escapeToRegexp(name);
-    Pattern p = Pattern.compile("\\(\\s*(" + defAlternative + ")\\s+'?" + nameRegex + "([\\)\\s]|\\z)");
-    return p.matcher(line);
+    return -1;
   }
 
   private static LispSymbol processDef (LispList definition, Identifier id) {
     if (definition == null)
       return null;
+    DefinitionPrefetcher.schedule(definition, id, myIndex);
     LispObject evaluated;
     try {
       evaluated = definition.evaluate(GlobalEnvironment.INSTANCE);
@@ -299,6 +394,7 @@ public final class DefinitionLoader {
   }
 
   private static LispSymbol findAndRegisterEmacsForm (String name, DefType type) {
+    DefinitionPrefetcher.onDemand();
     Identifier id = new Identifier(name, type);
     checkExistence(id);
     LispList definition;
@@ -341,39 +437,34 @@ public final class DefinitionLoader {
   }
 
   protected static class FileScanner {
-    private static RandomAccessFile myFile = null;
-    private static String myFilePath;
     private static Deque<Identifier> myLoadStack = new ArrayDeque<>();
 
-    static void scan (File file) {
+    private final SourceReader myFile;
+    private final String myFilePath;
+    private final DefinitionIndex myFileIndex = new DefinitionIndex();
+    private final DefFormLexer myLexer = new DefFormLexer();
+
+    private FileScanner (File file) {
+      myFilePath = file.getAbsolutePath();
       try {
-        myFile = new RandomAccessFile(file, "r");
+        myFile = openSource(myFilePath);
       } catch (FileNotFoundException e) {
-        throw new ReadException(JelispBundle.message("no.file", file.getAbsolutePath()));
-      }
-      myFilePath = file.getAbsolutePath();
-      String line;
-      while (true) {
-        try {
-          line = myFile.readLine();
-        } catch (IOException e) {
-          return;
-        }
-        if (line == null)
-          break;
-        scanLine(line);
+        throw new ReadException(JelispBundle.message("no.file", myFilePath));
       }
     }
 
-    private static void closeFile() {
-      if (myFile == null)
-        return;
-      try {
-        myFile.close();
-        myFile = null;
-        myFilePath = null;
-      } catch (IOException e) {
-        e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+    /**
+     * @return index of the definitions found in given file only
+     */
+    static DefinitionIndex scan (File file) {
+      FileScanner scanner = new FileScanner(file);
+      scanner.scanLines();
+      return scanner.myFileIndex;
+    }
+
+    private void scanLines() {
+      for (String line = myFile.readLine(); line != null; line = myFile.readLine()) {
+        scanLine(line);
       }
     }
 
@@ -401,34 +492,39 @@ public final class DefinitionLoader {
       checkForCyclicUploading(id);
       myLoadStack.push(id);
       try {
-        myFile = new RandomAccessFile(fileName, "r");
-        myFilePath = fileName;
-
         if (offset == -1) {
           SortedMap<String, Long> map = myIndex.get(id);
-          if (map != null && map.containsKey(myFilePath)) {
-            offset = map.get(myFilePath);
-          } else {
-            //we don't know offset
-            while (true) {
-              LispList def = tryGetDefFromFile(id);
-              if (def != null) return def;
-            }
-          }
+          if (map != null && map.containsKey(fileName))
+            offset = map.get(fileName);
+        }
+
+        LispList def = offset == -1 ? null : FormCache.get(fileName, offset, id);
+        if (def != null) {
+          myDefinitionSrcFile = fileName;
+          myUploadHistory.put(id.getName(), fileName);
+          return def;
         }
 
-        try {
-          myFile.seek(offset);
-        } catch (IOException e) {
-          throw new ReadException(JelispBundle.message("invalid.offset", myFilePath, offset));
+        SourceReader file = openSource(fileName);
+        if (offset == -1) {
+          //we don't know offset
+          while (true) {
+            def = tryGetDefFromFile(file, fileName, id);
+            if (def != null) return def;
+          }
         }
 
-        LispList def = tryGetDefFromFile(id);
+        if (offset < 0 || offset > file.getSource().length())
+          throw new ReadException(JelispBundle.message("invalid.offset", fileName, offset));
+        file.seek(offset);
+
+        def = tryGetDefFromFile(file, fileName, id);
         if (def == null) {
           myDefinitionSrcFile = null;
-          LogUtil.log("NULL def: " + id.toString() + ", file " + myFilePath, GlobalEnvironment.MessageType.ERROR);
+          LogUtil.log("NULL def: " + id.toString() + ", file " + fileName, GlobalEnvironment.MessageType.ERROR);
           return null;
         } else {
+          FormCache.put(fileName, offset, id, def);
           return def;
         }
 
@@ -436,91 +532,73 @@ public final class DefinitionLoader {
         return null;
       } catch (FileNotFoundException e1) {
         throw new ReadException(JelispBundle.message("no.file", fileName));
-      } catch (IOException e2) {
-        throw new ReadException(myFilePath);
       } finally {
-        closeFile();
         onUploadFinish(id);
       }
     }
 
-    private static LispList tryGetDefFromFile (Identifier id) throws IOException {
-      String line = myFile.readLine();
+    private static LispList tryGetDefFromFile (SourceReader file, String filePath, Identifier id) {
+      String line = file.readLine();
       if (line == null) throw new NullLineException();
       int defStart = defStartIndex(line, id.getName(), (id.getType() == DefType.FUN ? myDefFuns : myDefVars));
       if (defStart != -1) {
-        myDefinitionSrcFile = myFilePath;
-        return getDef(line, defStart, id.getName());
+        myDefinitionSrcFile = filePath;
+        return getDef(file, filePath, defStart, id.getName());
       } else {
         return null;
       }
     }
 
-    private static LispList getDef(String line, int index, String name) {
-      ForwardMultilineParser p = new ForwardMultilineParser(myFile, myFilePath);
-      LispObject parsed = p.parse(line, getFileOffset(myFile, myFilePath), index);
+    /**
+     * reads the definition at given offset with no side effects on the loader state,
+     * so unlike {@link #getDefFromFile(String, long, Identifier)} it may be called from any thread
+     * @return the definition or null if there is none at given offset
+     */
+    @Nullable
+    static LispList readDef (String filePath, long offset, Identifier id) throws IOException {
+      SourceReader file = openSource(filePath);
+      file.seek(offset);
+      String line = file.readLine();
+      if (line == null)
+        return null;
+      int defStart = defStartIndex(line, id.getName(), (id.getType() == DefType.FUN ? myDefFuns : myDefVars));
+      if (defStart == -1)
+        return null;
+      LispObject parsed = parseDef(file, filePath, defStart);
+      return parsed instanceof LispList ? (LispList) parsed : null;
+    }
+
+    private static LispObject parseDef (SourceReader file, String filePath, int index) {
+      LispReader reader = new LispReader(file.getSource(), filePath);
+      reader.seek(file.getLineStart() + index);
+      return reader.readForm();
+    }
+
+    private static LispList getDef(SourceReader file, String filePath, int index, String name) {
+      LispObject parsed = parseDef(file, filePath, index);
       if (parsed instanceof LispList) {
-        myUploadHistory.put(name, myFilePath);
+        myUploadHistory.put(name, filePath);
         return (LispList) parsed;
       }
       throw new InternalException(JelispBundle.message("unexpected.object.type"));
     }
 
-    private static void scanLine(String line) {
+    private void scanLine(String line) {
       if (line.trim().startsWith(";"))
         return;
       if (line.isEmpty())
         return;
-      long baseOffset = getFileOffset(myFile, myFilePath) - line.length() - 1;
-//            if (line.getBytes().length != line.length())
-//                System.out.print(1);
-      scanLine(DefType.FUN, line, baseOffset);
-      scanLine(DefType.VAR, line, baseOffset);
-    }
-
-    protected static void scanLine (DefType type, String line, long baseOffset) {
-      List<String> defs = type == DefType.FUN ? myDefFuns : myDefVars;
-      String substring = line;
-      while (!substring.isEmpty()) {
-        Pair<Integer, String> start = defStartIndex(substring, defs);
-        if (start == null)
-          return;
-        Identifier id = new Identifier(start.getSecond(), type);
-        saveId(id, baseOffset + start.getFirst());
-        substring = substring.substring(start.getFirst() + 1);
-        baseOffset += start.getFirst() + 1;
+      long baseOffset = myFile.getLineStart();
+      for (int start = myLexer.find(line, 0); start != -1; start = myLexer.find(line, start + 1)) {
+        Identifier id = new Identifier(line.substring(myLexer.getNameStart(), myLexer.getNameEnd()), myLexer.getType());
+        putToDefIndex(myFileIndex, id, myFilePath, baseOffset + start);
       }
     }
-
-    private static void saveId (Identifier id, long offset) {
-      //todo: back
-      //reader == myFile
-      /*Identifier id = null;
-if (type == DefType.FUN) {//check if it is command
-  try {
-      LispList definition = getDef(reader, line, name);
-      if (BuiltinPredicates.commandp(definition, null).equals(LispSymbol.T))
-          id = new Identifier(name, SymbolType.CMD);
-  } catch (ParserException e) {
-      if (!e.getMessage().contains("Unknown code block: )")) //this means we've found def inside other def
-          if (!e.getMessage().contains("\u001B") && !e.getMessage().contains("�")) {
-//                LogUtil.log("Function " + name + ": " + e.getMessage(), MessageType.ERROR);
-          } else {
-//                LogUtil.log(myFile.getAbsolutePath(), MessageType.ERROR);
-          }
-      //skip here
-  }
-}
-if (id == null)
-  id = new Identifier(name, type);*/
-
-      putToDefIndex(myIndex, id, myFilePath, offset);
-    }
   }
 
   //prefer root sources among all others
-  private static class FileNamesComparator implements Comparator<String> {
-    private static FileNamesComparator INSTANCE = new FileNamesComparator();
+  static final class FileNamesComparator implements Comparator<String> {
+    static final FileNamesComparator INSTANCE = new FileNamesComparator();
 
     private static int countFileSeparators (String s) {
       int counter = 0;
@@ -0,0 +1,168 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispVector;
+import org.jetbrains.emacs4ij.jelisp.exception.LispException;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * parses in background the definitions which are likely to be loaded next: the ones referenced by a definition
+ * just loaded on the fly, which are indexed but not defined yet. Parsed forms go to {@link FormCache},
+ * so loading such a definition later is decoding and evaluation only.
+ * Everything touching the environment and the index is done by the caller,
+ * the background thread reads sources and runs only when no definition was requested for a while.
+ */
+public final class DefinitionPrefetcher {
+  private static final int MAX_SCHEDULED = 4096;
+  private static final long IDLE_DELAY = 300; //ms
+
+  private static final Set<Identifier> ourScheduled = new HashSet<>();
+  private static volatile long ourLastDemand = 0;
+  private static ExecutorService ourExecutor = null;
+
+  private DefinitionPrefetcher() {}
+
+  public static synchronized void setEnabled (boolean enabled) {
+    if (enabled == (ourExecutor != null))
+      return;
+    if (enabled) {
+      ourExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "Emacs definitions prefetcher");
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        }
+      });
+    } else {
+      ourExecutor.shutdownNow();
+      ourExecutor = null;
+      ourScheduled.clear();
+    }
+  }
+
+  public static synchronized boolean isEnabled() {
+    return ourExecutor != null;
+  }
+
+  /**
+   * is called when a definition is requested, the prefetcher backs off for a while
+   */
+  static void onDemand() {
+    ourLastDemand = System.currentTimeMillis();
+  }
+
+  /**
+   * schedules prefetching of the definitions referenced by given definition of given identifier
+   */
+  static synchronized void schedule (LispObject definition, Identifier id, DefinitionIndex index) {
+    if (ourExecutor == null)
+      return;
+    Set<String> names = new LinkedHashSet<>();
+    collectSymbols(definition, names);
+    names.remove(id.getName());
+    for (String name: names) {
+      LispSymbol symbol = GlobalEnvironment.INSTANCE.find(name);
+      schedule(new Identifier(name, DefinitionLoader.DefType.FUN), symbol != null && symbol.isFunction(), index);
+      schedule(new Identifier(name, DefinitionLoader.DefType.VAR), symbol != null && symbol.hasValue(), index);
+    }
+  }
+
+  private static void schedule (Identifier id, boolean defined, DefinitionIndex index) {
+    if (defined || ourScheduled.size() >= MAX_SCHEDULED || ourScheduled.contains(id))
+      return;
+    SortedMap<String, Long> locations = index.get(id);
+    if (locations == null || locations.isEmpty())
+      return;
+    String file = locations.firstKey();
+    for (String location: locations.keySet()) {
+      if (location.endsWith("/lisp/subr.el"))
+        file = location;
+    }
+    ourScheduled.add(id);
+    ourExecutor.execute(new Prefetch(file, locations.get(file), id));
+  }
+
+  private static void collectSymbols (LispObject object, Set<String> names) {
+    if (object instanceof LispSymbol) {
+      LispSymbol symbol = (LispSymbol) object;
+      if (!symbol.equals(LispSymbol.NIL) && !symbol.equals(LispSymbol.T) && !symbol.isKeyword())
+        names.add(symbol.getName());
+    } else if (object instanceof LispList) {
+      LispObject tail = object;
+      while (tail instanceof LispList && !((LispList) tail).isEmpty()) {
+        collectSymbols(((LispList) tail).car(), names);
+        tail = ((LispList) tail).cdr();
+      }
+      if (!(tail instanceof LispList))
+        collectSymbols(tail, names);
+    } else if (object instanceof LispVector) {
+      for (LispObject item: ((LispVector) object).toLispObjectList()) {
+        collectSymbols(item, names);
+      }
+    }
+  }
+
+  /**
+   * waits for all scheduled prefetching to finish
+   */
+  static void flush() throws InterruptedException {
+    ExecutorService executor;
+    synchronized (DefinitionPrefetcher.class) {
+      executor = ourExecutor;
+    }
+    if (executor == null)
+      return;
+    try {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {}
+      }).get();
+    } catch (ExecutionException e) {
+      LogUtil.log("prefetch failed", e);
+    }
+  }
+
+  private static final class Prefetch implements Runnable {
+    private final String myFile;
+    private final long myOffset;
+    private final Identifier myId;
+
+    private Prefetch (String file, long offset, Identifier id) {
+      myFile = file;
+      myOffset = offset;
+      myId = id;
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (long idle = System.currentTimeMillis() - ourLastDemand; idle < IDLE_DELAY;
+             idle = System.currentTimeMillis() - ourLastDemand) {
+          Thread.sleep(IDLE_DELAY - idle);
+        }
+        if (FormCache.contains(myFile, myOffset, myId))
+          return;
+        LispList definition = DefinitionLoader.FileScanner.readDef(myFile, myOffset, myId);
+        if (definition != null)
+          FormCache.put(myFile, myOffset, myId, definition);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException | LispException e) {
+        //the definition is loaded and reported on demand
+      }
+    }
+  }
+}
@@ -1,9 +1,10 @@
 package org.jetbrains.emacs4ij.jelisp;
 
 import org.jetbrains.emacs4ij.jelisp.elisp.LispSubroutine;
+import org.jetbrains.emacs4ij.jelisp.elisp.Primitive;
+import org.jetbrains.emacs4ij.jelisp.elisp.SubroutineDescriptor;
 import org.jetbrains.emacs4ij.jelisp.exception.DocumentationExtractorException;
 import org.jetbrains.emacs4ij.jelisp.exception.ReadException;
-import org.jetbrains.emacs4ij.jelisp.subroutine.Subroutine;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -11,10 +12,11 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * this class is a helper for doc extraction.
@@ -70,20 +72,10 @@ final class DocumentationExtractor {
 
   private List<String> getUndocumentedSubroutines()  {
     ArrayList<String> names = new ArrayList<>();
-    for (Class c: LispSubroutine.getSubroutineContainers()) {
-      Method[] methods = c.getMethods();
-      for (Method m: methods) {
-        Subroutine annotation = m.getAnnotation(Subroutine.class);
-        if (annotation == null)
-          continue;
-        String name = annotation.value();
-
-        try {
-          if (getSubroutineDoc(name) == null)
-            names.add(name);
-        } catch (NullPointerException e) {
-          names.add(name);
-        }
+    for (Primitive.Type type: Primitive.Type.values()) {
+      for (SubroutineDescriptor descriptor: LispSubroutine.getDescriptors(type)) {
+        if (getSubroutineDoc(descriptor.getName()) == null)
+          names.add(descriptor.getName());
       }
     }
     return names;
@@ -194,9 +186,10 @@ final class DocumentationExtractor {
     }
   }
 
-  public int scanAll () throws DocumentationExtractorException {
-    if (!TestMode.EXTRACT_DOC) return -1;
-
+  /**
+   * @return the C sources to extract documentation from
+   */
+  public List<File> getSourceFiles() {
     File sourceDir = new File(mySourcePath);
     File[] cSrc = sourceDir.listFiles(new FilenameFilter() {
       @Override
@@ -204,10 +197,48 @@ final class DocumentationExtractor {
         return (s.endsWith(".c") && !s.startsWith("."));
       }
     });
-    if (cSrc!=null && cSrc.length != 0)
-      for (File file: cSrc) {
-        scanFile(file);
-      }
+    return cSrc == null ? new ArrayList<File>() : Arrays.asList(cSrc);
+  }
+
+  public Map<String, String> getSubroutineDocs() {
+    return getDocs(mySubr);
+  }
+
+  public Map<String, String> getVariableDocs() {
+    return getDocs(myVar);
+  }
+
+  private static Map<String, String> getDocs (Map<String, ? extends ObjectToDocument> objects) {
+    Map<String, String> docs = new HashMap<>();
+    for (ObjectToDocument object: objects.values()) {
+      if (object.getDoc() != null)
+        docs.put(object.getName(), object.getDoc());
+    }
+    return docs;
+  }
+
+  /**
+   * fills in documentation extracted earlier instead of scanning the sources
+   */
+  public void restore (Map<String, String> subroutineDocs, Map<String, String> variableDocs) {
+    for (Map.Entry<String, String> entry: subroutineDocs.entrySet()) {
+      Subr subr = new Subr(entry.getKey());
+      subr.setDoc(entry.getValue());
+      mySubr.put(entry.getKey(), subr);
+    }
+    for (Map.Entry<String, String> entry: variableDocs.entrySet()) {
+      Variable variable = new Variable(entry.getKey(), VarType.LISP);
+      variable.setDoc(entry.getValue());
+      myVar.put(entry.getKey(), variable);
+    }
+  }
+
+  public int scanAll () throws DocumentationExtractorException {
+    if (!TestMode.EXTRACT_DOC) return -1;
+
+    for (File file: getSourceFiles()) {
+      scanFile(file);
+    }
     List<String> str = getUndocumentedSubroutines();
 
     LogUtil.info("Undocumented: " + str.size() + " " + str);
@@ -0,0 +1,271 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.exception.LispException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * image of the global environment taken right after its initialization: the next start restores it
+ * instead of extracting documentation from C sources and loading Emacs files.
+ * The image is memory-mapped, symbols are decoded on demand, @see GlobalEnvironment#find(String)
+ * If any symbol holds an object which can't be encoded (a keymap, buffer, marker, char table),
+ * no image is taken: restoring the rest would lose whatever the initialization did to it.
+ * An image is valid while the configuration and all the files it was built from are unchanged.
+ *
+ * Layout (big-endian): magic, version, configuration;
+ * dependencies: number, per file: path, size, modification time;
+ * subroutine and variable documentation: number, per entry: name and doc;
+ * symbols: number, per symbol: name, entry length and entry:
+ * flags, alias target or value if any, function if any, number of properties, per property: name and value.
+ * Values are encoded with {@link FormCodec}, structure shared by the values of one symbol is restored shared.
+ */
+final class EnvironmentSnapshot {
+  private static final int MAGIC = 0x45344553; //E4ES
+  private static final int VERSION = 2;
+
+  private static final int CONSTANT = 1;
+  private static final int BUFFER_LOCAL = 2;
+  private static final int ALIAS = 4;
+  private static final int VALUE = 8;
+  private static final int FUNCTION = 16;
+
+  private final ByteBuffer myBuffer;
+  private final Map<String, String> mySubroutineDocs = new HashMap<>();
+  private final Map<String, String> myVariableDocs = new HashMap<>();
+  private final Map<String, Integer> mySymbols = new HashMap<>();
+
+  private EnvironmentSnapshot (ByteBuffer buffer) {
+    myBuffer = buffer;
+  }
+
+  /**
+   * @return the snapshot stored in given file or null if it was taken with another configuration
+   * or any file it depends on has changed since
+   */
+  @Nullable
+  static EnvironmentSnapshot open (File file, String configuration) throws IOException {
+    ByteBuffer buffer;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      raf.close();
+    }
+    ByteBuffer position = buffer.duplicate();
+    DataInputStream in = input(position);
+    if (in.readInt() != MAGIC || in.readInt() != VERSION || !FormCodec.readString(in).equals(configuration))
+      return null;
+    for (int n = in.readInt(); n > 0; --n) {
+      File dependency = new File(FormCodec.readString(in));
+      if (dependency.length() != in.readLong() || dependency.lastModified() != in.readLong())
+        return null;
+    }
+    EnvironmentSnapshot snapshot = new EnvironmentSnapshot(buffer);
+    readDocs(in, snapshot.mySubroutineDocs);
+    readDocs(in, snapshot.myVariableDocs);
+    for (int n = in.readInt(); n > 0; --n) {
+      String name = FormCodec.readString(in);
+      int length = in.readInt();
+      snapshot.mySymbols.put(LispSymbol.intern(name), position.position());
+      position.position(position.position() + length);
+    }
+    return snapshot;
+  }
+
+  private static void readDocs (DataInputStream in, Map<String, String> docs) throws IOException {
+    for (int n = in.readInt(); n > 0; --n) {
+      String name = FormCodec.readString(in);
+      docs.put(name, FormCodec.readString(in));
+    }
+  }
+
+  private static DataInputStream input (final ByteBuffer buffer) {
+    return new DataInputStream(new InputStream() {
+      @Override
+      public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) {
+        if (!buffer.hasRemaining())
+          return -1;
+        length = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, length);
+        return length;
+      }
+    });
+  }
+
+  Set<String> getNames() {
+    return mySymbols.keySet();
+  }
+
+  boolean contains (String name) {
+    return mySymbols.containsKey(name);
+  }
+
+  boolean isBufferLocal (String name) {
+    Integer position = mySymbols.get(name);
+    return position != null && (myBuffer.get(position) & BUFFER_LOCAL) != 0;
+  }
+
+  void restoreDocumentation (DocumentationExtractor extractor) {
+    extractor.restore(mySubroutineDocs, myVariableDocs);
+  }
+
+  /**
+   * decodes the saved state of given symbol into given one or into a new symbol if it is null
+   * @return the restored symbol or null if it is not saved or can't be decoded
+   */
+  @Nullable
+  LispSymbol restore (String name, @Nullable LispSymbol into) {
+    Integer position = mySymbols.get(name);
+    if (position == null)
+      return null;
+    ByteBuffer buffer = myBuffer.duplicate();
+    buffer.position(position);
+    DataInputStream in = input(buffer);
+    try {
+      int flags = in.readByte();
+      String alias = null;
+      LispObject value = null;
+      List<LispObject> read = new ArrayList<>();
+      if ((flags & ALIAS) != 0)
+        alias = FormCodec.readString(in);
+      else if ((flags & VALUE) != 0)
+        value = FormCodec.decode(in, read);
+      LispObject function = (flags & FUNCTION) != 0 ? FormCodec.decode(in, read) : null;
+      int n = in.readInt();
+      List<String> keys = new ArrayList<>(n);
+      List<LispObject> values = new ArrayList<>(n);
+      for (; n > 0; --n) {
+        keys.add(FormCodec.readString(in));
+        values.add(FormCodec.decode(in, read));
+      }
+
+      LispSymbol symbol = into == null ? new LispSymbol(name) : into;
+      if (alias != null) {
+        symbol.setAsAlias(GlobalEnvironment.INSTANCE.intern(alias));
+      } else if (value != null && !symbol.isConstant()) {
+        symbol.setValue(value);
+      }
+      if (function != null)
+        symbol.setFunction(function);
+      for (int i = 0; i != keys.size(); ++i) {
+        symbol.setProperty(keys.get(i), values.get(i));
+      }
+      if ((flags & BUFFER_LOCAL) != 0)
+        symbol.setBufferLocal(true);
+      if ((flags & CONSTANT) != 0 && !symbol.isConstant())
+        symbol.setConstant();
+      return symbol;
+    } catch (IOException | LispException e) {
+      LogUtil.log("failed to restore " + name + " from environment snapshot", e);
+      return null;
+    }
+  }
+
+  /**
+   * @return the number of symbols written
+   * @throws IOException if any symbol can't be encoded, nothing is written then
+   */
+  static int write (File file, String configuration, Collection<File> dependencies,
+                    DocumentationExtractor extractor, Collection<LispSymbol> symbols) throws IOException {
+    List<String> names = new ArrayList<>();
+    List<byte[]> entries = new ArrayList<>();
+    for (LispSymbol symbol: symbols) {
+      byte[] entry = encode(symbol);
+      if (entry == null)
+        throw new IOException("Can't encode " + symbol.getName());
+      names.add(symbol.getName());
+      entries.add(entry);
+    }
+
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      FormCodec.writeString(out, configuration);
+      out.writeInt(dependencies.size());
+      for (File dependency: dependencies) {
+        FormCodec.writeString(out, dependency.getPath());
+        out.writeLong(dependency.length());
+        out.writeLong(dependency.lastModified());
+      }
+      writeDocs(out, extractor.getSubroutineDocs());
+      writeDocs(out, extractor.getVariableDocs());
+      out.writeInt(names.size());
+      for (int i = 0; i != names.size(); ++i) {
+        FormCodec.writeString(out, names.get(i));
+        out.writeInt(entries.get(i).length);
+        out.write(entries.get(i));
+      }
+    } finally {
+      out.close();
+    }
+    if (!(temp.renameTo(file) || (file.delete() && temp.renameTo(file))))
+      throw new IOException(JelispBundle.message("invalid.index.file", file.getPath()));
+    return names.size();
+  }
+
+  private static void writeDocs (DataOutputStream out, Map<String, String> docs) throws IOException {
+    out.writeInt(docs.size());
+    for (Map.Entry<String, String> entry: docs.entrySet()) {
+      FormCodec.writeString(out, entry.getKey());
+      FormCodec.writeString(out, entry.getValue());
+    }
+  }
+
+  @Nullable
+  private static byte[] encode (LispSymbol symbol) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    Map<LispObject, Integer> written = new IdentityHashMap<>();
+    try {
+      LispSymbol alias = symbol.next();
+      int flags = (symbol.isConstant() ? CONSTANT : 0) | (symbol.isBufferLocal() ? BUFFER_LOCAL : 0)
+          | (alias != null ? ALIAS : symbol.hasValue() ? VALUE : 0) | (symbol.isFunction() ? FUNCTION : 0);
+      out.writeByte(flags);
+      if (alias != null)
+        FormCodec.writeString(out, alias.getName());
+      else if (symbol.hasValue() && !FormCodec.encode(out, symbol.getValue(), written))
+        return null;
+      if (symbol.isFunction() && !FormCodec.encode(out, symbol.getFunction(), written))
+        return null;
+      List<LispObject> properties = symbol.getPropertyList().toLispObjectList();
+      out.writeInt(properties.size() / 2);
+      for (int i = 0; i + 1 < properties.size(); i += 2) {
+        FormCodec.writeString(out, ((LispSymbol) properties.get(i)).getName());
+        if (!FormCodec.encode(out, properties.get(i + 1), written))
+          return null;
+      }
+      out.flush();
+    } catch (IOException e) {
+      return null;
+    }
+    return bytes.toByteArray();
+  }
+}
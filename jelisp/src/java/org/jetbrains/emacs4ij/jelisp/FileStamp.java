@@ -0,0 +1,59 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * fingerprint of an indexed source file: size and modification time are checked first,
+ * the content checksum decides when they differ.
+ */
+final class FileStamp {
+  private final long mySize;
+  private final long myModified;
+  private final long myHash;
+
+  FileStamp (long size, long modified, long hash) {
+    mySize = size;
+    myModified = modified;
+    myHash = hash;
+  }
+
+  static FileStamp of (File file) throws IOException {
+    long size = file.length();
+    long modified = file.lastModified();
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[8192];
+    InputStream in = new FileInputStream(file);
+    try {
+      for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+        crc.update(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+    return new FileStamp(size, modified, crc.getValue());
+  }
+
+  long getSize() {
+    return mySize;
+  }
+
+  long getModified() {
+    return myModified;
+  }
+
+  long getHash() {
+    return myHash;
+  }
+
+  boolean isUnchanged (File file) {
+    return mySize == file.length() && myModified == file.lastModified();
+  }
+
+  boolean hasSameContent (FileStamp stamp) {
+    return mySize == stamp.mySize && myHash == stamp.myHash;
+  }
+}
@@ -0,0 +1,188 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.exception.ReadException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * parsed top-level definition forms of Emacs sources by file and offset, so that loading a definition
+ * which was once read needs no parsing. Forms are kept encoded, @see FormCodec, and decoded on every hit:
+ * evaluation is free to modify the tree it gets.
+ * All forms of a file are dropped when the file content changes, @see FileStamp
+ *
+ * File layout (big-endian): magic, version, number of files;
+ * per file: path, stamp (size, modification time, checksum), number of forms;
+ * per form: offset, definition name, encoded form length and bytes.
+ */
+public final class FormCache {
+  private static final int MAGIC = 0x45344643; //E4FC
+  private static final int VERSION = 2;
+
+  private static final Map<String, FileForms> ourFiles = new HashMap<>();
+  private static boolean isModified = false;
+
+  private FormCache() {}
+
+  private static final class FileForms {
+    private FileStamp myStamp;
+    private final Map<Long, Form> myForms = new HashMap<>();
+
+    private FileForms (FileStamp stamp) {
+      myStamp = stamp;
+    }
+  }
+
+  private static final class Form {
+    private final String myName;
+    private final byte[] myData;
+
+    private Form (String name, byte[] data) {
+      myName = name;
+      myData = data;
+    }
+  }
+
+  /**
+   * @return a fresh copy of the cached definition of given identifier at given offset or null
+   */
+  static synchronized LispList get (String path, long offset, Identifier id) {
+    FileForms forms = ourFiles.get(path);
+    if (forms == null || !isValid(path, forms))
+      return null;
+    Form form = forms.myForms.get(offset);
+    if (form == null || !form.myName.equals(id.getName()))
+      return null;
+    try {
+      return (LispList) FormCodec.decode(new DataInputStream(new ByteArrayInputStream(form.myData)));
+    } catch (IOException | ClassCastException e) {
+      forms.myForms.remove(offset);
+      return null;
+    }
+  }
+
+  static synchronized boolean contains (String path, long offset, Identifier id) {
+    FileForms forms = ourFiles.get(path);
+    Form form = forms == null ? null : forms.myForms.get(offset);
+    return form != null && form.myName.equals(id.getName());
+  }
+
+  static synchronized void put (String path, long offset, Identifier id, LispList definition) {
+    byte[] data = FormCodec.encode(definition);
+    if (data == null)
+      return;
+    FileForms forms = ourFiles.get(path);
+    if (forms == null) {
+      try {
+        forms = new FileForms(FileStamp.of(new File(path)));
+      } catch (IOException e) {
+        return;
+      }
+      ourFiles.put(path, forms);
+    }
+    forms.myForms.put(offset, new Form(id.getName(), data));
+    isModified = true;
+  }
+
+  private static boolean isValid (String path, FileForms forms) {
+    File file = new File(path);
+    if (forms.myStamp.isUnchanged(file))
+      return true;
+    isModified = true;
+    try {
+      FileStamp stamp = FileStamp.of(file);
+      if (stamp.hasSameContent(forms.myStamp)) {
+        forms.myStamp = stamp;
+        return true;
+      }
+    } catch (IOException ignored) {
+    }
+    ourFiles.remove(path);
+    return false;
+  }
+
+  public static synchronized boolean isModified() {
+    return isModified;
+  }
+
+  public static synchronized int size() {
+    int size = 0;
+    for (FileForms forms: ourFiles.values()) {
+      size += forms.myForms.size();
+    }
+    return size;
+  }
+
+  public static synchronized void clear() {
+    isModified = !ourFiles.isEmpty();
+    ourFiles.clear();
+  }
+
+  /**
+   * replaces the cache content with the one stored in given file
+   */
+  public static synchronized void load (File file) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        throw new ReadException(JelispBundle.message("invalid.index.file", file.getPath()));
+      Map<String, FileForms> files = new HashMap<>();
+      for (int fileCount = in.readInt(); fileCount > 0; --fileCount) {
+        String path = FormCodec.readString(in);
+        FileForms forms = new FileForms(new FileStamp(in.readLong(), in.readLong(), in.readLong()));
+        for (int formCount = in.readInt(); formCount > 0; --formCount) {
+          long offset = in.readLong();
+          String name = FormCodec.readString(in);
+          byte[] data = new byte[in.readInt()];
+          in.readFully(data);
+          forms.myForms.put(offset, new Form(name, data));
+        }
+        files.put(path, forms);
+      }
+      ourFiles.clear();
+      ourFiles.putAll(files);
+      isModified = false;
+    } finally {
+      in.close();
+    }
+  }
+
+  public static synchronized void save (File file) throws IOException {
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(ourFiles.size());
+      for (Map.Entry<String, FileForms> entry: ourFiles.entrySet()) {
+        FormCodec.writeString(out, entry.getKey());
+        FileStamp stamp = entry.getValue().myStamp;
+        out.writeLong(stamp.getSize());
+        out.writeLong(stamp.getModified());
+        out.writeLong(stamp.getHash());
+        out.writeInt(entry.getValue().myForms.size());
+        for (Map.Entry<Long, Form> form: entry.getValue().myForms.entrySet()) {
+          out.writeLong(form.getKey());
+          FormCodec.writeString(out, form.getValue().myName);
+          out.writeInt(form.getValue().myData.length);
+          out.write(form.getValue().myData);
+        }
+      }
+    } finally {
+      out.close();
+    }
+    if (!(temp.renameTo(file) || (file.delete() && temp.renameTo(file))))
+      throw new IOException(JelispBundle.message("invalid.index.file", file.getPath()));
+    isModified = false;
+  }
+}
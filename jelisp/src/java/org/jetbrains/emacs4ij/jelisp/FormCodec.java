@@ -0,0 +1,247 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.emacs4ij.jelisp.elisp.Lambda;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispFloat;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispInteger;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispMacro;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispVector;
+import org.jetbrains.emacs4ij.jelisp.elisp.Primitive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * compact binary form of lisp data: everything the reader produces plus lambdas and macros, which are written as
+ * their definitions, and built-in functions, which are written by name and resolved in the global environment.
+ * Symbols are written by name only.
+ * Conses, strings, vectors, lambdas and macros are numbered in the order they are written, an object met again
+ * is written as a reference to its number: so circular and shared structure is restored as it was.
+ * The numbering is kept per encoding, an object shared by two encodings is restored as two copies.
+ */
+final class FormCodec {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte SYMBOL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte FLOAT = 3;
+  private static final byte LIST = 4;
+  private static final byte EMPTY_LIST = 5;
+  private static final byte VECTOR = 6;
+  private static final byte END = 7;
+  private static final byte LAMBDA = 8;
+  private static final byte MACRO = 9;
+  private static final byte PRIMITIVE = 10;
+  private static final byte REFERENCE = 11;
+
+  private FormCodec() {}
+
+  /**
+   * @return encoded object or null if it contains an object which can't be encoded
+   */
+  static byte[] encode (LispObject object) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      if (!encode(out, object, new IdentityHashMap<LispObject, Integer>()))
+        return null;
+      out.flush();
+    } catch (IOException e) {
+      return null;
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param written numbers of the objects written so far, shared by the encodings which are decoded together,
+   * @see #decode(DataInput, List)
+   * @return false if the object contains an object which can't be encoded, the output is incomplete then
+   */
+  static boolean encode (DataOutput out, LispObject object, Map<LispObject, Integer> written) throws IOException {
+    Integer number = written.get(object);
+    if (number != null) {
+      //a lambda or macro referenced from its own definition can't be restored
+      if (number < 0)
+        return false;
+      out.writeByte(REFERENCE);
+      out.writeInt(number);
+      return true;
+    }
+    if (object instanceof LispSymbol) {
+      out.writeByte(SYMBOL);
+      writeString(out, ((LispSymbol) object).getName());
+    } else if (object instanceof LispString) {
+      written.put(object, written.size());
+      out.writeByte(STRING);
+      writeString(out, ((LispString) object).getData());
+    } else if (object instanceof LispInteger) {
+      out.writeByte(INTEGER);
+      out.writeInt(((LispInteger) object).getData());
+    } else if (object instanceof LispFloat) {
+      out.writeByte(FLOAT);
+      out.writeDouble(((LispFloat) object).getData());
+    } else if (object instanceof LispList) {
+      return encodeList(out, (LispList) object, written);
+    } else if (object instanceof LispVector) {
+      written.put(object, written.size());
+      List<LispObject> items = ((LispVector) object).toLispObjectList();
+      out.writeByte(VECTOR);
+      out.writeInt(items.size());
+      for (LispObject item: items) {
+        if (!encode(out, item, written))
+          return false;
+      }
+    } else if (object instanceof Lambda || object instanceof LispMacro) {
+      //the function is created after its definition is decoded, so it is marked as not written till then
+      number = written.size();
+      written.put(object, -1);
+      out.writeByte(object instanceof Lambda ? LAMBDA : MACRO);
+      LispList definition = object instanceof Lambda ? ((Lambda) object).getDefinition() : ((LispMacro) object).getDefinition();
+      if (!encode(out, definition, written))
+        return false;
+      written.put(object, number);
+    } else if (object instanceof Primitive) {
+      out.writeByte(PRIMITIVE);
+      writeString(out, ((Primitive) object).getName());
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * a list is written as the number of its cells not written yet, their cars and then the rest:
+   * END for a true list, a reference for a list which cdr was written already or the dotted tail
+   */
+  private static boolean encodeList (DataOutput out, LispList list, Map<LispObject, Integer> written) throws IOException {
+    if (list.isEmpty()) {
+      out.writeByte(EMPTY_LIST);
+      return true;
+    }
+    List<LispObject> items = new ArrayList<>();
+    LispObject tail = list;
+    while (tail instanceof LispList && !((LispList) tail).isEmpty() && !written.containsKey(tail)) {
+      written.put(tail, written.size());
+      items.add(((LispList) tail).car());
+      tail = ((LispList) tail).cdr();
+    }
+    out.writeByte(LIST);
+    out.writeInt(items.size());
+    for (LispObject item: items) {
+      if (!encode(out, item, written))
+        return false;
+    }
+    if (tail.equals(LispSymbol.NIL) || tail instanceof LispList && ((LispList) tail).isEmpty()) {
+      out.writeByte(END);
+      return true;
+    }
+    return encode(out, tail, written);
+  }
+
+  static LispObject decode (DataInput in) throws IOException {
+    return decode(in, new ArrayList<LispObject>());
+  }
+
+  /**
+   * @param read the numbered objects read so far, @see #encode(DataOutput, LispObject, Map)
+   */
+  static LispObject decode (DataInput in, List<LispObject> read) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case SYMBOL:
+        return new LispSymbol(readString(in));
+      case STRING:
+        LispString string = new LispString(readString(in));
+        read.add(string);
+        return string;
+      case INTEGER:
+        return LispInteger.valueOf(in.readInt());
+      case FLOAT:
+        return new LispFloat(in.readDouble());
+      case EMPTY_LIST:
+        return LispList.list();
+      case LIST:
+        //the cells are created first for the cars could refer to them
+        int n = in.readInt();
+        if (n <= 0)
+          throw new IOException("Invalid list length " + n);
+        List<LispList> cells = new ArrayList<>(n);
+        for (int i = 0; i != n; ++i) {
+          LispList cell = LispList.cons(LispSymbol.NIL, null);
+          cells.add(cell);
+          read.add(cell);
+        }
+        for (LispList cell: cells) {
+          cell.setCar(decode(in, read));
+        }
+        //linked from the end for every cell to know if it starts a true list
+        LispObject tail = decode(in, read);
+        for (int i = n - 1; i >= 0; --i) {
+          cells.get(i).setCdr(tail);
+          tail = cells.get(i);
+        }
+        return tail;
+      case VECTOR:
+        LispVector vector = new LispVector();
+        read.add(vector);
+        for (int i = in.readInt(); i > 0; --i) {
+          vector.add(decode(in, read));
+        }
+        return vector;
+      case END:
+        return null;
+      case LAMBDA:
+      case MACRO:
+        int slot = read.size();
+        read.add(null);
+        LispList definition = decodeList(in, read);
+        LispObject function = tag == LAMBDA ? new Lambda(definition) : new LispMacro(definition);
+        read.set(slot, function);
+        return function;
+      case PRIMITIVE:
+        String name = readString(in);
+        LispSymbol symbol = GlobalEnvironment.INSTANCE == null ? null : GlobalEnvironment.INSTANCE.find(name);
+        if (symbol == null || !(symbol.getFunction() instanceof Primitive))
+          throw new IOException("Unknown built-in function " + name);
+        return symbol.getFunction();
+      case REFERENCE:
+        int number = in.readInt();
+        if (number < 0 || number >= read.size() || read.get(number) == null)
+          throw new IOException("Invalid reference " + number);
+        return read.get(number);
+      default:
+        throw new IOException("Unknown form tag " + tag);
+    }
+  }
+
+  private static LispList decodeList (DataInput in, List<LispObject> read) throws IOException {
+    LispObject list = decode(in, read);
+    if (!(list instanceof LispList))
+      throw new IOException("List expected: " + list);
+    return (LispList) list;
+  }
+
+  static void writeString (DataOutput out, String s) throws IOException {
+    byte[] bytes = s.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString (DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
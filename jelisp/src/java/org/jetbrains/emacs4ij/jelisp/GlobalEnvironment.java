@@ -13,6 +13,7 @@ import org.jetbrains.emacs4ij.jelisp.elisp.LispSubroutine;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispVector;
 import org.jetbrains.emacs4ij.jelisp.elisp.Primitive;
+import org.jetbrains.emacs4ij.jelisp.elisp.SubroutineDescriptor;
 import org.jetbrains.emacs4ij.jelisp.exception.EnvironmentException;
 import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
 import org.jetbrains.emacs4ij.jelisp.platformDependent.Ide;
@@ -25,11 +26,10 @@ import org.jetbrains.emacs4ij.jelisp.subroutine.Core;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Key;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Match;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Predicate;
-import org.jetbrains.emacs4ij.jelisp.subroutine.Subroutine;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.lang.reflect.Method;
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -48,10 +48,12 @@ public class GlobalEnvironment extends Environment {
   private static String ourEmacsSource = "";
   private static boolean isEmacsSourceOk = false;
   private static boolean isEmacsHomeOk = false;
+  private static File ourSnapshotFile = null;
   private final Ide myIde;
   private DocumentationExtractor myDocumentationExtractor;
   private List<String> myBufferLocals = new ArrayList<>();
   private boolean isLoading = false;
+  private EnvironmentSnapshot mySnapshot = null;
 
   //for debug & extract definition on the fly
   public static Deque<Pair<String, Object>> ourCallStack = new ArrayDeque<>();
@@ -79,6 +81,14 @@ public class GlobalEnvironment extends Environment {
     isEmacsSourceOk = false;
   }
 
+  /**
+   * @param file where the environment is saved after initialization from sources and restored from on next start,
+   *             @see EnvironmentSnapshot
+   */
+  public static void setSnapshotFile(@Nullable File file) {
+    ourSnapshotFile = file;
+  }
+
   public enum PropertyType {HOME, SOURCE}
 
   public static boolean isEmacsPropertyOk (PropertyType type) {
@@ -139,6 +149,7 @@ public class GlobalEnvironment extends Environment {
     ourBufferManager = new BufferManager(bufferFactory);
     ourWindowManager = new WindowManager(windowFactory);
     ourFrameManager = frameManager;
+    LispSubroutine.initialize();
     INSTANCE = new GlobalEnvironment(ide);
 
     if (initMinibuffer != null) {
@@ -164,21 +175,119 @@ public class GlobalEnvironment extends Environment {
     defineUserOptions();
     setSubroutines();
 
-    if (TestMode.INIT_GLOBAL_ENV_FROM_EMACS_SOURCES) {
-      //note: it's important to load backquote before defsubst
-      DefinitionLoader.loadEmacsFile(myFilesToLoad.get(0));
-      defineDefForms();
-      if (TestMode.LOAD_FILES) {
-        LogUtil.info(LOG, "start load files");
-        for (int i = 1; i < myFilesToLoad.size(); ++i) {
-          DefinitionLoader.loadEmacsFile(myFilesToLoad.get(i));
+    if (mySnapshot != null) {
+      restoreSnapshot();
+    } else {
+      if (TestMode.INIT_GLOBAL_ENV_FROM_EMACS_SOURCES) {
+        //note: it's important to load backquote before defsubst
+        DefinitionLoader.loadEmacsFile(myFilesToLoad.get(0));
+        defineDefForms();
+        if (TestMode.LOAD_FILES) {
+          LogUtil.info(LOG, "start load files");
+          for (int i = 1; i < myFilesToLoad.size(); ++i) {
+            DefinitionLoader.loadEmacsFile(myFilesToLoad.get(i));
+          }
+          LogUtil.info(LOG, "finish load files");
         }
-        LogUtil.info(LOG, "finish load files");
       }
+      saveSnapshot();
     }
     isLoading = false;
   }
 
+  private static String getSnapshotConfiguration() {
+    return ourEmacsSource + '\n' + ourEmacsHome + '\n' + TestMode.EXTRACT_DOC + ' ' + TestMode.LOAD_FILES + ' '
+        + TestMode.INIT_GLOBAL_ENV_FROM_EMACS_SOURCES;
+  }
+
+  @Nullable
+  private static EnvironmentSnapshot openSnapshot() {
+    if (ourSnapshotFile == null || !ourSnapshotFile.isFile())
+      return null;
+    try {
+      return EnvironmentSnapshot.open(ourSnapshotFile, getSnapshotConfiguration());
+    } catch (IOException e) {
+      LogUtil.log("failed to open environment snapshot", e);
+      return null;
+    }
+  }
+
+  private void saveSnapshot() {
+    if (ourSnapshotFile == null)
+      return;
+    List<File> dependencies = new ArrayList<>();
+    if (TestMode.EXTRACT_DOC)
+      dependencies.addAll(myDocumentationExtractor.getSourceFiles());
+    if (TestMode.INIT_GLOBAL_ENV_FROM_EMACS_SOURCES) {
+      for (String file: myFilesToLoad) {
+        dependencies.add(new File(ourEmacsSource + "/lisp/" + file));
+      }
+      for (String file: DefinitionLoader.getUploadedFiles()) {
+        dependencies.add(new File(file));
+      }
+    }
+    try {
+      int n = EnvironmentSnapshot.write(ourSnapshotFile, getSnapshotConfiguration(), dependencies,
+          myDocumentationExtractor, mySymbols.values());
+      LogUtil.info(LOG, "environment snapshot saved, symbols: " + n);
+    } catch (IOException | RuntimeException | StackOverflowError e) {
+      //the environment is loaded already, it is just loaded the same way next time
+      LogUtil.log("failed to save environment snapshot", e);
+    }
+  }
+
+  /**
+   * symbols which exist before loading and buffer-local ones are restored at once, other ones on first lookup
+   */
+  private void restoreSnapshot() {
+    for (String name: mySnapshot.getNames()) {
+      LispSymbol symbol = mySymbols.get(name);
+      if (symbol != null) {
+        mySnapshot.restore(name, symbol);
+      } else if (mySnapshot.isBufferLocal(name)) {
+        restoreSymbol(name);
+      }
+    }
+  }
+
+  @Nullable
+  private LispSymbol restoreSymbol (String name) {
+    LispSymbol symbol = mySnapshot.restore(name, null);
+    if (symbol == null)
+      return null;
+    if (symbol.isBufferLocal() && !myBufferLocals.contains(name))
+      myBufferLocals.add(name);
+    putSymbol(symbol);
+    return symbol;
+  }
+
+  private void restoreAll() {
+    if (mySnapshot == null)
+      return;
+    for (String name: mySnapshot.getNames()) {
+      find(name);
+    }
+  }
+
+  @Override
+  public LispSymbol find (String name) {
+    LispSymbol symbol = mySymbols.get(name);
+    if (symbol == null && mySnapshot != null && mySnapshot.contains(name))
+      return restoreSymbol(name);
+    return symbol;
+  }
+
+  @Override
+  public boolean containsSymbol (String name) {
+    return find(name) != null;
+  }
+
+  @Override
+  public void setVariable (LispSymbol symbol) {
+    find(symbol.getName());
+    super.setVariable(symbol);
+  }
+
   private GlobalEnvironment (Ide ide) {
     myIde = ide;
     if (!testProperty(PropertyType.SOURCE)) {
@@ -186,7 +295,11 @@ public class GlobalEnvironment extends Environment {
       throw new EnvironmentException(JelispBundle.message("invalid.emacs.dir", "source"));
     }
     myDocumentationExtractor = new DocumentationExtractor(ourEmacsSource + "/src");
-    myDocumentationExtractor.scanAll();
+    mySnapshot = openSnapshot();
+    if (mySnapshot != null)
+      mySnapshot.restoreDocumentation(myDocumentationExtractor);
+    else
+      myDocumentationExtractor.scanAll();
     if (!testProperty(PropertyType.HOME)) {
       mySymbols.clear();
       throw new EnvironmentException(JelispBundle.message("invalid.emacs.dir", "home"));
@@ -291,7 +404,7 @@ public class GlobalEnvironment extends Environment {
     defineSymbol("prefix-arg");
     defineSymbol("last-prefix-arg");
     defineSymbol("minibuffer-completing-file-name");
-    defineSymbol("minibuffer-message-timeout", new LispInteger(2));
+    defineSymbol("minibuffer-message-timeout", LispInteger.valueOf(2));
     defineSymbol("noninteractive");
     defineSymbol("parse-sexp-ignore-comments");
     defineSymbol("read-buffer-completion-ignore-case");
@@ -303,7 +416,7 @@ public class GlobalEnvironment extends Environment {
     defineSymbol("minibuffer-history-position");
     defineSymbol("timer-idle-list");
     defineSymbol("temp-buffer-show-function");
-    defineSymbol("help-char", new LispInteger(8)); //ctrl-h
+    defineSymbol("help-char", LispInteger.valueOf(8)); //ctrl-h
     defineSymbol("help-form");
     defineSymbol("prefix-help-command");
     defineSymbol("features", LispList.list());
@@ -341,38 +454,56 @@ public class GlobalEnvironment extends Environment {
   }
 
   public LispVector getObjectArray() {
+    restoreAll();
     return new LispVector(mySymbols.values());
   }
 
-  private void setSubroutinesFromClass (Class[] subroutineContainers, Primitive.Type type) {
+  /**
+   * @return the global symbol with given name, a new unbound one is defined if there is none
+   */
+  public LispSymbol intern (String name) {
+    LispSymbol symbol = find(name);
+    if (symbol == null) {
+      symbol = new LispSymbol(name);
+      defineSymbol(symbol);
+    }
+    return symbol;
+  }
+
+  @Nullable
+  public LispSymbol internSoft (String name) {
+    return find(name);
+  }
+
+  public List<LispSymbol> getSymbols() {
+    restoreAll();
+    return new ArrayList<>(mySymbols.values());
+  }
+
+  private void setSubroutines (Primitive.Type type) {
     LispKeymap activeKeymap = getActiveKeymap();
-    for (Class subroutineContainer: subroutineContainers) {
-      Method[] methods = subroutineContainer.getMethods();
-      for (Method m: methods) {
-        Subroutine annotation = m.getAnnotation(Subroutine.class);
-        if (annotation == null)
-          continue;
-        String name = annotation.value();
-        LispSymbol symbol;
-        if (mySymbols.containsKey(name)) {
-          symbol = mySymbols.get(name);
-          if (symbol.isFunction())
-            throw new InternalException("Duplicate built-in: " + name + '!');
-        } else {
-          symbol = new LispSymbol(name);
-          mySymbols.put(name, symbol);
-        }
-        symbol.setFunction(new Primitive(annotation, myDocumentationExtractor.getSubroutineDoc(name), type));
-        if (activeKeymap != null && !StringUtil.isEmptyOrSpaces(annotation.key())) {
-          activeKeymap.defineKey(symbol, new LispString(annotation.key()));
-        }
+    for (SubroutineDescriptor descriptor: LispSubroutine.getDescriptors(type)) {
+      String name = descriptor.getName();
+      LispSymbol symbol;
+      if (mySymbols.containsKey(name)) {
+        symbol = mySymbols.get(name);
+        if (symbol.isFunction())
+          throw new InternalException("Duplicate built-in: " + name + '!');
+      } else {
+        symbol = new LispSymbol(name);
+        mySymbols.put(name, symbol);
+      }
+      symbol.setFunction(new Primitive(descriptor, myDocumentationExtractor.getSubroutineDoc(name)));
+      String key = descriptor.getAnnotation().key();
+      if (activeKeymap != null && !StringUtil.isEmptyOrSpaces(key)) {
+        activeKeymap.defineKey(symbol, new LispString(key));
       }
     }
   }
 
   private void setSubroutines () {
-    setSubroutinesFromClass(LispSubroutine.getBuiltinsClasses(), Primitive.Type.BUILTIN);
-    setSubroutinesFromClass(LispSubroutine.getSpecialFormsClasses(), Primitive.Type.SPECIAL_FORM);
+    setSubroutines(Primitive.Type.BUILTIN);
+    setSubroutines(Primitive.Type.SPECIAL_FORM);
   }
 
   private void setConstants() {
@@ -437,6 +568,7 @@ public class GlobalEnvironment extends Environment {
   }
 
   public List<String> getCommandList (String begin) {
+    restoreAll();
     //todo: add data retrieved after source index
     Iterator<Map.Entry<String, LispSymbol>> iterator = mySymbols.entrySet().iterator();
     List<String> commandList = new ArrayList<>();
@@ -453,6 +585,7 @@ public class GlobalEnvironment extends Environment {
   }
 
   public List<String> getFunctionList (String begin) {
+    restoreAll();
     //todo: add data retrieved after source index
     Iterator<Map.Entry<String, LispSymbol>> iterator = mySymbols.entrySet().iterator();
     List<String> functionList = new ArrayList<>();
@@ -469,6 +602,7 @@ public class GlobalEnvironment extends Environment {
   }
 
   public List<String> getUserOptions (String begin) {
+    restoreAll();
     //todo extract user options from lisp code
     Iterator<Map.Entry<String, LispSymbol>> iterator = mySymbols.entrySet().iterator();
     List<String> userOptions = new ArrayList<>();
@@ -0,0 +1,77 @@
+package org.jetbrains.emacs4ij.jelisp.compiler;
+
+/**
+ * compiled function body: a stream of stack machine instructions with inline operands
+ * and the constants vector the operands refer to, like the byte-code objects of .elc files
+ */
+public final class ByteCode {
+  /** push constants[k] */
+  static final int CONSTANT = 0;
+  /** push the value of constants[k] evaluated by the tree-walker: forms we don't compile */
+  static final int EVALUATE = 1;
+  /** push what (quote constants[k]) returns for a symbol */
+  static final int SYMBOL = 2;
+  /** set the variable named constants[k] to the value on top, leaving the value on the stack */
+  static final int SET_VARIABLE = 3;
+  static final int DISCARD = 4;
+  static final int GOTO = 5;
+  /** pop and jump if nil */
+  static final int GOTO_IF_NIL = 6;
+  /** jump keeping the top if nil, otherwise pop */
+  static final int GOTO_IF_NIL_ELSE_POP = 7;
+  /** jump keeping the top if not nil, otherwise pop */
+  static final int GOTO_IF_NOT_NIL_ELSE_POP = 8;
+  /** push the function named constants[k] if it is a built-in or custom function, otherwise jump to the given address */
+  static final int FUNCTION = 9;
+  /** call the function below n arguments on top and replace them all with the result */
+  static final int CALL = 10;
+  /** save the current environment and the binding stack depth on the stack and enter a new environment */
+  static final int ENTER = 11;
+  /** pop values for the locals of all the slots in constants[k] and bind them, see {@link org.jetbrains.emacs4ij.jelisp.BindingStack} */
+  static final int BIND_ALL = 12;
+  /** pop the value for the local of slot k and bind it */
+  static final int BIND = 13;
+  /** unwind the bindings and restore the environment saved below the top */
+  static final int LEAVE = 14;
+  /** push the value of the variable constants[k] */
+  static final int VARIABLE = 15;
+  /** push the value of the local of slot k */
+  static final int LOCAL = 16;
+  /** set the local of slot k to the value on top, leaving the value on the stack */
+  static final int SET_LOCAL = 17;
+
+  private final int[] myInstructions;
+  private final Object[] myConstants;
+  private final int myMaxDepth;
+  private final String[] myLocals;
+
+  ByteCode (int[] instructions, Object[] constants, int maxDepth, String[] locals) {
+    myInstructions = instructions;
+    myConstants = constants;
+    myMaxDepth = maxDepth;
+    myLocals = locals;
+  }
+
+  int[] getInstructions() {
+    return myInstructions;
+  }
+
+  Object[] getConstants() {
+    return myConstants;
+  }
+
+  int getMaxDepth() {
+    return myMaxDepth;
+  }
+
+  /**
+   * @return the names of the locals by slot: the function arguments first, then the let variables
+   */
+  String[] getLocals() {
+    return myLocals;
+  }
+
+  public int getLength() {
+    return myInstructions.length;
+  }
+}
@@ -0,0 +1,359 @@
+package org.jetbrains.emacs4ij.jelisp.compiler;
+
+import org.jetbrains.emacs4ij.jelisp.GlobalEnvironment;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.elisp.Primitive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * compiles function bodies to {@link ByteCode}.
+ * Function calls, variables and the control special forms (if, cond, and, or, while, progn, setq, let, let*, quote)
+ * become instructions; macros and all other special forms are left to the tree-walker.
+ * Calls check the callee at runtime and fall back to the tree-walker if it is not a plain function anymore,
+ * since function definitions may change after compilation.
+ *
+ * References to the function arguments and to the let variables of the body are resolved to the slots of a frame,
+ * so they are read and set without looking the variable up by name, @see VirtualMachine
+ * Each local has a slot of its own: a frame slot always refers to the same name.
+ */
+public final class Compiler {
+  private int[] myCode = new int[32];
+  private int myLength = 0;
+  private final List<Object> myConstants = new ArrayList<>();
+  private int myDepth = 0;
+  private int myMaxDepth = 0;
+  private final List<String> myLocals = new ArrayList<>();
+  /** slots of the locals visible at the current point, the innermost last */
+  private final List<Integer> myScope = new ArrayList<>();
+
+  private Compiler() {}
+
+  public static ByteCode compile (List<LispObject> body) {
+    return compile(new ArrayList<String>(), body);
+  }
+
+  /**
+   * @param arguments the names of the variables the function binds to its arguments
+   */
+  public static ByteCode compile (List<String> arguments, List<LispObject> body) {
+    Compiler compiler = new Compiler();
+    for (String argument: arguments)
+      compiler.declareLocal(argument);
+    compiler.compileBody(body);
+    return new ByteCode(Arrays.copyOf(compiler.myCode, compiler.myLength), compiler.myConstants.toArray(),
+        compiler.myMaxDepth, compiler.myLocals.toArray(new String[compiler.myLocals.size()]));
+  }
+
+  private void emit (int value) {
+    if (myLength == myCode.length)
+      myCode = Arrays.copyOf(myCode, myLength * 2);
+    myCode[myLength++] = value;
+  }
+
+  private void emit (int opcode, int operand, int stackChange) {
+    emit(opcode);
+    emit(operand);
+    changeDepth(stackChange);
+  }
+
+  private void changeDepth (int delta) {
+    myDepth += delta;
+    myMaxDepth = Math.max(myDepth, myMaxDepth);
+  }
+
+  private int constant (Object object) {
+    myConstants.add(object);
+    return myConstants.size() - 1;
+  }
+
+  /**
+   * @return the position of the jump address to patch with {@link #setLabel}
+   */
+  private int emitJump (int opcode, int stackChange) {
+    emit(opcode);
+    return emitJump(stackChange);
+  }
+
+  private int emitJump (int stackChange) {
+    emit(-1);
+    changeDepth(stackChange);
+    return myLength - 1;
+  }
+
+  private void setLabel (int jump) {
+    myCode[jump] = myLength;
+  }
+
+  private void setLabels (List<Integer> jumps) {
+    for (int jump: jumps)
+      setLabel(jump);
+  }
+
+  private int declareLocal (String name) {
+    myLocals.add(name);
+    myScope.add(myLocals.size() - 1);
+    return myLocals.size() - 1;
+  }
+
+  /**
+   * @return the slot of the innermost local of given name or -1 if the variable is free
+   */
+  private int resolveLocal (String name) {
+    for (int i = myScope.size() - 1; i >= 0; --i) {
+      if (myLocals.get(myScope.get(i)).equals(name))
+        return myScope.get(i);
+    }
+    return -1;
+  }
+
+  private void compileConstant (LispObject object) {
+    emit(ByteCode.CONSTANT, constant(object), 1);
+  }
+
+  private void compileBody (List<LispObject> body) {
+    if (body.isEmpty()) {
+      compileConstant(LispSymbol.NIL);
+      return;
+    }
+    for (int i = 0; i != body.size(); ++i) {
+      if (i != 0)
+        emit(ByteCode.DISCARD, 0, -1);
+      compileForm(body.get(i));
+    }
+  }
+
+  private void compileForm (LispObject form) {
+    if (form instanceof LispSymbol && !((LispSymbol) form).getName().equals("obarray")) {
+      if (form.equals(LispSymbol.NIL) || form.equals(LispSymbol.T))
+        compileConstant(form);
+      else if (resolveLocal(((LispSymbol) form).getName()) != -1)
+        emit(ByteCode.LOCAL, resolveLocal(((LispSymbol) form).getName()), 1);
+      else
+        emit(ByteCode.VARIABLE, constant(form), 1);
+      return;
+    }
+    if (form instanceof LispList && !((LispList) form).isEmpty() && ((LispList) form).car() instanceof LispSymbol) {
+      LispList list = (LispList) form;
+      List<LispObject> args = list.cdr() instanceof LispList
+          ? ((LispList) list.cdr()).toLispObjectList()
+          : new ArrayList<LispObject>();
+      if (compileCall((LispSymbol) list.car(), args, form))
+        return;
+    }
+    emit(ByteCode.EVALUATE, constant(form), 1);
+  }
+
+  private boolean compileCall (LispSymbol function, List<LispObject> args, LispObject form) {
+    LispSymbol definition = GlobalEnvironment.INSTANCE.find(function.getName());
+    if (definition != null && definition.isMacro())
+      return false;
+    if (definition != null && definition.getFunction() instanceof Primitive
+        && ((Primitive) definition.getFunction()).getType() == Primitive.Type.SPECIAL_FORM)
+      return compileSpecialForm(function.getName(), args);
+
+    emit(ByteCode.FUNCTION);
+    emit(constant(function.getName()));
+    int fallback = emitJump(1);
+    for (LispObject arg: args)
+      compileForm(arg);
+    emit(ByteCode.CALL, args.size(), -args.size());
+    int end = emitJump(ByteCode.GOTO, -1);
+    setLabel(fallback);
+    emit(ByteCode.EVALUATE, constant(form), 1);
+    setLabel(end);
+    return true;
+  }
+
+  private boolean compileSpecialForm (String name, List<LispObject> args) {
+    switch (name) {
+      case "quote":
+      case "function":
+        if (args.size() != 1)
+          return false;
+        if (args.get(0) instanceof LispSymbol)
+          emit(ByteCode.SYMBOL, constant(args.get(0)), 1);
+        else
+          compileConstant(args.get(0));
+        return true;
+      case "progn":
+        compileBody(args);
+        return true;
+      case "if":
+        return compileIf(args);
+      case "and":
+        compileAndOr(args, ByteCode.GOTO_IF_NIL_ELSE_POP, LispSymbol.T);
+        return true;
+      case "or":
+        if (args.isEmpty()) {
+          compileConstant(LispSymbol.NIL);
+          return true;
+        }
+        compileAndOr(args, ByteCode.GOTO_IF_NOT_NIL_ELSE_POP, null);
+        return true;
+      case "cond":
+        return compileCond(args);
+      case "while":
+        return compileWhile(args);
+      case "setq":
+        return compileSetq(args);
+      case "let":
+        return compileLet(false, args);
+      case "let*":
+        return compileLet(true, args);
+      default:
+        return false;
+    }
+  }
+
+  private boolean compileIf (List<LispObject> args) {
+    if (args.size() < 2)
+      return false;
+    compileForm(args.get(0));
+    int elseBranch = emitJump(ByteCode.GOTO_IF_NIL, -1);
+    compileForm(args.get(1));
+    int end = emitJump(ByteCode.GOTO, -1);
+    setLabel(elseBranch);
+    compileBody(args.subList(2, args.size()));
+    setLabel(end);
+    return true;
+  }
+
+  /**
+   * @param last the value of the form when all conditions pass the jump test, or null to use the last condition value
+   */
+  private void compileAndOr (List<LispObject> conditions, int jumpOpcode, LispSymbol last) {
+    if (conditions.isEmpty()) {
+      compileConstant(last);
+      return;
+    }
+    List<Integer> jumps = new ArrayList<>();
+    for (int i = 0; i != conditions.size(); ++i) {
+      compileForm(conditions.get(i));
+      if (i != conditions.size() - 1)
+        jumps.add(emitJump(jumpOpcode, -1));
+    }
+    if (last == null) {
+      //(or ... nil-valued-form) returns the symbol nil, not the value
+      jumps.add(emitJump(jumpOpcode, -1));
+      compileConstant(LispSymbol.NIL);
+    }
+    setLabels(jumps);
+  }
+
+  private boolean compileCond (List<LispObject> clauses) {
+    for (LispObject clause: clauses) {
+      if (!(clause instanceof LispList) && !clause.equals(LispSymbol.NIL))
+        return false;
+    }
+    List<Integer> ends = new ArrayList<>();
+    for (LispObject clause: clauses) {
+      if (!(clause instanceof LispList) || ((LispList) clause).isEmpty())
+        continue;
+      compileForm(((LispList) clause).car());
+      LispObject cdr = ((LispList) clause).cdr();
+      List<LispObject> body = cdr instanceof LispList ? ((LispList) cdr).toLispObjectList() : new ArrayList<LispObject>();
+      if (body.isEmpty()) {
+        ends.add(emitJump(ByteCode.GOTO_IF_NOT_NIL_ELSE_POP, -1));
+        continue;
+      }
+      int next = emitJump(ByteCode.GOTO_IF_NIL, -1);
+      compileBody(body);
+      ends.add(emitJump(ByteCode.GOTO, -1));
+      setLabel(next);
+    }
+    compileConstant(LispSymbol.NIL);
+    setLabels(ends);
+    return true;
+  }
+
+  private boolean compileWhile (List<LispObject> args) {
+    if (args.isEmpty())
+      return false;
+    int start = myLength;
+    compileForm(args.get(0));
+    int end = emitJump(ByteCode.GOTO_IF_NIL_ELSE_POP, -1);
+    for (LispObject bodyForm: args.subList(1, args.size())) {
+      compileForm(bodyForm);
+      emit(ByteCode.DISCARD, 0, -1);
+    }
+    emit(ByteCode.GOTO, start, 0);
+    setLabel(end);
+    changeDepth(1);
+    return true;
+  }
+
+  private boolean compileSetq (List<LispObject> args) {
+    for (int i = 0; i < args.size(); i += 2) {
+      if (!(args.get(i) instanceof LispSymbol))
+        return false;
+    }
+    if (args.isEmpty()) {
+      compileConstant(LispSymbol.NIL);
+      return true;
+    }
+    for (int i = 0; i < args.size(); i += 2) {
+      if (i != 0)
+        emit(ByteCode.DISCARD, 0, -1);
+      if (i + 1 == args.size())
+        compileConstant(LispSymbol.NIL);
+      else
+        compileForm(args.get(i + 1));
+      String name = ((LispSymbol) args.get(i)).getName();
+      if (resolveLocal(name) != -1)
+        emit(ByteCode.SET_LOCAL, resolveLocal(name), 0);
+      else
+        emit(ByteCode.SET_VARIABLE, constant(name), 0);
+    }
+    return true;
+  }
+
+  private boolean compileLet (boolean isStar, List<LispObject> args) {
+    if (args.isEmpty() || !(args.get(0) instanceof LispList || args.get(0).equals(LispSymbol.NIL)))
+      return false;
+    List<LispObject> vars = args.get(0) instanceof LispList
+        ? ((LispList) args.get(0)).toLispObjectList()
+        : new ArrayList<LispObject>();
+    String[] names = new String[vars.size()];
+    LispObject[] valueForms = new LispObject[vars.size()];
+    for (int i = 0; i != names.length; ++i) {
+      LispObject var = vars.get(i);
+      if (var instanceof LispSymbol) {
+        names[i] = ((LispSymbol) var).getName();
+        valueForms[i] = null;
+      } else if (var instanceof LispList && ((LispList) var).car() instanceof LispSymbol) {
+        names[i] = ((LispSymbol) ((LispList) var).car()).getName();
+        LispObject valueForm = ((LispList) var).cdr();
+        valueForms[i] = valueForm instanceof LispList ? ((LispList) valueForm).car() : valueForm;
+      } else {
+        return false;
+      }
+    }
+
+    int scope = myScope.size();
+    emit(ByteCode.ENTER, 0, 2);
+    for (int i = 0; i != names.length; ++i) {
+      if (valueForms[i] == null)
+        compileConstant(LispSymbol.NIL);
+      else
+        compileForm(valueForms[i]);
+      if (isStar)
+        emit(ByteCode.BIND, declareLocal(names[i]), -1);
+    }
+    if (!isStar) {
+      //the values are computed before any of the variables is bound
+      int[] slots = new int[names.length];
+      for (int i = 0; i != names.length; ++i)
+        slots[i] = declareLocal(names[i]);
+      emit(ByteCode.BIND_ALL, constant(slots), -names.length);
+    }
+    compileBody(args.subList(1, args.size()));
+    emit(ByteCode.LEAVE, 0, -2);
+    myScope.subList(scope, myScope.size()).clear();
+    return true;
+  }
+}
@@ -0,0 +1,154 @@
+package org.jetbrains.emacs4ij.jelisp.compiler;
+
+import org.jetbrains.emacs4ij.jelisp.BindingStack;
+import org.jetbrains.emacs4ij.jelisp.CustomEnvironment;
+import org.jetbrains.emacs4ij.jelisp.Environment;
+import org.jetbrains.emacs4ij.jelisp.GlobalEnvironment;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
+import org.jetbrains.emacs4ij.jelisp.exception.VoidFunctionException;
+
+import java.util.ArrayList;
+
+/**
+ * executes {@link ByteCode} with an operand stack of the depth computed by the compiler.
+ * Everything not compiled to instructions is evaluated by the tree-walker in the current environment,
+ * as well as variables which are void, constant or not loaded from Emacs sources yet.
+ *
+ * The frame keeps the value cells of the locals, @see Compiler
+ * A let variable gets the cell it is bound in, an argument the cell it is found in on its first use.
+ * The cells are those of the {@link BindingStack}, so a local read costs no lookup at any depth of calls,
+ * and it sees whatever the called functions set. Buffer-local cells are looked up by name on every access,
+ * as the current buffer may change.
+ */
+public final class VirtualMachine {
+  private VirtualMachine() {}
+
+  public static LispObject execute (ByteCode byteCode, Environment environment) {
+    int[] code = byteCode.getInstructions();
+    Object[] constants = byteCode.getConstants();
+    Object[] stack = new Object[byteCode.getMaxDepth()];
+    String[] locals = byteCode.getLocals();
+    LispSymbol[] frame = new LispSymbol[locals.length];
+    int top = -1;
+    int pc = 0;
+    int depth = BindingStack.depth();
+    try {
+      while (pc != code.length) {
+        int opcode = code[pc];
+        int operand = code[pc + 1];
+        pc += 2;
+        switch (opcode) {
+          case ByteCode.CONSTANT:
+            stack[++top] = constants[operand];
+            break;
+          case ByteCode.EVALUATE:
+            stack[++top] = ((LispObject) constants[operand]).evaluate(environment);
+            break;
+          case ByteCode.SYMBOL:
+            LispSymbol symbol = environment.find(((LispSymbol) constants[operand]).getName());
+            stack[++top] = symbol == null ? constants[operand] : symbol;
+            break;
+          case ByteCode.VARIABLE:
+            LispSymbol variable = (LispSymbol) constants[operand];
+            LispSymbol binding = environment.find(variable.getName());
+            if (binding != null && binding.hasValue() && !binding.isConstant())
+              stack[++top] = binding.getValue();
+            else
+              stack[++top] = variable.evaluate(environment);
+            break;
+          case ByteCode.LOCAL:
+            LispSymbol local = frame[operand] != null ? frame[operand] : (frame[operand] = environment.find(locals[operand]));
+            if (local != null && local.hasValue() && !local.isConstant() && !local.isBufferLocal())
+              stack[++top] = local.getValue();
+            else
+              stack[++top] = new LispSymbol(locals[operand]).evaluate(environment);
+            break;
+          case ByteCode.SET_LOCAL:
+            LispSymbol cell = frame[operand] != null ? frame[operand] : (frame[operand] = environment.find(locals[operand]));
+            if (cell != null && !cell.isBufferLocal())
+              cell.setValue((LispObject) stack[top]);
+            else
+              environment.setVariable(new LispSymbol(locals[operand], (LispObject) stack[top]));
+            break;
+          case ByteCode.SET_VARIABLE:
+            environment.setVariable(new LispSymbol((String) constants[operand], (LispObject) stack[top]));
+            break;
+          case ByteCode.DISCARD:
+            stack[top--] = null;
+            break;
+          case ByteCode.GOTO:
+            pc = operand;
+            break;
+          case ByteCode.GOTO_IF_NIL:
+            if (stack[top].equals(LispSymbol.NIL))
+              pc = operand;
+            stack[top--] = null;
+            break;
+          case ByteCode.GOTO_IF_NIL_ELSE_POP:
+            if (stack[top].equals(LispSymbol.NIL))
+              pc = operand;
+            else
+              stack[top--] = null;
+            break;
+          case ByteCode.GOTO_IF_NOT_NIL_ELSE_POP:
+            if (!stack[top].equals(LispSymbol.NIL))
+              pc = operand;
+            else
+              stack[top--] = null;
+            break;
+          case ByteCode.FUNCTION:
+            LispSymbol function = GlobalEnvironment.INSTANCE.find((String) constants[operand]);
+            if (function != null && (function.isBuiltIn() || function.isCustom())) {
+              stack[++top] = function;
+              pc++;
+            } else {
+              pc = code[pc];
+            }
+            break;
+          case ByteCode.CALL:
+            ArrayList<LispObject> args = new ArrayList<>(operand);
+            for (int i = top - operand + 1; i <= top; ++i) {
+              args.add((LispObject) stack[i]);
+              stack[i] = null;
+            }
+            top -= operand;
+            environment.setArgumentsEvaluated(true);
+            stack[top] = ((LispSymbol) stack[top]).evaluateFunction(environment, VoidFunctionException.class, args);
+            break;
+          case ByteCode.ENTER:
+            stack[++top] = environment;
+            stack[++top] = BindingStack.depth();
+            environment = new CustomEnvironment(environment);
+            break;
+          case ByteCode.BIND_ALL:
+            int[] slots = (int[]) constants[operand];
+            int first = top - slots.length + 1;
+            for (int i = 0; i != slots.length; ++i) {
+              frame[slots[i]] = BindingStack.bind(environment, locals[slots[i]], (LispObject) stack[first + i]);
+              stack[first + i] = null;
+            }
+            top -= slots.length;
+            break;
+          case ByteCode.BIND:
+            frame[operand] = BindingStack.bind(environment, locals[operand], (LispObject) stack[top]);
+            stack[top--] = null;
+            break;
+          case ByteCode.LEAVE:
+            BindingStack.unbindTo((Integer) stack[top - 1]);
+            environment = (Environment) stack[top - 2];
+            stack[top - 2] = stack[top];
+            stack[top--] = null;
+            stack[top--] = null;
+            break;
+          default:
+            throw new InternalException("Unknown opcode " + opcode + " at " + (pc - 2));
+        }
+      }
+      return (LispObject) stack[top];
+    } finally {
+      BindingStack.unbindTo(depth);
+    }
+  }
+}
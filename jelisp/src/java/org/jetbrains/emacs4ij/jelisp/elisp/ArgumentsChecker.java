@@ -0,0 +1,135 @@
+package org.jetbrains.emacs4ij.jelisp.elisp;
+
+import org.jetbrains.emacs4ij.jelisp.Environment;
+import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
+import org.jetbrains.emacs4ij.jelisp.exception.WrongNumberOfArgumentsException;
+import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * subroutine signature compiled to one instruction per java parameter.
+ * Checking is done in two passes over the actual arguments: {@link #check} validates them and counts
+ * how many parameters get a value, {@link #getValue} converts a single argument for the invoker.
+ * Neither pass allocates anything but the &rest array and nil-to-empty-list replacements.
+ */
+final class ArgumentsChecker {
+  private static final byte ENVIRONMENT = 0;
+  private static final byte ARGUMENT = 1;
+  private static final byte ARGUMENT_OR_NIL_AS_LIST = 2;
+  private static final byte ARGUMENT_OR_NIL_AS_SYMBOL = 3;
+  private static final byte REST = 4;
+
+  private final String myName;
+  private final byte[] myProgram;
+  private final Class<?>[] myTypes;
+  private final int myNRequiredParameters;
+  private final int myArgumentsShift;
+  private final boolean isVarArgs;
+
+  ArgumentsChecker (String name, Type[] parameterTypes, int nRequiredParameters, boolean varArgs) {
+    myName = name;
+    myNRequiredParameters = nRequiredParameters;
+    isVarArgs = varArgs;
+    myProgram = new byte[parameterTypes.length];
+    myTypes = new Class<?>[parameterTypes.length];
+    int shift = 0;
+    for (int i = 0; i != parameterTypes.length; ++i) {
+      if (!(parameterTypes[i] instanceof Class))
+        throw new InternalException("Unsupported subroutine parameter type: " + parameterTypes[i] + " in " + name);
+      Class<?> type = (Class<?>) parameterTypes[i];
+      if (i == 0 && type.equals(Environment.class)) {
+        myProgram[i] = ENVIRONMENT;
+        shift = 1;
+      } else if (type.isArray()) {
+        myProgram[i] = REST;
+        type = type.getComponentType();
+      } else if (type.equals(LispList.class)) {
+        myProgram[i] = ARGUMENT_OR_NIL_AS_LIST;
+      } else if (type.equals(LispSymbol.class)) {
+        myProgram[i] = ARGUMENT_OR_NIL_AS_SYMBOL;
+      } else {
+        myProgram[i] = ARGUMENT;
+      }
+      myTypes[i] = type;
+    }
+    myArgumentsShift = shift;
+  }
+
+  /**
+   * @return the number of leading parameters which get a value; the rest are passed as null.
+   * Binding stops at the first optional parameter which has no matching argument.
+   */
+  int check (List<LispObject> args) {
+    int nActual = args.size() + myArgumentsShift;
+    if (nActual < myNRequiredParameters || (nActual > myProgram.length && !isVarArgs))
+      throw new WrongNumberOfArgumentsException(myName, nActual);
+    for (int i = myArgumentsShift; i != myProgram.length; ++i) {
+      int argsCounter = i - myArgumentsShift;
+      if (myProgram[i] == REST) {
+        for (int k = argsCounter, size = args.size(); k != size; ++k) {
+          if (!myTypes[i].isInstance(args.get(k)))
+            throw new WrongTypeArgumentException(myTypes[i].toString(), args.get(k));
+        }
+        return i + 1;
+      }
+      boolean optional = i >= myNRequiredParameters;
+      if (argsCounter >= args.size()) {
+        if (optional)
+          return i;
+        throw new WrongNumberOfArgumentsException(myName, i);
+      }
+      LispObject arg = args.get(argsCounter);
+      if (!matches(i, arg)) {
+        if (optional)
+          return i;
+        throw new WrongTypeArgumentException(myTypes[i].getSimpleName(), arg);
+      }
+    }
+    return myProgram.length;
+  }
+
+  private boolean matches (int i, LispObject arg) {
+    if (myTypes[i].isInstance(arg))
+      return true;
+    return myProgram[i] != ARGUMENT && arg.equals(LispSymbol.NIL);
+  }
+
+  /**
+   * @param nBound the result of {@link #check} for the same arguments
+   */
+  Object getValue (int i, int nBound, Environment environment, List<LispObject> args) {
+    if (i >= nBound)
+      return null;
+    int argsCounter = i - myArgumentsShift;
+    switch (myProgram[i]) {
+      case ENVIRONMENT:
+        return environment;
+      case REST:
+        int size = Math.max(args.size() - argsCounter, 0);
+        Object[] rest = (Object[]) Array.newInstance(myTypes[i], size);
+        for (int k = 0; k != size; ++k) {
+          rest[k] = args.get(argsCounter + k);
+        }
+        return rest;
+      case ARGUMENT_OR_NIL_AS_LIST:
+        LispObject list = args.get(argsCounter);
+        return list instanceof LispList ? list : LispList.list();
+      case ARGUMENT_OR_NIL_AS_SYMBOL:
+        LispObject symbol = args.get(argsCounter);
+        return symbol instanceof LispSymbol ? symbol : LispSymbol.NIL;
+      default:
+        return args.get(argsCounter);
+    }
+  }
+
+  Object[] getValues (int nBound, Environment environment, List<LispObject> args) {
+    Object[] values = new Object[myProgram.length];
+    for (int i = 0; i < nBound; ++i) {
+      values[i] = getValue(i, nBound, environment, args);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,886 @@
+package org.jetbrains.emacs4ij.jelisp.elisp;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.emacs4ij.jelisp.Environment;
+import org.jetbrains.emacs4ij.jelisp.exception.InvalidRegexpException;
+import org.jetbrains.emacs4ij.jelisp.subroutine.SyntaxTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * compiled Emacs regular expression. It is matched by a backtracking machine right over the searched text,
+ * nothing is copied or translated for a search: word and symbol bounds, syntax classes and categories
+ * are checked against the syntax table of the environment the search runs in.
+ *
+ * Regexps come as the reader keeps them: a doubled backslash introduces groups, alternatives, intervals,
+ * text bounds and back references; a single one introduces word and symbol bounds, syntax classes and categories;
+ * any other doubled backslash stands for a backslash.
+ *
+ * Program is a sequence of (opcode, operand) pairs, jump operands are relative to the jump.
+ */
+public final class EmacsRegexp {
+  private static final int CHAR = 0;
+  private static final int ANY = 1;
+  private static final int SET = 2;
+  private static final int FORK = 3;        //try next first, then the target
+  private static final int FORK_LAZY = 4;   //try the target first, then next
+  private static final int JUMP = 5;
+  private static final int SAVE = 6;
+  private static final int MARK = 7;        //remember the position a loop iteration starts at
+  private static final int CHECK = 8;       //fail the loop iteration which matched nothing
+  private static final int BACK_REFERENCE = 9;
+  private static final int LINE_START = 10;
+  private static final int LINE_END = 11;
+  private static final int TEXT_START = 12;
+  private static final int TEXT_END = 13;
+  private static final int WORD_START = 14;
+  private static final int WORD_END = 15;
+  private static final int SYMBOL_START = 16;
+  private static final int SYMBOL_END = 17;
+  private static final int WORD_BOUND = 18;
+  private static final int NOT_WORD_BOUND = 19;
+  private static final int SYNTAX = 20;
+  private static final int NOT_SYNTAX = 21;
+  private static final int CATEGORY = 22;
+  private static final int NOT_CATEGORY = 23;
+  private static final int MATCH = 24;
+
+  private static final int MAX_PROGRAM_SIZE = 1 << 20;
+  private static final int MAX_FIRST_CHARS = 64;
+
+  private final String myRegexp;
+  private final boolean isCaseFold;
+  private final int[] myCode;
+  private final CharSet[] mySets;
+  private final int myGroupCount;
+  private final int myMarkCount;
+  //prefilters: the text every match starts with and the chars and sets the first char of every match is from
+  private final String myPrefix;
+  @Nullable private final String myFirstChars;
+  private final List<Integer> myFirstSets = new ArrayList<>();
+
+  private EmacsRegexp (String regexp, boolean caseFold, int[] code, CharSet[] sets, int groupCount, int markCount) {
+    myRegexp = regexp;
+    isCaseFold = caseFold;
+    myCode = code;
+    mySets = sets;
+    myGroupCount = groupCount;
+    myMarkCount = markCount;
+    myPrefix = literalPrefix();
+    StringBuilder firstChars = new StringBuilder();
+    myFirstChars = collectFirst(0, new BitSet(), firstChars) ? firstChars.toString() : null;
+  }
+
+  private String literalPrefix() {
+    StringBuilder prefix = new StringBuilder();
+    for (int pc = 0; myCode[pc] == CHAR || myCode[pc] == SAVE; pc += 2) {
+      if (myCode[pc] == CHAR)
+        prefix.append((char) myCode[pc + 1]);
+    }
+    return prefix.toString();
+  }
+
+  /**
+   * collects the chars and sets a match continued from given instruction may start with
+   * @return false if it may start with any char or match nothing
+   */
+  private boolean collectFirst (int pc, BitSet visited, StringBuilder chars) {
+    while (!visited.get(pc)) {
+      visited.set(pc);
+      switch (myCode[pc]) {
+        case CHAR:
+          if (chars.indexOf(String.valueOf((char) myCode[pc + 1])) < 0)
+            chars.append((char) myCode[pc + 1]);
+          return chars.length() <= MAX_FIRST_CHARS;
+        case SET:
+          if (!myFirstSets.contains(myCode[pc + 1]))
+            myFirstSets.add(myCode[pc + 1]);
+          return true;
+        case FORK:
+        case FORK_LAZY:
+          if (!collectFirst(pc + myCode[pc + 1], visited, chars))
+            return false;
+          pc += 2;
+          break;
+        case JUMP:
+          pc += myCode[pc + 1];
+          break;
+        case ANY:
+        case BACK_REFERENCE:
+        case SYNTAX:
+        case NOT_SYNTAX:
+        case CATEGORY:
+        case NOT_CATEGORY:
+        case MATCH:
+          return false;
+        default: //groups, loop marks and assertions match no chars
+          pc += 2;
+      }
+    }
+    return true;
+  }
+
+  public static EmacsRegexp compile (String regexp, boolean caseFold) {
+    Compiler compiler = new Compiler(regexp);
+    compiler.compile();
+    return new EmacsRegexp(regexp, caseFold, Arrays.copyOf(compiler.myCode, compiler.mySize),
+        compiler.mySets.toArray(new CharSet[compiler.mySets.size()]), compiler.myGroupCount, compiler.myMarkCount);
+  }
+
+  public String getRegexp() {
+    return myRegexp;
+  }
+
+  public boolean isCaseFold() {
+    return isCaseFold;
+  }
+
+  public int getGroupCount() {
+    return myGroupCount;
+  }
+
+  /**
+   * @return positions of the first match starting at or after given one: start and end of the whole match
+   * and of every group, -1 for groups which didn't participate; or null if there is no match
+   */
+  @Nullable
+  public int[] search (@Nullable Environment environment, CharSequence text, int from) {
+    return search(environment, text, from, text.length());
+  }
+
+  /**
+   * searches the region of text from given position to given end, the end of the region is matched as the end of text
+   */
+  @Nullable
+  public int[] search (@Nullable Environment environment, CharSequence text, int from, int end) {
+    Machine machine = new Machine(environment, text, end);
+    if (myCode[0] == TEXT_START)
+      end = Math.min(from, end);
+    for (int start = from; start <= end; start++) {
+      if (machine.mayStartAt(start) && machine.run(start))
+        return machine.getGroups();
+    }
+    return null;
+  }
+
+  /**
+   * tries matches starting at given position, then one char before and so on down to given bound.
+   * Matches don't extend past the position the search starts from, @see #search
+   * @return positions of the first match found, @see #search, or null
+   */
+  @Nullable
+  public int[] searchBackward (@Nullable Environment environment, CharSequence text, int from, int bound) {
+    Machine machine = new Machine(environment, text, from);
+    for (int start = myCode[0] == TEXT_START ? 0 : from; start >= bound; start--) {
+      if (machine.mayStartAt(start) && machine.run(start))
+        return machine.getGroups();
+    }
+    return null;
+  }
+
+  /**
+   * @return positions of the match starting exactly at given position, @see #search, or null
+   */
+  @Nullable
+  public int[] match (@Nullable Environment environment, CharSequence text, int at) {
+    return match(environment, text, at, text.length());
+  }
+
+  @Nullable
+  public int[] match (@Nullable Environment environment, CharSequence text, int at, int end) {
+    if (at < 0 || at > end)
+      return null;
+    Machine machine = new Machine(environment, text, end);
+    return machine.run(at) ? machine.getGroups() : null;
+  }
+
+  private boolean isSame (char c, char pattern) {
+    return c == pattern || (isCaseFold && (Character.toLowerCase(c) == Character.toLowerCase(pattern)
+        || Character.toUpperCase(c) == Character.toUpperCase(pattern)));
+  }
+
+  private final class Machine {
+    private final CharSequence myText;
+    private final int myLength;
+    private final LispSyntaxTable mySyntaxTable;
+    private final int[] mySlots;
+    private int[] myStack = new int[64];
+    private int myTop;
+
+    private Machine (@Nullable Environment environment, CharSequence text, int end) {
+      myText = text;
+      myLength = end;
+      mySyntaxTable = SyntaxTable.getSyntaxTable(environment);
+      mySlots = new int[2 * (myGroupCount + 1) + myMarkCount];
+    }
+
+    private boolean mayStartAt (int start) {
+      if (myFirstChars == null)
+        return true;
+      if (start + Math.max(myPrefix.length(), 1) > myLength)
+        return false;
+      for (int i = 0; i < myPrefix.length(); i++) {
+        if (!isSame(myText.charAt(start + i), myPrefix.charAt(i)))
+          return false;
+      }
+      char c = myText.charAt(start);
+      for (int i = 0; i < myFirstChars.length(); i++) {
+        if (isSame(c, myFirstChars.charAt(i)))
+          return true;
+      }
+      for (int set: myFirstSets) {
+        if (mySets[set].contains(c, isCaseFold, mySyntaxTable))
+          return true;
+      }
+      return false;
+    }
+
+    private int[] getGroups() {
+      return Arrays.copyOf(mySlots, 2 * (myGroupCount + 1));
+    }
+
+    /**
+     * a stack entry is either a thread to resume: (pc, position), or a slot value to restore: (-slot - 1, value)
+     */
+    private void push (int a, int b) {
+      if (myTop + 2 > myStack.length)
+        myStack = Arrays.copyOf(myStack, myStack.length * 2);
+      myStack[myTop++] = a;
+      myStack[myTop++] = b;
+    }
+
+    private void set (int slot, int value) {
+      push(-slot - 1, mySlots[slot]);
+      mySlots[slot] = value;
+    }
+
+    private boolean run (int start) {
+      Arrays.fill(mySlots, -1);
+      myTop = 0;
+      push(0, start);
+      while (myTop != 0) {
+        int sp = myStack[--myTop];
+        int pc = myStack[--myTop];
+        if (pc < 0) {
+          mySlots[-pc - 1] = sp;
+          continue;
+        }
+        while (pc >= 0) {
+          int operand = myCode[pc + 1];
+          switch (myCode[pc]) {
+            case CHAR:
+              pc = sp < myLength && isSame(myText.charAt(sp), (char) operand) ? pc + 2 : -1;
+              sp++;
+              break;
+            case ANY:
+              pc = sp < myLength && myText.charAt(sp) != '\n' ? pc + 2 : -1;
+              sp++;
+              break;
+            case SET:
+              pc = sp < myLength && mySets[operand].contains(myText.charAt(sp), isCaseFold, mySyntaxTable) ? pc + 2 : -1;
+              sp++;
+              break;
+            case FORK:
+              push(pc + operand, sp);
+              pc += 2;
+              break;
+            case FORK_LAZY:
+              push(pc + 2, sp);
+              pc += operand;
+              break;
+            case JUMP:
+              pc += operand;
+              break;
+            case SAVE:
+              set(operand, sp);
+              pc += 2;
+              break;
+            case MARK:
+              set(2 * (myGroupCount + 1) + operand, sp);
+              pc += 2;
+              break;
+            case CHECK:
+              pc = mySlots[2 * (myGroupCount + 1) + operand] == sp ? -1 : pc + 2;
+              break;
+            case SYNTAX:
+            case NOT_SYNTAX:
+              pc = sp < myLength && (syntaxClass(sp).ordinal() == operand) == (myCode[pc] == SYNTAX) ? pc + 2 : -1;
+              sp++;
+              break;
+            case CATEGORY:
+            case NOT_CATEGORY:
+              pc = sp < myLength && isOfCategory((char) operand, myText.charAt(sp)) == (myCode[pc] == CATEGORY) ? pc + 2 : -1;
+              sp++;
+              break;
+            case BACK_REFERENCE:
+              sp = matchBackReference(operand, sp);
+              pc = sp < 0 ? -1 : pc + 2;
+              break;
+            case MATCH:
+              mySlots[0] = start;
+              mySlots[1] = sp;
+              return true;
+            default:
+              pc = isAt(myCode[pc], sp) ? pc + 2 : -1;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return the position after the text matched by given group or -1
+     */
+    private int matchBackReference (int group, int sp) {
+      int start = mySlots[2 * group];
+      int end = mySlots[2 * group + 1];
+      if (start < 0 || end < 0 || sp + end - start > myLength)
+        return -1;
+      for (int i = start; i < end; i++, sp++) {
+        if (!isSame(myText.charAt(sp), myText.charAt(i)))
+          return -1;
+      }
+      return sp;
+    }
+
+    private boolean isAt (int assertion, int sp) {
+      switch (assertion) {
+        case LINE_START:
+          return sp == 0 || myText.charAt(sp - 1) == '\n';
+        case LINE_END:
+          return sp == myLength || myText.charAt(sp) == '\n';
+        case TEXT_START:
+          return sp == 0;
+        case TEXT_END:
+          return sp == myLength;
+        case WORD_START:
+          return sp < myLength && isWord(sp) && (sp == 0 || !isWord(sp - 1));
+        case WORD_END:
+          return sp > 0 && isWord(sp - 1) && (sp == myLength || !isWord(sp));
+        case SYMBOL_START:
+          return sp < myLength && isSymbol(sp) && (sp == 0 || !isSymbol(sp - 1));
+        case SYMBOL_END:
+          return sp > 0 && isSymbol(sp - 1) && (sp == myLength || !isSymbol(sp));
+        case WORD_BOUND:
+          return sp == 0 || sp == myLength || isWord(sp - 1) != isWord(sp);
+        case NOT_WORD_BOUND:
+          return sp != 0 && sp != myLength && isWord(sp - 1) == isWord(sp);
+        default:
+          throw new IllegalStateException("Unknown regexp opcode " + assertion);
+      }
+    }
+
+    private SyntaxDescriptor.ClassType syntaxClass (int position) {
+      return SyntaxTable.getSyntaxClass(mySyntaxTable, myText.charAt(position));
+    }
+
+    private boolean isWord (int position) {
+      return syntaxClass(position) == SyntaxDescriptor.ClassType.WORD;
+    }
+
+    private boolean isSymbol (int position) {
+      SyntaxDescriptor.ClassType type = syntaxClass(position);
+      return type == SyntaxDescriptor.ClassType.WORD || type == SyntaxDescriptor.ClassType.SYMBOL;
+    }
+  }
+
+  /**
+   * there are no category tables yet, the standard categories are approximated with unicode scripts
+   */
+  static boolean isOfCategory (char category, char c) {
+    Character.UnicodeScript script;
+    try {
+      script = Character.UnicodeScript.of(c);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    switch (category) {
+      case 'a':
+        return c >= ' ' && c < 127;
+      case 'l':
+        return c > 127 && script == Character.UnicodeScript.LATIN;
+      case 'g':
+        return script == Character.UnicodeScript.GREEK;
+      case 'y':
+        return script == Character.UnicodeScript.CYRILLIC;
+      case 'b':
+        return script == Character.UnicodeScript.ARABIC;
+      case 'w':
+        return script == Character.UnicodeScript.HEBREW;
+      case 't':
+        return script == Character.UnicodeScript.THAI;
+      case 'o':
+        return script == Character.UnicodeScript.LAO;
+      case 'q':
+        return script == Character.UnicodeScript.TIBETAN;
+      case 'e':
+        return script == Character.UnicodeScript.ETHIOPIC;
+      case 'h':
+        return script == Character.UnicodeScript.HANGUL;
+      case 'c':
+      case 'C':
+        return script == Character.UnicodeScript.HAN;
+      case 'H':
+        return script == Character.UnicodeScript.HIRAGANA;
+      case 'k':
+      case 'K':
+        return script == Character.UnicodeScript.KATAKANA;
+      case 'j':
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA;
+      case 'i':
+        return script == Character.UnicodeScript.DEVANAGARI || script == Character.UnicodeScript.BENGALI
+            || script == Character.UnicodeScript.GURMUKHI || script == Character.UnicodeScript.GUJARATI
+            || script == Character.UnicodeScript.ORIYA || script == Character.UnicodeScript.TAMIL
+            || script == Character.UnicodeScript.TELUGU || script == Character.UnicodeScript.KANNADA
+            || script == Character.UnicodeScript.MALAYALAM;
+      case '^':
+        return Character.getType(c) == Character.NON_SPACING_MARK;
+      default:
+        return false;
+    }
+  }
+
+  private static final class Compiler {
+    private final String myRegexp;
+    private int myIndex = 0;
+    private int[] myCode = new int[32];
+    private int mySize = 0;
+    private final List<CharSet> mySets = new ArrayList<>();
+    private int myGroupCount = 0;
+    private int myMarkCount = 0;
+    private final BitSet myClosedGroups = new BitSet();
+
+    private Compiler (String regexp) {
+      myRegexp = regexp;
+    }
+
+    private void compile() {
+      compileAlternatives();
+      if (myIndex < myRegexp.length()) //only \\) stops the top-level alternatives
+        throw new InvalidRegexpException(InvalidRegexpException.Error.CLOSE_ROUND_BRACKET);
+      emit(MATCH, 0);
+    }
+
+    private void emit (int opcode, int operand) {
+      if (mySize + 2 > myCode.length) {
+        if (myCode.length >= MAX_PROGRAM_SIZE)
+          throw new InvalidRegexpException(InvalidRegexpException.Error.REGEXP);
+        myCode = Arrays.copyOf(myCode, myCode.length * 2);
+      }
+      myCode[mySize++] = opcode;
+      myCode[mySize++] = operand;
+    }
+
+    private void emit (int[] fragment) {
+      for (int i = 0; i < fragment.length; i += 2) {
+        emit(fragment[i], fragment[i + 1]);
+      }
+    }
+
+    private void insert (int at, int opcode, int operand) {
+      emit(0, 0);
+      System.arraycopy(myCode, at, myCode, at + 2, mySize - at - 2);
+      myCode[at] = opcode;
+      myCode[at + 1] = operand;
+    }
+
+    private boolean lookingAt (String s) {
+      return myRegexp.startsWith(s, myIndex);
+    }
+
+    private boolean atBranchEnd (int index) {
+      return index == myRegexp.length() || myRegexp.startsWith("\\\\|", index) || myRegexp.startsWith("\\\\)", index);
+    }
+
+    private void compileAlternatives() {
+      List<Integer> jumps = new ArrayList<>();
+      int start = mySize;
+      compileBranch();
+      while (lookingAt("\\\\|")) {
+        myIndex += 3;
+        insert(start, FORK, mySize - start + 4);
+        jumps.add(mySize);
+        emit(JUMP, 0);
+        start = mySize;
+        compileBranch();
+      }
+      for (int jump: jumps) {
+        myCode[jump + 1] = mySize - jump;
+      }
+    }
+
+    private void compileBranch() {
+      int branchStart = mySize;
+      int atom = -1;
+      while (!atBranchEnd(myIndex)) {
+        char c = myRegexp.charAt(myIndex);
+        if (c == '^' && mySize == branchStart) {
+          myIndex++;
+          emit(LINE_START, 0);
+          continue;
+        }
+        if (c == '$' && atBranchEnd(myIndex + 1)) {
+          myIndex++;
+          emit(LINE_END, 0);
+          atom = -1;
+          continue;
+        }
+        if ((c == '*' || c == '+' || c == '?') && atom >= 0) {
+          myIndex++;
+          boolean lazy = myIndex < myRegexp.length() && myRegexp.charAt(myIndex) == '?';
+          if (lazy)
+            myIndex++;
+          int[] fragment = cut(atom);
+          if (c == '+')
+            emit(fragment);
+          if (c == '?')
+            emitOptional(fragment, lazy);
+          else
+            emitStar(fragment, lazy);
+          continue;
+        }
+        if (lookingAt("\\\\{") && atom >= 0) {
+          myIndex += 3;
+          compileInterval(cut(atom));
+          continue;
+        }
+        atom = mySize;
+        if (!compileAtom()) //an assertion takes no repetition
+          atom = -1;
+      }
+    }
+
+    private int[] cut (int from) {
+      int[] fragment = Arrays.copyOfRange(myCode, from, mySize);
+      mySize = from;
+      return fragment;
+    }
+
+    private void emitStar (int[] fragment, boolean lazy) {
+      int loop = mySize;
+      emit(lazy ? FORK_LAZY : FORK, fragment.length + 8);
+      emit(MARK, myMarkCount);
+      emit(fragment);
+      emit(CHECK, myMarkCount++);
+      emit(JUMP, loop - mySize);
+    }
+
+    private void emitOptional (int[] fragment, boolean lazy) {
+      emit(lazy ? FORK_LAZY : FORK, fragment.length + 2);
+      emit(fragment);
+    }
+
+    private void compileInterval (int[] fragment) {
+      int min = readNumber(0);
+      int max = min;
+      if (myIndex < myRegexp.length() && myRegexp.charAt(myIndex) == ',') {
+        myIndex++;
+        max = readNumber(-1);
+      }
+      if (!lookingAt("\\\\}"))
+        throw new InvalidRegexpException(myIndex >= myRegexp.length()
+            ? InvalidRegexpException.Error.FIGURE_BRACKET
+            : InvalidRegexpException.Error.FIGURE_BRACKET_CONTENT);
+      myIndex += 3;
+      if (max >= 0 && max < min)
+        throw new InvalidRegexpException(InvalidRegexpException.Error.FIGURE_BRACKET_CONTENT);
+      for (int i = 0; i < min; i++) {
+        emit(fragment);
+      }
+      if (max < 0) {
+        emitStar(fragment, false);
+        return;
+      }
+      for (int i = min; i < max; i++) {
+        emitOptional(fragment, false);
+      }
+    }
+
+    private int readNumber (int empty) {
+      int start = myIndex;
+      int number = 0;
+      while (myIndex < myRegexp.length() && Character.isDigit(myRegexp.charAt(myIndex))) {
+        number = number * 10 + myRegexp.charAt(myIndex++) - '0';
+        if (number > 0xFFFF)
+          throw new InvalidRegexpException(InvalidRegexpException.Error.FIGURE_BRACKET_CONTENT);
+      }
+      return myIndex == start ? empty : number;
+    }
+
+    /**
+     * @return true if the atom may be repeated, false for assertions
+     */
+    private boolean compileAtom() {
+      char c = myRegexp.charAt(myIndex);
+      switch (c) {
+        case '.':
+          myIndex++;
+          emit(ANY, 0);
+          return true;
+        case '[':
+          myIndex++;
+          compileSet();
+          return true;
+        case '\\':
+          return lookingAt("\\\\") ? compileDoubleEscape() : compileEscape();
+        default:
+          myIndex++;
+          emit(CHAR, c);
+          return true;
+      }
+    }
+
+    private boolean compileDoubleEscape() {
+      char c = myIndex + 2 < myRegexp.length() ? myRegexp.charAt(myIndex + 2) : 0;
+      switch (c) {
+        case '(':
+          myIndex += 3;
+          compileGroup();
+          return true;
+        case '{':
+        case '}':
+          throw new InvalidRegexpException(InvalidRegexpException.Error.PRECEDING_REGEXP);
+        case '\'':
+          myIndex += 3;
+          emit(TEXT_END, 0);
+          return false;
+        case '`':
+          myIndex += 3;
+          emit(TEXT_START, 0);
+          return false;
+        case '=': //point is not known for strings
+          myIndex += 3;
+          return false;
+        default:
+          if (c >= '1' && c <= '9') {
+            myIndex += 3;
+            int group = c - '0';
+            if (!myClosedGroups.get(group))
+              throw new InvalidRegexpException(InvalidRegexpException.Error.BACK_REFERENCE);
+            emit(BACK_REFERENCE, group);
+            return true;
+          }
+          myIndex += 2;
+          emit(CHAR, '\\');
+          return true;
+      }
+    }
+
+    private void compileGroup() {
+      int group;
+      if (lookingAt("?")) {
+        myIndex++;
+        group = readNumber(0);
+        if (!lookingAt(":"))
+          throw new InvalidRegexpException(InvalidRegexpException.Error.REGEXP);
+        myIndex++;
+        myGroupCount = Math.max(myGroupCount, group);
+      } else {
+        group = ++myGroupCount;
+      }
+      if (group != 0)
+        emit(SAVE, 2 * group);
+      compileAlternatives();
+      if (!lookingAt("\\\\)"))
+        throw new InvalidRegexpException(InvalidRegexpException.Error.OPEN_ROUND_BRACKET);
+      myIndex += 3;
+      if (group != 0) {
+        emit(SAVE, 2 * group + 1);
+        myClosedGroups.set(group);
+      }
+    }
+
+    private boolean compileEscape() {
+      if (myIndex + 1 >= myRegexp.length())
+        throw new InvalidRegexpException(InvalidRegexpException.Error.BACKSLASH);
+      char c = myRegexp.charAt(myIndex + 1);
+      myIndex += 2;
+      switch (c) {
+        case '<':
+          emit(WORD_START, 0);
+          return false;
+        case '>':
+          emit(WORD_END, 0);
+          return false;
+        case 'b':
+          emit(WORD_BOUND, 0);
+          return false;
+        case 'B':
+          emit(NOT_WORD_BOUND, 0);
+          return false;
+        case '_':
+          if (lookingAt("<"))
+            emit(SYMBOL_START, 0);
+          else if (lookingAt(">"))
+            emit(SYMBOL_END, 0);
+          else
+            throw new InvalidRegexpException(InvalidRegexpException.Error.REGEXP);
+          myIndex++;
+          return false;
+        case 'w':
+          emit(SYNTAX, SyntaxDescriptor.ClassType.WORD.ordinal());
+          return true;
+        case 'W':
+          emit(NOT_SYNTAX, SyntaxDescriptor.ClassType.WORD.ordinal());
+          return true;
+        case 's':
+        case 'S':
+          SyntaxDescriptor.ClassType type = SyntaxDescriptor.getSyntaxClassByChar(nextChar());
+          if (type == null)
+            throw new InvalidRegexpException(InvalidRegexpException.Error.REGEXP);
+          emit(c == 's' ? SYNTAX : NOT_SYNTAX, type.ordinal());
+          return true;
+        case 'c':
+        case 'C':
+          emit(c == 'c' ? CATEGORY : NOT_CATEGORY, nextChar());
+          return true;
+        case 't':
+          emit(CHAR, '\t');
+          return true;
+        case 'n':
+          emit(CHAR, '\n');
+          return true;
+        case 'r':
+          emit(CHAR, '\r');
+          return true;
+        case 'f':
+          emit(CHAR, '\f');
+          return true;
+        case 'e':
+          emit(CHAR, 27);
+          return true;
+        case 'a':
+          emit(CHAR, 7);
+          return true;
+        default:
+          emit(CHAR, c);
+          return true;
+      }
+    }
+
+    private char nextChar() {
+      if (myIndex >= myRegexp.length())
+        throw new InvalidRegexpException(InvalidRegexpException.Error.PREMATURE_END);
+      return myRegexp.charAt(myIndex++);
+    }
+
+    private void compileSet() {
+      CharSet set = new CharSet();
+      if (lookingAt("^")) {
+        set.isNegated = true;
+        myIndex++;
+      }
+      boolean first = true;
+      while (true) {
+        if (myIndex >= myRegexp.length())
+          throw new InvalidRegexpException(InvalidRegexpException.Error.SQUARE_BRACKET);
+        char c = myRegexp.charAt(myIndex);
+        if (c == ']' && !first)
+          break;
+        first = false;
+        if (lookingAt("[:")) {
+          int end = myRegexp.indexOf(":]", myIndex + 2);
+          if (end > 0) {
+            set.addClass(myRegexp.substring(myIndex + 2, end));
+            myIndex = end + 2;
+            continue;
+          }
+        }
+        myIndex++;
+        if (myIndex + 1 < myRegexp.length() && myRegexp.charAt(myIndex) == '-' && myRegexp.charAt(myIndex + 1) != ']') {
+          set.addRange(c, myRegexp.charAt(myIndex + 1));
+          myIndex += 2;
+        } else {
+          set.addRange(c, c);
+        }
+      }
+      myIndex++;
+      mySets.add(set);
+      emit(SET, mySets.size() - 1);
+    }
+  }
+
+  private static final class CharSet {
+    private static final String[] CLASSES = {"alpha", "alnum", "digit", "xdigit", "upper", "lower", "space", "word",
+        "punct", "cntrl", "blank", "graph", "print", "ascii", "nonascii", "multibyte", "unibyte"};
+
+    private boolean isNegated = false;
+    private int[] myRanges = new int[0];
+    private int myClasses = 0;
+
+    private void addRange (char from, char to) {
+      if (from > to) //an empty range
+        return;
+      myRanges = Arrays.copyOf(myRanges, myRanges.length + 2);
+      myRanges[myRanges.length - 2] = from;
+      myRanges[myRanges.length - 1] = to;
+    }
+
+    private void addClass (String name) {
+      int index = Arrays.asList(CLASSES).indexOf(name);
+      if (index < 0)
+        throw new InvalidRegexpException(InvalidRegexpException.Error.CHAR_CLASS_NAME);
+      myClasses |= 1 << index;
+    }
+
+    private boolean contains (char c, boolean caseFold, LispSyntaxTable table) {
+      boolean contains = containsExactly(c, table)
+          || (caseFold && (containsExactly(Character.toLowerCase(c), table) || containsExactly(Character.toUpperCase(c), table)));
+      return contains != isNegated;
+    }
+
+    private boolean containsExactly (char c, LispSyntaxTable table) {
+      for (int i = 0; i < myRanges.length; i += 2) {
+        if (c >= myRanges[i] && c <= myRanges[i + 1])
+          return true;
+      }
+      for (int i = 0; myClasses >> i != 0; i++) {
+        if ((myClasses >> i & 1) != 0 && isOfClass(i, c, table))
+          return true;
+      }
+      return false;
+    }
+
+    private static boolean isOfClass (int index, char c, LispSyntaxTable table) {
+      switch (CLASSES[index]) {
+        case "alpha":
+          return Character.isLetter(c);
+        case "alnum":
+          return Character.isLetterOrDigit(c);
+        case "digit":
+          return c >= '0' && c <= '9';
+        case "xdigit":
+          return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+        case "upper":
+          return Character.isUpperCase(c);
+        case "lower":
+          return Character.isLowerCase(c);
+        case "space":
+          return SyntaxTable.getSyntaxClass(table, c) == SyntaxDescriptor.ClassType.WHITESPACE;
+        case "word":
+          return SyntaxTable.getSyntaxClass(table, c) == SyntaxDescriptor.ClassType.WORD;
+        case "punct":
+          return c < 128
+              ? c > ' ' && c < 127 && !Character.isLetterOrDigit(c)
+              : SyntaxTable.getSyntaxClass(table, c) != SyntaxDescriptor.ClassType.WORD;
+        case "cntrl":
+          return c < ' ';
+        case "blank":
+          return c == ' ' || c == '\t' || Character.getType(c) == Character.SPACE_SEPARATOR;
+        case "graph":
+          return c < 128 ? c > ' ' && c < 127 : !Character.isWhitespace(c) && !Character.isISOControl(c);
+        case "print":
+          return c < 128 ? c >= ' ' && c < 127 : !Character.isISOControl(c);
+        case "ascii":
+        case "unibyte":
+          return c < 128;
+        default: //nonascii, multibyte
+          return c >= 128;
+      }
+    }
+  }
+}
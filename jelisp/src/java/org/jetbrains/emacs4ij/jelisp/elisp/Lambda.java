@@ -2,9 +2,13 @@ package org.jetbrains.emacs4ij.jelisp.elisp;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.emacs4ij.jelisp.BindingStack;
 import org.jetbrains.emacs4ij.jelisp.CustomEnvironment;
 import org.jetbrains.emacs4ij.jelisp.Environment;
 import org.jetbrains.emacs4ij.jelisp.JelispBundle;
+import org.jetbrains.emacs4ij.jelisp.compiler.ByteCode;
+import org.jetbrains.emacs4ij.jelisp.compiler.Compiler;
+import org.jetbrains.emacs4ij.jelisp.compiler.VirtualMachine;
 import org.jetbrains.emacs4ij.jelisp.exception.DirectEvaluationException;
 import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
 import org.jetbrains.emacs4ij.jelisp.exception.InvalidFunctionException;
@@ -14,21 +18,28 @@ import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Core;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 public final class Lambda implements FunctionCell, LambdaOrSymbolWithFunction {
-  private List<LambdaArgument> myArgumentList = new LinkedList<>();
+  private static final LispSymbol INTERACTIVE = new LispSymbol("interactive");
+  private static final LispSymbol REST = new LispSymbol("&rest");
+  private static final LispSymbol OPTIONAL = new LispSymbol("&optional");
+  private static final LispSymbol KEY = new LispSymbol("&key");
+
+  private final LispList myDefinition;
+  private List<LambdaArgument> myArgumentList = new ArrayList<>();
   private LispObject myDocumentation = null;
   private LispList myInteractive = null;
   private List<LispObject> myBody = new ArrayList<>();
+  private ByteCode myByteCode = null;
   private int nRequiredArguments = 0;
   private boolean infiniteArgs = false;
   private int nKeywords = 0;
 
   public Lambda (LispList def) {
+    myDefinition = def;
     List<LispObject> data = def.toLispObjectList();
-    if (!data.get(0).equals(new LispSymbol("lambda")))
+    if (!data.get(0).equals(LispSymbol.LAMBDA))
       throw new InvalidFunctionException(def.toString());
     try {
       if (!data.get(1).equals(LispSymbol.NIL))
@@ -50,7 +61,7 @@ public final class Lambda implements FunctionCell, LambdaOrSymbolWithFunction {
       myBody = data.subList(2, data.size());
       for (LispObject bodyForm : myBody) {
         if (bodyForm instanceof LispList && !((LispList) bodyForm).isEmpty()) {
-          if (((LispList) bodyForm).car().equals(new LispSymbol("interactive")) && myInteractive == null) {
+          if (((LispList) bodyForm).car().equals(INTERACTIVE) && myInteractive == null) {
             myInteractive = (LispList) bodyForm;
 //            myBody.remove(bodyForm);
             break;
@@ -60,6 +71,13 @@ public final class Lambda implements FunctionCell, LambdaOrSymbolWithFunction {
     }
   }
 
+  /**
+   * @return the list this lambda was made of
+   */
+  public LispList getDefinition() {
+    return myDefinition;
+  }
+
   //todo: for test only
   public List<LambdaArgument> getArguments () {
     return myArgumentList;
@@ -72,23 +90,23 @@ public final class Lambda implements FunctionCell, LambdaOrSymbolWithFunction {
 
   public void parseArgumentsList (LispList args) {
     nRequiredArguments = 0;
-    myArgumentList = new LinkedList<>();
+    myArgumentList = new ArrayList<>();
     if (args.isEmpty())
       return;
     List<LispObject> data = args.toLispObjectList();
     LambdaArgument.Type type = LambdaArgument.Type.REQUIRED;
     for (LispObject aData : data) {
       if (aData instanceof LispSymbol) {
-        if (aData.equals(new LispSymbol("&rest"))) {
+        if (aData.equals(REST)) {
           type = LambdaArgument.Type.REST;
           infiniteArgs = true;
           continue;
         }
-        if (aData.equals(new LispSymbol("&optional"))) {
+        if (aData.equals(OPTIONAL)) {
           type = LambdaArgument.Type.OPTIONAL;
           continue;
         }
-        if (aData.equals(new LispSymbol("&key"))) {
+        if (aData.equals(KEY)) {
           type = LambdaArgument.Type.KEYWORD;
           continue;
         }
@@ -134,7 +152,29 @@ public final class Lambda implements FunctionCell, LambdaOrSymbolWithFunction {
   }
 
   public LispObject evaluate(Environment environment, List<LispObject> args) {
-    return evaluateBody(substituteArguments(environment, args));
+    int depth = BindingStack.depth();
+    try {
+      Environment inner = substituteArguments(environment, args);
+      return myByteCode == null ? evaluateBody(inner) : VirtualMachine.execute(myByteCode, inner);
+    } finally {
+      BindingStack.unbindTo(depth);
+    }
+  }
+
+  /**
+   * from now on the body is executed by the virtual machine instead of the tree-walker
+   */
+  public void compile() {
+    if (myByteCode == null) {
+      List<String> arguments = new ArrayList<>();
+      for (LambdaArgument argument: myArgumentList)
+        arguments.add(argument.getVar().getName());
+      myByteCode = Compiler.compile(arguments, myBody);
+    }
+  }
+
+  public boolean isCompiled() {
+    return myByteCode != null;
   }
 
   private boolean checkOversize(int n) {
@@ -314,18 +354,13 @@ public final class Lambda implements FunctionCell, LambdaOrSymbolWithFunction {
     }
 
     public void setValue (Environment inner, @Nullable LispObject value) {
-      myVar = new LispSymbol(myVar.getName());
       if (value == null) {
-        myVar.setValue(myInitForm.evaluate(inner));
+        value = myInitForm.evaluate(inner);
         if (!mySetVar.equals(LispSymbol.NIL))
           mySetVar = new LispSymbol(mySetVar.getName(), LispSymbol.NIL);
-        inner.defineSymbol(myVar);
-        return;
-      }
-      myVar.setValue(value);
-      if (!mySetVar.equals(LispSymbol.NIL))
+      } else if (!mySetVar.equals(LispSymbol.NIL))
         mySetVar = new LispSymbol(mySetVar.getName(), LispSymbol.T);
-      inner.defineSymbol(myVar);
+      BindingStack.bind(inner, myVar.getName(), value);
     }
 
     @Override
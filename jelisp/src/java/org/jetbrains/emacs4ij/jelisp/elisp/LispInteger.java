@@ -15,11 +15,28 @@ import org.jetbrains.emacs4ij.jelisp.platformDependent.LispBuffer;
  */
 public final class LispInteger extends LispNumber<Integer> implements MarkerOrInteger {
     public static final int MAX_CHAR   = 0x3FFFFF;
+    private static final int CACHE_LOW = -1024;
+    private static final int CACHE_HIGH = 65535;
+    private static final LispInteger[] ourCache = new LispInteger[CACHE_HIGH - CACHE_LOW + 1];
 
     public LispInteger(int data) {
         myData = data;
     }
 
+    /**
+     * @return the shared instance for small numbers (characters, usual buffer positions), a new one otherwise
+     */
+    public static LispInteger valueOf (int data) {
+        if (data < CACHE_LOW || data > CACHE_HIGH)
+            return new LispInteger(data);
+        LispInteger cached = ourCache[data - CACHE_LOW];
+        if (cached == null) {
+            cached = new LispInteger(data);
+            ourCache[data - CACHE_LOW] = cached;
+        }
+        return cached;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -14,15 +14,17 @@ import org.jetbrains.emacs4ij.jelisp.subroutine.Predicate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * this class is a lisp list = (something in brackets 5 5 delimited by spaces or line breaks)
  */
-public final class LispList implements LispSequence {
+public final class LispList implements LispSequence, Iterable<LispObject> {
   private LispObject myCar = null;
   private LispObject myCdr = null;
-  private Boolean isTrueList;
+  private boolean isTrueList;
 
   public static LispList list (LispObject ... objects) {
     return new LispList(new ArrayList<>(Arrays.asList(objects)));
@@ -44,26 +46,21 @@ public final class LispList implements LispSequence {
     return new LispList(car, cdr);
   }
 
+  /**
+   * the last element becomes the cdr of the last cell, so (a b c) is read as (a b . c)
+   */
   private LispList (List<LispObject> data, boolean test) {
     if (data == null || data.size() == 0) {
       return;
     }
-    if (data.get(0) == null) {
-      throw new InternalException(JelispBundle.message("null.element"));
+    int size = data.size();
+    LispObject tail = size == 1 ? null : data.get(size - 1);
+    for (int i = size - 2; i > 0; --i) {
+      tail = new LispList(checkElement(data.get(i)), tail, i != size - 2);
     }
-    myCar = data.get(0);
-    if (data.size() == 2) {
-      isTrueList = false;
-      myCdr = data.get(1);
-      return;
-    }
-    if (data.size() == 1) {
-      isTrueList = false;
-      myCdr = null;
-      return;
-    }
-    isTrueList = true;
-    myCdr = new LispList(data.subList(1, data.size()), true);
+    myCar = checkElement(data.get(0));
+    myCdr = tail;
+    isTrueList = size > 2;
   }
 
   private LispList (List<LispObject> data) {
@@ -71,14 +68,25 @@ public final class LispList implements LispSequence {
     if (data == null || data.size() == 0) {
       return;
     }
-    if (data.get(0) == null) {
-      throw new InternalException(JelispBundle.message("null.element"));
+    LispList tail = null;
+    for (int i = data.size() - 1; i > 0; --i) {
+      tail = new LispList(checkElement(data.get(i)), tail, true);
     }
-    myCar = data.get(0);
-    if (data.size() == 1) {
-      return;
+    myCar = checkElement(data.get(0));
+    myCdr = tail;
+  }
+
+  private LispList (LispObject car, @Nullable LispObject cdr, boolean trueList) {
+    myCar = car;
+    myCdr = cdr;
+    isTrueList = trueList;
+  }
+
+  private static LispObject checkElement (LispObject element) {
+    if (element == null) {
+      throw new InternalException(JelispBundle.message("null.element"));
     }
-    myCdr = new LispList(data.subList(1, data.size()));
+    return element;
   }
 
   private LispList (@NotNull LispObject car, @Nullable LispObject cdr) {
@@ -126,7 +134,7 @@ public final class LispList implements LispSequence {
     List<LispObject> args = myCdr instanceof LispList ? ((LispList)myCdr).toLispObjectList() : new ArrayList<LispObject>();
 
     if (function instanceof LispSymbol) {
-      return ((LispSymbol)function).evaluateFunction(environment, VoidFunctionException.class, args);
+      return ((LispSymbol)function).evaluateFunction(environment, VoidFunctionException.class, args, this);
     }
     if (function instanceof LispList) {
       function = new Lambda((LispList) function);
@@ -145,7 +153,7 @@ public final class LispList implements LispSequence {
       return ((Lambda)function).evaluate(environment, args);
     }
     if (function instanceof Primitive) {
-      return LispSubroutine.evaluate(((Primitive)function).getName(), environment, args);
+      return LispSubroutine.evaluate((Primitive) function, environment, args);
     }
     throw new InvalidFunctionException(function.toString());
   }
@@ -157,28 +165,20 @@ public final class LispList implements LispSequence {
   @Override
   public List<LispObject> toLispObjectList() {
     ArrayList<LispObject> list = new ArrayList<>();
-    if (isEmpty())
-      return list;
-    LispList cell = this;
-    do {
-      LispObject cdr = cell.realCdr();
-      if (cdr == null || (cdr instanceof LispList && cell.isTrueList())) {
-        if (cell.realCar() != null)
-          list.add(cell.realCar());
-      } else {
-        if (!cell.isTrueList()) {
-          list.add(cell);
-          break;
-        }
-        list.add(cell.car());
-        list.add(cdr);
-        break;
-      }
-      cell = (LispList) cdr;
-    } while (cell != null);
+    for (LispObject element: this) {
+      list.add(element);
+    }
     return list;
   }
 
+  /**
+   * walks the cells with no copying, yielding the same elements as {@link #toLispObjectList}
+   */
+  @Override
+  public Iterator<LispObject> iterator() {
+    return new ElementsIterator(this);
+  }
+
   @Override
   public List<LispObject> mapCar(Environment environment, LispObject method) {
     LispObject list = this;
@@ -195,14 +195,13 @@ public final class LispList implements LispSequence {
 
   @Override
   public String toCharString() {
-    List<LispObject> list = toLispObjectList();
-    String s = "";
-    for (LispObject element: list) {
+    StringBuilder s = new StringBuilder();
+    for (LispObject element: this) {
       if (!Predicate.isCharacter(element))
         throw new WrongTypeArgumentException("characterp", element);
-      s += ((LispInteger)element).toCharacterString();
+      s.append(((LispInteger)element).toCharacterString());
     }
-    return s;
+    return s.toString();
   }
 
   @Override
@@ -240,17 +239,20 @@ public final class LispList implements LispSequence {
 
   @Override
   public boolean equals(Object o) {
-    if (this == o) return true;
-    if (!(o instanceof LispList)) {
-      return o.equals(LispSymbol.NIL) && isEmpty();
+    LispList cell = this;
+    while (true) {
+      if (cell == o) return true;
+      if (!(o instanceof LispList)) {
+        return o.equals(LispSymbol.NIL) && cell.isEmpty();
+      }
+      LispList lispList = (LispList) o;
+      if (cell.myCar != null ? !cell.myCar.equals(lispList.myCar) : lispList.myCar != null)
+        return false;
+      if (!(cell.myCdr instanceof LispList && lispList.myCdr instanceof LispList))
+        return cell.myCdr != null ? cell.myCdr.equals(lispList.myCdr) : lispList.myCdr == null;
+      cell = (LispList) cell.myCdr;
+      o = lispList.myCdr;
     }
-    LispList lispList = (LispList) o;
-    if (myCar != null ? !myCar.equals(lispList.myCar) : lispList.myCar != null)
-      return false;
-    if (myCdr != null ? !myCdr.equals(lispList.myCdr) : lispList.myCdr != null)
-      return false;
-
-    return true;
   }
 
   @Override
@@ -320,13 +322,15 @@ public final class LispList implements LispSequence {
 
   @Override
   public int size() {
-    if (isEmpty())
-      return 0;
-    if (myCdr == null)
-      return 1;
-    if (!(myCdr instanceof LispList))
-      throw new WrongTypeArgumentException("listp", myCdr);
-    return 1 + ((LispList) myCdr).size();
+    int size = 0;
+    for (LispList cell = this; !cell.isEmpty(); cell = (LispList) cell.myCdr) {
+      ++size;
+      if (cell.myCdr == null)
+        break;
+      if (!(cell.myCdr instanceof LispList))
+        throw new WrongTypeArgumentException("listp", cell.myCdr);
+    }
+    return size;
   }
 
   public void setCdr (@Nullable LispObject cdr) {
@@ -370,7 +374,7 @@ public final class LispList implements LispSequence {
 
   //get (key . values) with key==first from associated list
   public LispObject assq (LispObject first) {
-    for (LispObject item: toLispObjectList()) {
+    for (LispObject item: this) {
       if (item instanceof LispList) {
         if (Core.eqs(first, ((LispList) item).realCar()))
           return item;
@@ -498,4 +502,55 @@ public final class LispList implements LispSequence {
       return (LispList) myCdr;
     throw new WrongTypeArgumentException("listp", myCdr);
   }
-}
\ No newline at end of file
+
+  private static final class ElementsIterator implements Iterator<LispObject> {
+    private LispList myCell;
+    private LispObject myNext = null;
+    private LispObject myDottedTail = null;
+
+    private ElementsIterator (LispList list) {
+      myCell = list.isEmpty() ? null : list;
+      advance();
+    }
+
+    private void advance() {
+      myNext = myDottedTail;
+      myDottedTail = null;
+      while (myNext == null && myCell != null) {
+        LispList cell = myCell;
+        LispObject cdr = cell.myCdr;
+        if (cdr == null || (cdr instanceof LispList && cell.isTrueList)) {
+          myNext = cell.myCar;
+          myCell = (LispList) cdr;
+          continue;
+        }
+        myCell = null;
+        if (!cell.isTrueList) {
+          myNext = cell;
+        } else {
+          myNext = cell.car();
+          myDottedTail = cdr;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return myNext != null;
+    }
+
+    @Override
+    public LispObject next() {
+      if (myNext == null)
+        throw new NoSuchElementException();
+      LispObject next = myNext;
+      advance();
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
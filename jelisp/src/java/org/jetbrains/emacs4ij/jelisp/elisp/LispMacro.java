@@ -15,15 +15,21 @@ import java.util.List;
  * To change this template use File | Settings | File Templates.
  */
 public final class LispMacro implements FunctionCell {
+  private final LispList myDefinition;
   private Lambda myLambda;
 
   public LispMacro(LispList def) {
+    myDefinition = def;
     List<LispObject> data = def.toLispObjectList();
-    if (!data.get(0).equals(new LispSymbol("macro")))
+    if (!data.get(0).equals(LispSymbol.MACRO))
       throw new InternalException(JelispBundle.message("wrong.def.form", "macro", def.toString()));
     myLambda = new Lambda(LispList.list(data.subList(1, data.size())));
   }
 
+  public LispList getDefinition() {
+    return myDefinition;
+  }
+
   public LispObject expand (Environment environment, List<LispObject> args) {
     return myLambda.evaluate(environment, args);
   }
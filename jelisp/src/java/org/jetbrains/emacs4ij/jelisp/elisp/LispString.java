@@ -91,7 +91,7 @@ public final class LispString implements LispAtom, LispSequence, LispArray, Stri
   public List<LispObject> toLispObjectList() {
     ArrayList<LispObject> data = new ArrayList<>();
     for (int i = 0; i < myData.length(); ++i) {
-      data.add(new LispInteger(myData.charAt(i)));
+      data.add(LispInteger.valueOf(myData.charAt(i)));
     }
     return data;
   }
@@ -155,7 +155,7 @@ public final class LispString implements LispAtom, LispSequence, LispArray, Stri
   @Override
   public LispObject getItem(int position) {
     char c = myData.charAt(position);
-    return new LispInteger(c);
+    return LispInteger.valueOf(c);
   }
 
   @Override
@@ -174,14 +174,14 @@ public final class LispString implements LispAtom, LispSequence, LispArray, Stri
     }
     String data = sb.toString();
     try {
-      return new LispInteger(Integer.valueOf(data, base));
+      return LispInteger.valueOf(Integer.valueOf(data, base));
     } catch (NumberFormatException e) {
       try {
         if (base != 10)
-          return new LispInteger(0);
+          return LispInteger.valueOf(0);
         return new LispFloat(Double.valueOf(data));
       } catch (NumberFormatException e2) {
-        return new LispInteger(0);
+        return LispInteger.valueOf(0);
       }
     }
   }
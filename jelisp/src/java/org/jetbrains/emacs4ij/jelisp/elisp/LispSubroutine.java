@@ -1,6 +1,7 @@
 package org.jetbrains.emacs4ij.jelisp.elisp;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.emacs4ij.jelisp.Environment;
 import org.jetbrains.emacs4ij.jelisp.GlobalEnvironment;
 import org.jetbrains.emacs4ij.jelisp.JelispBundle;
@@ -10,19 +11,13 @@ import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
 import org.jetbrains.emacs4ij.jelisp.exception.LispException;
 import org.jetbrains.emacs4ij.jelisp.exception.LispThrow;
 import org.jetbrains.emacs4ij.jelisp.exception.VoidVariableException;
-import org.jetbrains.emacs4ij.jelisp.exception.WrongNumberOfArgumentsException;
-import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
 import org.jetbrains.emacs4ij.jelisp.subroutine.*;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class LispSubroutine {
 
@@ -33,16 +28,9 @@ public abstract class LispSubroutine {
 
   private static Class[] mySpecialForms = new Class[] {SpecialForms.class};
 
-  private LispSubroutine() {}
+  private static Map<String, SubroutineDescriptor> ourRegistry = null;
 
-  private static boolean isOptional (Annotation[] parameterAnnotations) {
-    for (Annotation a: parameterAnnotations) {
-      if (a instanceof Optional) {
-        return true;
-      }
-    }
-    return false;
-  }
+  private LispSubroutine() {}
 
   public static Class[] getSubroutineContainers () {
     return (Class[]) ArrayUtils.addAll(myBuiltIns, mySpecialForms);
@@ -56,173 +44,118 @@ public abstract class LispSubroutine {
     return mySpecialForms;
   }
 
-  private static void setOptional(ArgumentsList arguments, Annotation[][] parametersAnnotations, Type[] parametersTypes) {
-    boolean optional = false;
-    int nRequiredParameters = parametersAnnotations.length;
-    for (int i=0; i!=parametersAnnotations.length; ++i) {
-      if (!optional) {
-        if (isOptional(parametersAnnotations[i])) {
-          nRequiredParameters = i;
-          optional = true;
-        }
+  private static void register (Map<String, SubroutineDescriptor> registry, Class<?>[] containers, Primitive.Type type) {
+    for (Class<?> c: containers) {
+      for (Method m: c.getMethods()) {
+        Subroutine annotation = m.getAnnotation(Subroutine.class);
+        if (annotation == null)
+          continue;
+        if (registry.containsKey(annotation.value()))
+          throw new InternalException("Duplicate built-in: " + annotation.value() + '!');
+        registry.put(annotation.value(), new SubroutineDescriptor(m, c, type));
       }
-      arguments.add(optional, parametersTypes[i]);
     }
-    arguments.setRequiredSize(nRequiredParameters);
   }
 
-  private static ArgumentsList parseArguments (Method m, Environment environment, List<LispObject> args) {
-    Type[] parametersTypes = m.getGenericParameterTypes();
-    Annotation[][] parametersAnnotations = m.getParameterAnnotations();
-    if (parametersAnnotations.length != parametersTypes.length) {
-      throw new InternalException(JelispBundle.message("subroutine.args.properties.mismatch"));
-    }
-    ArgumentsList arguments = new ArgumentsList();
-    setOptional(arguments, parametersAnnotations, parametersTypes);
-
-    int nActual = args.size();
-    if (parametersTypes.length != 0) {
-      if (parametersTypes[0].equals(Environment.class)) {
-        ++nActual;
-        arguments.setValue(0, environment);
-      }
+  /**
+   * scans subroutine containers once and remembers all found subroutines, so that they are never searched again
+   */
+  public static synchronized void initialize() {
+    if (ourRegistry != null)
+      return;
+    Map<String, SubroutineDescriptor> registry = new LinkedHashMap<>();
+    register(registry, myBuiltIns, Primitive.Type.BUILTIN);
+    register(registry, mySpecialForms, Primitive.Type.SPECIAL_FORM);
+    ourRegistry = registry;
+  }
+
+  private static Map<String, SubroutineDescriptor> getRegistry() {
+    if (ourRegistry == null)
+      initialize();
+    return ourRegistry;
+  }
+
+  public static List<SubroutineDescriptor> getDescriptors (Primitive.Type type) {
+    List<SubroutineDescriptor> descriptors = new ArrayList<>();
+    for (SubroutineDescriptor descriptor: getRegistry().values()) {
+      if (descriptor.getType() == type)
+        descriptors.add(descriptor);
     }
+    return descriptors;
+  }
 
-    if ((nActual < arguments.getRequiredSize()) || (nActual > parametersTypes.length && !m.isVarArgs()))
-      throw new WrongNumberOfArgumentsException(m.getAnnotation(Subroutine.class).value(), nActual);
+  @NotNull
+  public static SubroutineDescriptor getDescriptor (String name) {
+    SubroutineDescriptor descriptor = getRegistry().get(name);
+    if (descriptor == null)
+      throw new InternalException(JelispBundle.message("unknown.subroutine", name));
+    return descriptor;
+  }
 
-    return arguments;
+  private static Throwable getCause (Throwable e) {
+    if (e.getCause() == null)
+      return e;
+    return getCause(e.getCause());
   }
 
-  private static int checkParameterizedType (String subroutineName, ParameterizedType expectedType,
-                                             ArgumentsList arguments, List<LispObject> args, int argsCounter, int i) {
-    Type rawType = expectedType.getRawType();
-    Type expectedTypeArguments = expectedType.getActualTypeArguments()[0];
-    try {
-      if (((Class)rawType).isInstance(args.get(argsCounter))) {
-        Type actualTypeArguments = ((ParameterizedType) (Type)args.get(argsCounter).getClass()).getActualTypeArguments()[0];
-        if (!expectedTypeArguments.equals(actualTypeArguments)) {
-          throw new WrongTypeArgumentException(((Class) rawType).getSimpleName()+"<"+((Class)expectedTypeArguments).getSimpleName()+">", args.get(argsCounter));
-        }
-        arguments.setValue(i, args.get(argsCounter));
-        return argsCounter + 1;
-      } else {
-        if (arguments.isOptional(i))
-          return -1;
-        throw new WrongTypeArgumentException(expectedType.toString(), args.get(argsCounter));
-      }
-    } catch (IndexOutOfBoundsException e) {
-      if (arguments.isOptional(i))
-        return -1;
-      throw new WrongNumberOfArgumentsException(subroutineName, i);
-    }
+  public static LispObject evaluate (String name, Environment environment, List<LispObject> args) {
+    return evaluate(getDescriptor(name), environment, args);
   }
 
-  private static <T> T[] customizeArrayList(Class<T> type, ArrayList<LispObject> array) {
-    return array.toArray((T[]) Array.newInstance(type, array.size()));
+  public static LispObject evaluate (Primitive primitive, Environment environment, List<LispObject> args) {
+    return evaluate(primitive.getDescriptor(), environment, args);
   }
 
-  private static int checkArray (Class expectedType, ArgumentsList arguments, List<LispObject> args, int argsCounter, int i) {
-    Class componentType = expectedType.getComponentType();
-    ArrayList<LispObject> array = new ArrayList<>();
-    while (argsCounter != args.size()) {
-      if (!componentType.isInstance(args.get(argsCounter)))
-        throw new WrongTypeArgumentException(componentType.toString(), args.get(argsCounter));
-      array.add(args.get(argsCounter));
-      ++argsCounter;
+  private static Object invoke (SubroutineDescriptor descriptor, int n, Environment environment, List<LispObject> args) throws Throwable {
+    ArgumentsChecker checker = descriptor.getArgumentsChecker();
+    SubroutineInvoker invoker = descriptor.getInvoker();
+    switch (invoker.getArity()) {
+      case 0:
+        return invoker.invoke();
+      case 1:
+        return invoker.invoke(checker.getValue(0, n, environment, args));
+      case 2:
+        return invoker.invoke(checker.getValue(0, n, environment, args), checker.getValue(1, n, environment, args));
+      case 3:
+        return invoker.invoke(checker.getValue(0, n, environment, args), checker.getValue(1, n, environment, args),
+            checker.getValue(2, n, environment, args));
+      case 4:
+        return invoker.invoke(checker.getValue(0, n, environment, args), checker.getValue(1, n, environment, args),
+            checker.getValue(2, n, environment, args), checker.getValue(3, n, environment, args));
+      default:
+        return invoker.invoke(checker.getValues(n, environment, args));
     }
-    arguments.setValue(i, customizeArrayList(componentType, array));
-    return argsCounter;
   }
 
-  private static int checkSingleArgument (String subroutineName, Class expectedType, ArgumentsList arguments,
-                                          List<LispObject> args, int argsCounter, int i) {
-    try {
-      if (!(expectedType.isInstance(args.get(argsCounter)))) {
-        if (expectedType.equals(LispList.class) && args.get(argsCounter).equals(LispSymbol.NIL)) {
-          arguments.setValue(i, LispList.list());
-          return argsCounter + 1;
-        }
-        if (expectedType.equals(LispSymbol.class) && args.get(argsCounter).equals(LispSymbol.NIL)) {
-          arguments.setValue(i, LispSymbol.NIL);
-          return argsCounter + 1;
+  private static LispObject evaluate (SubroutineDescriptor descriptor, Environment environment, List<LispObject> args) {
+    if (!descriptor.isSpecialForm()) {
+      if (!environment.areArgumentsEvaluated()) {
+        for (int i = 0, dataSize = args.size(); i < dataSize; i++) {
+          args.set(i, args.get(i).evaluate(environment));
         }
-        if (arguments.isOptional(i))
-          return -1;
-        throw new WrongTypeArgumentException(expectedType.getSimpleName(), args.get(argsCounter));
+      } else {
+        environment.setArgumentsEvaluated(false);
       }
-      arguments.setValue(i, args.get(argsCounter));
-      return argsCounter + 1;
-    } catch (IndexOutOfBoundsException e) {
-      if (arguments.isOptional(i))
-        return -1;
-      throw new WrongNumberOfArgumentsException(subroutineName, i);
     }
-  }
+    int n = descriptor.getArgumentsChecker().check(args);
+    try {
+      return (LispObject) invoke(descriptor, n, environment, args);
+    } catch (Throwable e) {
+      Throwable cause = getCause(e);
 
-  private static void checkArguments (String subroutineName, ArgumentsList arguments, List<LispObject> args) {
-    int argsCounter = 0;
-    for (int i=0; i != arguments.getSize(); ++i) {
-      Type expectedType = arguments.getType(i);
-      if (i==0 && expectedType.equals(Environment.class))
-        continue;
-      if (ParameterizedType.class.isInstance(expectedType)) {
-        argsCounter = checkParameterizedType(subroutineName, (ParameterizedType) expectedType, arguments, args, argsCounter, i);
-      } else if (((Class)expectedType).isArray()) {
-        argsCounter = checkArray((Class) expectedType, arguments, args, argsCounter, i);
-      }
-      else {
-        argsCounter = checkSingleArgument(subroutineName, (Class) expectedType, arguments, args, argsCounter, i);
+      if (cause instanceof LispThrow)
+        throw (LispThrow) cause;
+
+      if (cause instanceof VoidVariableException && TestMode.TEST && descriptor.getContainer() == Key.class) {
+        LogUtil.log("Skip keymap errors in test mode", GlobalEnvironment.MessageType.ERROR);
+        return LispSymbol.NIL;
       }
-      if (argsCounter == -1)
-        break;
-    }
-  }
 
-  private static Throwable getCause (Throwable e) {
-    if (e.getCause() == null)
-      return e;
-    return getCause(e.getCause());
-  }
+      if (cause instanceof LispException)
+        throw (LispException) cause;
 
-  public static LispObject evaluate (String name, Environment environment, List<LispObject> args) {
-    for (Class c: getSubroutineContainers()) {
-      for (Method m: c.getMethods()) {
-        Subroutine annotation = m.getAnnotation(Subroutine.class);
-        if (annotation == null || !annotation.value().equals(name))
-          continue;
-        if (!Arrays.asList(mySpecialForms).contains(c)) {
-          if (!environment.areArgumentsEvaluated()) {
-            for (int i = 0, dataSize = args.size(); i < dataSize; i++) {
-              args.set(i, args.get(i).evaluate(environment));
-            }
-          } else {
-            environment.setArgumentsEvaluated(false);
-          }
-        }
-        ArgumentsList arguments = parseArguments(m, environment, args);
-        checkArguments(name, arguments, args);
-        try {
-          return (LispObject) m.invoke(null, arguments.getValues());
-        } catch (IllegalAccessException | InvocationTargetException e) {
-          Throwable cause = getCause(e);
-
-          if (cause instanceof LispThrow)
-            throw (LispThrow) cause;
-
-          if (cause instanceof VoidVariableException && TestMode.TEST && c == Key.class) {
-            LogUtil.log("Skip keymap errors in test mode", GlobalEnvironment.MessageType.ERROR);
-            return LispSymbol.NIL;
-          }
-
-          if (cause instanceof LispException)
-            throw (LispException) cause;
-
-          LogUtil.log("Unrecognized exception", e);
-          throw new LispException(cause.getMessage());
-        }
-      }
+      LogUtil.log("Unrecognized exception", e);
+      throw new LispException(cause.getMessage());
     }
-    throw new InternalException(JelispBundle.message("unknown.subroutine", name));
   }
 }
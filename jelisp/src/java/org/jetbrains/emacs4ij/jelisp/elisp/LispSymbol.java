@@ -23,19 +23,30 @@ import org.jetbrains.emacs4ij.jelisp.subroutine.Core;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Predicate;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Symbol;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * elisp symbol = variable name, function name, constant name, special form name, etc
  */
 public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, KeymapCell {
+  /**
+   * the obarray of names: all symbols with equal names share one name string,
+   * so symbols and environment keys are compared by reference.
+   * A name is held only by the symbols and keys using it, it is dropped when they are collected.
+   */
+  private static final Map<String, WeakReference<String>> ourNames = new WeakHashMap<>();
+
   public static final LispSymbol NIL = new LispSymbol("nil");
   public static final LispSymbol T = new LispSymbol("t");
   public static final LispSymbol VOID = new LispSymbol("void");
+  public static final LispSymbol LAMBDA = new LispSymbol("lambda");
+  public static final LispSymbol MACRO = new LispSymbol("macro");
 
   private String myName = null;
   private Map<LispSymbol, LispObject> myProperties = new HashMap<>();
@@ -48,12 +59,12 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
   private boolean isConstant = false;
 
   public LispSymbol(String name) {
-    myName = name;
+    myName = intern(name);
   }
 
   public LispSymbol(boolean constant, String name) {
     isConstant = constant;
-    myName = name;
+    myName = intern(name);
   }
 
   public LispSymbol (LispSymbol symbol) {
@@ -78,6 +89,22 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
     myAliases = symbol.myAliases;
   }
 
+  /**
+   * @return the canonical instance of the name
+   */
+  public static String intern (String name) {
+    if (name == null)
+      return null;
+    synchronized (ourNames) {
+      WeakReference<String> reference = ourNames.get(name);
+      String canonical = reference == null ? null : reference.get();
+      if (canonical != null)
+        return canonical;
+      ourNames.put(name, new WeakReference<>(name));
+      return name;
+    }
+  }
+
   public static LispSymbol bool(boolean value) {
     return value ? LispSymbol.T : LispSymbol.NIL;
   }
@@ -87,23 +114,23 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
   }
 
   public LispSymbol(String name, boolean bufferLocal) {
-    myName = name;
+    myName = intern(name);
     isBufferLocal = bufferLocal;
   }
 
   public LispSymbol (String name, LispObject value) {
-    myName = name;
+    myName = intern(name);
     myValue = value;
   }
 
   public LispSymbol (boolean constant, String name, LispObject value) {
     isConstant = constant;
-    myName = name;
+    myName = intern(name);
     myValue = value;
   }
 
   public LispSymbol (String name, LispObject value, boolean bufferLocal) {
-    myName = name;
+    myName = intern(name);
     myValue = value;
     isBufferLocal = bufferLocal;
   }
@@ -116,6 +143,10 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
     isBufferLocal = bufferLocal;
   }
 
+  public boolean isConstant() {
+    return isConstant;
+  }
+
   public void setConstant() {
     isConstant = true;
   }
@@ -219,7 +250,7 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
   }
 
   public boolean isCustom() {
-    return ((myFunction instanceof LispList && ((LispList)myFunction).car().equals(new LispSymbol("lambda")))
+    return ((myFunction instanceof LispList && ((LispList)myFunction).car().equals(LAMBDA))
         || myFunction instanceof Lambda);
   }
 
@@ -228,7 +259,7 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
   }
 
   public boolean isMacro() {
-    return ((myFunction instanceof LispList && ((LispList)myFunction).car().equals(new LispSymbol("macro")))
+    return ((myFunction instanceof LispList && ((LispList)myFunction).car().equals(MACRO))
         || myFunction instanceof LispMacro);
   }
 
@@ -244,8 +275,7 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
       return true;
     if (o.getClass() != getClass())
       return false;
-    LispSymbol that = (LispSymbol) o;
-    return !(myName != null ? !myName.equals(that.myName) : that.myName != null);
+    return myName == ((LispSymbol) o).myName;
   }
 
   @Override
@@ -338,7 +368,7 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
     GlobalEnvironment.ourCallStack.push(new Pair<>(myName, args));
   }
 
-  public LispSymbol uploadFunctionDefinition (Environment environment, Class exception) {
+  public LispSymbol uploadFunctionDefinition (Environment environment, Class<?> exception) {
     if (isFunction())
       return this;
     LispSymbol symbol = GlobalEnvironment.INSTANCE.find(myName);
@@ -363,12 +393,21 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
     return symbol;
   }
 
-  public LispObject evaluateFunction (Environment environment, Class exception, @Nullable List<LispObject> args) {
+  public LispObject evaluateFunction (Environment environment, Class<?> exception, @Nullable List<LispObject> args) {
+    return evaluateFunction(environment, exception, args, null);
+  }
+
+  /**
+   * @param callSite the form being evaluated, if any: macro expansions are cached by it
+   */
+  public LispObject evaluateFunction (Environment environment, Class<?> exception, @Nullable List<LispObject> args,
+                                      @Nullable LispList callSite) {
     LispSymbol trueFunction = uploadFunctionDefinition(environment, exception);
-    return trueFunction.eval(environment, exception, args);
+    return trueFunction.eval(environment, exception, args, callSite);
   }
 
-  private LispObject eval (Environment environment, Class exception, @Nullable List<LispObject> args) {
+  private LispObject eval (Environment environment, Class<?> exception, @Nullable List<LispObject> args,
+                           @Nullable LispList callSite) {
     pushToCallStack(args);
 
     try {
@@ -382,17 +421,17 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
       if (args == null) args = new ArrayList<>();
 
       if (isSubroutine()) {
-        return LispSubroutine.evaluate(myName, environment, args);
+        return LispSubroutine.evaluate((Primitive) myFunction, environment, args);
       }
       if (isMacro()) {
-        return evaluateMacro(environment, args);
+        return evaluateMacro(environment, args, callSite);
       }
       if (isFunctionAlias()) {
-        return ((LispSymbol)myFunction).evaluateFunction(environment, exception, args);
+        return ((LispSymbol)myFunction).evaluateFunction(environment, exception, args, callSite);
       }
       if (isAutoload()) {
         uploadAutoload();
-        return eval(environment, exception, args);
+        return eval(environment, exception, args, callSite);
       }
       return evaluateCustomFunction(environment, args);
     }
@@ -411,8 +450,19 @@ public final class LispSymbol implements LispAtom, LambdaOrSymbolWithFunction, K
     }
   }
 
-  private LispObject evaluateMacro(Environment environment, List<LispObject> args) {
-    return macroExpand(environment, args).evaluate(environment);
+  private LispObject evaluateMacro(Environment environment, List<LispObject> args, @Nullable LispList callSite) {
+    if (callSite == null)
+      return macroExpand(environment, args).evaluate(environment);
+    castToMacro();
+    if (!(myFunction instanceof LispMacro))
+      throw new InternalException(JelispBundle.message("wrong.macro", myName));
+    LispMacro macro = (LispMacro) myFunction;
+    LispObject expansion = MacroExpansionCache.get(callSite, macro);
+    if (expansion == null) {
+      expansion = macro.expand(environment, args);
+      MacroExpansionCache.put(callSite, macro, expansion);
+    }
+    return expansion.evaluate(environment);
   }
 
   private LispObject evaluateCustomFunction (Environment environment, List<LispObject> args) {
@@ -152,7 +152,7 @@ public final class LispVector implements LispObject, LispSequence, LispArray, St
    * @param symbol to set
    */
   public void defineSymbol (LispSymbol symbol) {
-    LispInteger zero = new LispInteger(0);
+    LispInteger zero = LispInteger.valueOf(0);
     for (int i = 0; i < myData.size() - 1; ++i) {
       if (myData.get(i + 1).equals(zero)) {
         myData.set(i, symbol);
@@ -0,0 +1,67 @@
+package org.jetbrains.emacs4ij.jelisp.elisp;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * expansions of macro calls by call-site form.
+ * Forms are compared by identity and referenced weakly, so a form which is no longer reachable
+ * drops its expansion. An expansion is valid only for the very macro object which produced it:
+ * redefinition with defmacro, fset or defalias installs another one.
+ */
+final class MacroExpansionCache {
+  private static final ReferenceQueue<LispList> ourQueue = new ReferenceQueue<>();
+  private static final Map<CallSite, Expansion> ourExpansions = new HashMap<>();
+
+  private MacroExpansionCache() {}
+
+  static synchronized LispObject get (LispList callSite, LispMacro macro) {
+    Expansion expansion = ourExpansions.get(new CallSite(callSite, null));
+    return expansion == null || expansion.myMacro != macro ? null : expansion.myForm;
+  }
+
+  static synchronized void put (LispList callSite, LispMacro macro, LispObject form) {
+    expungeStaleEntries();
+    ourExpansions.put(new CallSite(callSite, ourQueue), new Expansion(macro, form));
+  }
+
+  private static void expungeStaleEntries() {
+    for (Object stale = ourQueue.poll(); stale != null; stale = ourQueue.poll()) {
+      ourExpansions.remove(stale);
+    }
+  }
+
+  private static final class Expansion {
+    private final LispMacro myMacro;
+    private final LispObject myForm;
+
+    private Expansion (LispMacro macro, LispObject form) {
+      myMacro = macro;
+      myForm = form;
+    }
+  }
+
+  private static final class CallSite extends WeakReference<LispList> {
+    private final int myHash;
+
+    private CallSite (LispList form, ReferenceQueue<LispList> queue) {
+      super(form, queue);
+      myHash = System.identityHashCode(form);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof CallSite)) return false;
+      LispList form = get();
+      return form != null && form == ((CallSite) o).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return myHash;
+    }
+  }
+}
@@ -1,13 +1,8 @@
 package org.jetbrains.emacs4ij.jelisp.elisp;
 
 import org.jetbrains.emacs4ij.jelisp.Environment;
-import org.jetbrains.emacs4ij.jelisp.JelispBundle;
-import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Subroutine;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-
 /**
  * Created by IntelliJ IDEA.
  * User: kate
@@ -21,7 +16,8 @@ public final class Primitive implements FunctionCell, LispCommand {
     private final boolean isInteractive;
     private final String myInteractiveString;
     private final Type myType;
-    
+    private final SubroutineDescriptor myDescriptor;
+
     private int myMinNumArgs = -1;
     private LispObject myMaxNumArgs = null;
 
@@ -34,12 +30,14 @@ public final class Primitive implements FunctionCell, LispCommand {
 
     public enum Type {BUILTIN, SPECIAL_FORM}
 
-    public Primitive (Subroutine annotation, String documentation, Type type) {
+    public Primitive (SubroutineDescriptor descriptor, String documentation) {
+        Subroutine annotation = descriptor.getAnnotation();
+        myDescriptor = descriptor;
         myName = annotation.value();
         isInteractive = annotation.isCmd();
         myInteractiveString = annotation.interactive();
         myDocumentation = documentation == null ? null : new LispString(documentation);
-        myType = type;
+        myType = descriptor.getType();
         countMinMaxNumArgs();
     }
 
@@ -90,58 +88,18 @@ public final class Primitive implements FunctionCell, LispCommand {
         return this;
     }
 
+    public SubroutineDescriptor getDescriptor() {
+        return myDescriptor;
+    }
+
     public void countMinMaxNumArgs() {
-        Class[] containers;
-        if (myType == Type.SPECIAL_FORM) {
+        myMinNumArgs = myDescriptor.getMinNumArgs();
+        if (myType == Type.SPECIAL_FORM)
             myMaxNumArgs = new LispSymbol("unevalled");
-            containers = LispSubroutine.getSpecialFormsClasses();
-        } else {
-            containers = LispSubroutine.getBuiltinsClasses();
-        }
-        for (Class c: containers) {
-            Method[] methods = c.getMethods();
-            for (Method m: methods) {
-                Subroutine annotation = m.getAnnotation(Subroutine.class);
-                if (annotation == null)
-                    continue;
-                if (annotation.value().equals(myName)) {
-                    java.lang.reflect.Type[] parametersTypes = m.getGenericParameterTypes();
-                    Annotation[][] parametersAnnotations = m.getParameterAnnotations();
-                    if (parametersAnnotations.length != parametersTypes.length) {
-                        throw new InternalException(JelispBundle.message("subroutine.args.properties.mismatch"));
-                    }
-                    if (parametersTypes.length == 0) {
-                        myMinNumArgs = 0;
-                        if (myMaxNumArgs == null)
-                            myMaxNumArgs = new LispInteger(0);
-                        return;
-                    }
-
-                    int correction = parametersTypes[0].equals(Environment.class) ? -1 : 0;
-
-                    boolean optional = false;
-                    for (int i = 0; i != parametersTypes.length; ++i) {
-                        if (!optional) {
-                            if (parametersAnnotations[i].length > 0 && parametersAnnotations[i][0] instanceof Optional) {
-                                optional = true;
-                                myMinNumArgs = i + correction;
-                            }
-                        }
-                        if (((Class)parametersTypes[i]).isArray()) {
-                            if (myMaxNumArgs == null)
-                                myMaxNumArgs = new LispSymbol("many");
-                        }
-                    }
-                    if (myMinNumArgs == -1)
-                        myMinNumArgs = parametersTypes.length + correction;
-                    if (myMaxNumArgs == null)
-                        myMaxNumArgs = new LispInteger(parametersTypes.length + correction);
-                    
-                    return;
-                }
-            }
-        }
-        throw new InternalException(JelispBundle.message("count.primitive.args.error", myName));
+        else if (myDescriptor.getMaxNumArgs() == -1)
+            myMaxNumArgs = new LispSymbol("many");
+        else
+            myMaxNumArgs = LispInteger.valueOf(myDescriptor.getMaxNumArgs());
     }
 
     public LispObject getMaxNumArgs() {
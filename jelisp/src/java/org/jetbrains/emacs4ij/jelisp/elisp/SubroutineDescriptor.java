@@ -0,0 +1,100 @@
+package org.jetbrains.emacs4ij.jelisp.elisp;
+
+import org.jetbrains.emacs4ij.jelisp.Environment;
+import org.jetbrains.emacs4ij.jelisp.JelispBundle;
+import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
+import org.jetbrains.emacs4ij.jelisp.subroutine.Subroutine;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * everything LispSubroutine needs to call a built-in function or special form,
+ * computed once per @Subroutine method when the subroutine registry is built
+ */
+public final class SubroutineDescriptor {
+  private final Subroutine myAnnotation;
+  private final SubroutineInvoker myInvoker;
+  private final ArgumentsChecker myArgumentsChecker;
+  private final Class<?> myContainer;
+  private final Primitive.Type myType;
+  private final Type[] myParameterTypes;
+  private final boolean myEnvironmentRequired;
+  private final boolean isVarArgs;
+  private final int myNRequiredParameters;
+
+  SubroutineDescriptor (Method method, Class<?> container, Primitive.Type type) {
+    myInvoker = new SubroutineInvoker(method);
+    myContainer = container;
+    myType = type;
+    myAnnotation = method.getAnnotation(Subroutine.class);
+    myParameterTypes = method.getGenericParameterTypes();
+    Annotation[][] parametersAnnotations = method.getParameterAnnotations();
+    if (parametersAnnotations.length != myParameterTypes.length) {
+      throw new InternalException(JelispBundle.message("subroutine.args.properties.mismatch"));
+    }
+    myEnvironmentRequired = myParameterTypes.length != 0 && myParameterTypes[0].equals(Environment.class);
+    isVarArgs = method.isVarArgs();
+    int nRequired = myParameterTypes.length;
+    for (int i = 0; i != parametersAnnotations.length; ++i) {
+      if (isOptional(parametersAnnotations[i])) {
+        nRequired = i;
+        break;
+      }
+    }
+    myNRequiredParameters = nRequired;
+    myArgumentsChecker = new ArgumentsChecker(getName(), myParameterTypes, myNRequiredParameters, isVarArgs);
+  }
+
+  private static boolean isOptional (Annotation[] parameterAnnotations) {
+    for (Annotation a: parameterAnnotations) {
+      if (a instanceof Optional) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public String getName() {
+    return myAnnotation.value();
+  }
+
+  public Subroutine getAnnotation() {
+    return myAnnotation;
+  }
+
+  public Primitive.Type getType() {
+    return myType;
+  }
+
+  public boolean isSpecialForm() {
+    return myType == Primitive.Type.SPECIAL_FORM;
+  }
+
+  SubroutineInvoker getInvoker() {
+    return myInvoker;
+  }
+
+  ArgumentsChecker getArgumentsChecker() {
+    return myArgumentsChecker;
+  }
+
+  Class<?> getContainer() {
+    return myContainer;
+  }
+
+  /**
+   * @return the minimum number of lisp arguments the subroutine accepts
+   */
+  public int getMinNumArgs() {
+    return myNRequiredParameters - (myEnvironmentRequired ? 1 : 0);
+  }
+
+  /**
+   * @return the maximum number of lisp arguments the subroutine accepts or -1 if it takes &rest arguments
+   */
+  public int getMaxNumArgs() {
+    return isVarArgs ? -1 : myParameterTypes.length - (myEnvironmentRequired ? 1 : 0);
+  }
+}
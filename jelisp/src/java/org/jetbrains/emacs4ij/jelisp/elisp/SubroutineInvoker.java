@@ -0,0 +1,58 @@
+package org.jetbrains.emacs4ij.jelisp.elisp;
+
+import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * calls a subroutine through a method handle of erased (Object, ...)Object type.
+ * Subroutines with up to 4 parameters can be called with no argument array at all,
+ * and exceptions thrown by the subroutine come out as they are, not wrapped.
+ */
+final class SubroutineInvoker {
+  private final MethodHandle myHandle;
+  private final MethodHandle mySpreader;
+  private final int myArity;
+
+  SubroutineInvoker (Method method) {
+    myArity = method.getParameterTypes().length;
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+      myHandle = handle.asType(MethodType.genericMethodType(myArity));
+      mySpreader = myHandle.asSpreader(Object[].class, myArity);
+    } catch (IllegalAccessException e) {
+      throw new InternalException(e.getMessage());
+    }
+  }
+
+  int getArity() {
+    return myArity;
+  }
+
+  Object invoke() throws Throwable {
+    return (Object) myHandle.invokeExact();
+  }
+
+  Object invoke (Object a) throws Throwable {
+    return (Object) myHandle.invokeExact(a);
+  }
+
+  Object invoke (Object a, Object b) throws Throwable {
+    return (Object) myHandle.invokeExact(a, b);
+  }
+
+  Object invoke (Object a, Object b, Object c) throws Throwable {
+    return (Object) myHandle.invokeExact(a, b, c);
+  }
+
+  Object invoke (Object a, Object b, Object c, Object d) throws Throwable {
+    return (Object) myHandle.invokeExact(a, b, c, d);
+  }
+
+  Object invoke (Object[] values) throws Throwable {
+    return (Object) mySpreader.invokeExact(values);
+  }
+}
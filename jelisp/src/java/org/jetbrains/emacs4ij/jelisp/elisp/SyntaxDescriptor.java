@@ -1,5 +1,6 @@
 package org.jetbrains.emacs4ij.jelisp.elisp;
 
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.emacs4ij.jelisp.JelispBundle;
 import org.jetbrains.emacs4ij.jelisp.exception.InternalException;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Core;
@@ -60,8 +61,8 @@ public final class SyntaxDescriptor {
     int syntaxCode = makeFullSyntaxCode(string);
     char matchingCharacter = string.length() > 1 ?  string.charAt(1) : ' ';
     return matchingCharacter == ' '
-        ? LispList.list(new LispInteger(syntaxCode))
-        : LispList.cons(new LispInteger(syntaxCode), new LispInteger(matchingCharacter));
+        ? LispList.list(LispInteger.valueOf(syntaxCode))
+        : LispList.cons(LispInteger.valueOf(syntaxCode), LispInteger.valueOf(matchingCharacter));
   }
 
   public static int getSyntaxClass (ClassType type) {
@@ -69,12 +70,12 @@ public final class SyntaxDescriptor {
   }
 
   public static LispList toSyntaxTableEntry (ClassType type) {
-    return LispList.list(new LispInteger(getSyntaxClass(type)));
+    return LispList.list(LispInteger.valueOf(getSyntaxClass(type)));
   }
 
   static LispList toSyntaxTableEntry (ClassType type, char matchingCharacter) {
-    return LispList.cons(new LispInteger(getSyntaxClass(type)),
-        new LispInteger(matchingCharacter));
+    return LispList.cons(LispInteger.valueOf(getSyntaxClass(type)),
+        LispInteger.valueOf(matchingCharacter));
   }
 
   private static int getFlagShift (FlagType type) {
@@ -95,6 +96,12 @@ public final class SyntaxDescriptor {
     return ClassType.values()[syntaxClass];
   }
 
+  @Nullable
+  public static ClassType getSyntaxClassByChar (char c) {
+    Integer syntaxClass = ourSyntaxClassMap.get(c);
+    return syntaxClass == null ? null : ClassType.values()[syntaxClass];
+  }
+
   public static char getSyntaxClassChar(ClassType type) {
     for (Map.Entry<Character, Integer> entry: ourSyntaxClassMap.entrySet()) {
       if (ClassType.values()[entry.getValue()] == type)
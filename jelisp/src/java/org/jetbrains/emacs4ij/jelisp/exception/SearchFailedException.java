@@ -0,0 +1,12 @@
+package org.jetbrains.emacs4ij.jelisp.exception;
+
+import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
+
+@Error("search-failed")
+public class SearchFailedException extends LispException {
+  private static final long serialVersionUID = 1L;
+
+  public SearchFailedException(LispString regexp) {
+    super("'(search-failed " + regexp.toString() + ')');
+  }
+}
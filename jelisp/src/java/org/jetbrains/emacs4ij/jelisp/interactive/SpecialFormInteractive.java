@@ -151,7 +151,7 @@ public final class SpecialFormInteractive extends InteractiveReader {
         myEnvironment.getMinibuffer().setCharListener();
         break;
       case 'd': // -- Value of point as number. Does not do I/O.
-        addArg(new LispInteger(myEnvironment.getBufferCurrentForEditing().point()));
+        addArg(LispInteger.valueOf(myEnvironment.getBufferCurrentForEditing().point()));
         notifyMiniBuffer();
         return;
       case 'D': // -- Directory name.
@@ -181,7 +181,7 @@ public final class SpecialFormInteractive extends InteractiveReader {
       case 'K': // -- Key sequence to be redefined (do not downcase the last event).
         throw new NotImplementedException("K character not implemented");
       case 'm': // -- Value of mark as number. Does not do I/O.
-        addArg(new LispInteger(getMarkPosition(JelispBundle.message("no.mark"))));
+        addArg(LispInteger.valueOf(getMarkPosition(JelispBundle.message("no.mark"))));
         notifyMiniBuffer();
         return;
       case 'N': // -- Numeric prefix arg, or if none, do like code `n'.
@@ -205,8 +205,8 @@ public final class SpecialFormInteractive extends InteractiveReader {
         int mark = getMarkPosition(JelispBundle.message("no.mark.no.region"));
         int min = point < mark ? point : mark;
         int max = point < mark ? mark : point;
-        addArg(new LispInteger(min));
-        addArg(new LispInteger(max));
+        addArg(LispInteger.valueOf(min));
+        addArg(LispInteger.valueOf(max));
         notifyMiniBuffer();
         return;
       case 'S': // -- Any symbol.
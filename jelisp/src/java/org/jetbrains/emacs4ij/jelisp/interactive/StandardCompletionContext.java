@@ -43,7 +43,7 @@ class StandardCompletionContext extends CompletionContext {
         }
         break;
       case 'c': // -- Character
-        return new LispInteger(Integer.parseInt(parameter));
+        return LispInteger.valueOf(Integer.parseInt(parameter));
       case 'C': //command
         LispSymbol cmd = environment.find(parameter);
         if (cmd != null && Predicate.commandp(cmd, null).equals(LispSymbol.T))
@@ -106,11 +106,11 @@ class StandardCompletionContext extends CompletionContext {
       case 'n': // -- Number read using minibuffer.
         try {
           int n = Integer.parseInt(parameter);
-          return new LispInteger(n);
+          return LispInteger.valueOf(n);
         } catch (NumberFormatException e1) {
           try {
             int n = (int) Double.parseDouble(parameter);
-            return new LispInteger(n);
+            return LispInteger.valueOf(n);
           } catch (NumberFormatException e2) {
             myNoMatchMessage = JelispBundle.message("number.no.match.msg");
             //todo: don't show prompt
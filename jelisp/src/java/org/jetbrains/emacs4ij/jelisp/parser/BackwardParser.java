@@ -8,10 +8,6 @@ import org.jetbrains.emacs4ij.jelisp.parser.exception.EndOfLineException;
 import org.jetbrains.emacs4ij.jelisp.parser.exception.ScanException;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Core;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 class BackwardParser extends Parser {
   private ForwardParser myForwardParser = new ForwardParser();
 
@@ -29,6 +25,11 @@ class BackwardParser extends Parser {
     return myCurrentIndex;
   }
 
+  @Override
+  protected boolean isEndOfLine() {
+    return myCurrentIndex < 0;
+  }
+
   @Override
   protected char getNextChar() {
     return myLispCode.charAt(getMyCurrentIndex() - 1);
@@ -40,8 +41,12 @@ class BackwardParser extends Parser {
   }
 
   @Override
-  protected int getNextIndexOfItem(List<Character> items) {
-    return Collections.max(getItemsIndexes(items));
+  protected int getNextSeparatorIndex() {
+    for (int i = myCurrentIndex; i >= 0; --i) {
+      if (CharClass.isSeparator(myLispCode.charAt(i)) && !isEscaped(i))
+        return i;
+    }
+    return -1;
   }
 
   private String extractSymmetricForm(char formStart, char formEnd) {
@@ -49,60 +54,41 @@ class BackwardParser extends Parser {
     int n = 1;
     int end = getMyCurrentIndex() + 1;
     while (true) {
-      try {
-        advance();
-        if (getCurrentChar() == formStart) {
-          n--;
-        } else if (getCurrentChar() == formEnd) {
-          n++;
-        }
-
-        if (n == 0) {
-          int start = getMyCurrentIndex();
-          form = myLispCode.substring(start, end) + form;
-          advanceTo(start - 1);
-          if (myCurrentIndex > -1) {
-            int k = getNextSeparatorIndex();
-            form = myLispCode.substring(k + 1, start) + form;
-            advanceTo(k);
-          }
-          return form;
-        }
-      } catch (EndOfLineException e) {
+      if (myCurrentIndex == 0) {
         if (countObservers() == 0)
           throw new ScanException(JelispBundle.message("unbalanced.parentheses"));
-        form = myLispCode.substring(0, end) + form;
+        form = substring(0, end) + form;
         setChanged();
         notifyObservers(JelispBundle.message("unbalanced.parentheses"));
         clearChanged();
         end = myCurrentIndex + 1;
+        continue;
+      }
+      advance();
+      char c = myLispCode.charAt(myCurrentIndex);
+      if (c == formStart) {
+        n--;
+      } else if (c == formEnd) {
+        n++;
       }
-    }
-  }
-
-  @Override
-  protected int getNextIndexOf (char what) {
-    return getNextIndex(what, getMyCurrentIndex());
-  }
 
-  private int getNextIndex (char what, int from) {
-    int i = myLispCode.lastIndexOf(what, from);
-    if (i > 0)
-      if (myLispCode.charAt(i - 1) == '\\') {
-        int slashCount = 1;
-        for (int j = i - 2; j > 0 && myLispCode.charAt(j) == '\\'; --j, ++slashCount) {}
-        if (slashCount % 2 == 1) {
-          i = getNextIndex(what, i + 1);
-        } else {
-          return i;
+      if (n == 0) {
+        int start = myCurrentIndex;
+        form = substring(start, end) + form;
+        advanceTo(start - 1);
+        if (myCurrentIndex > -1) {
+          int k = getNextSeparatorIndex();
+          form = substring(k + 1, start) + form;
+          advanceTo(k);
         }
+        return form;
       }
-    return i;
+    }
   }
 
   @Override
   protected String extractForm(int nextSeparatorIndex) {
-    return myLispCode.substring(nextSeparatorIndex + 1, getMyCurrentIndex() + 1);
+    return substring(nextSeparatorIndex + 1, getMyCurrentIndex() + 1);
   }
 
   @Override
@@ -118,15 +104,13 @@ class BackwardParser extends Parser {
 
   private void skipSpacesAndEmptyComments () {
     char last = 0;
-    List<Character> skipChars = new ArrayList<>(myWhitespaces);
-    skipChars.add(';');
-    while (skipChars.contains(getCurrentChar())) {
+    while (isWhitespaceOrComment(getCurrentChar())) {
       int i = myCurrentIndex;
-      for (; i > -1 && skipChars.contains(myLispCode.charAt(i)); i--) {
+      for (; i > -1 && isWhitespaceOrComment(myLispCode.charAt(i)); i--) {
         if (myLispCode.charAt(i) != ';')
           last = myLispCode.charAt(i);
       }
-      String data = i == -1 ? "" : myLispCode.substring(0, i + 1);
+      String data = i == -1 ? "" : substring(0, i + 1);
       if (StringUtil.isEmpty(data)) {
         if (countObservers() == 0)
           throw new EndOfFileException();
@@ -143,10 +127,14 @@ class BackwardParser extends Parser {
     }
   }
 
+  private static boolean isWhitespaceOrComment (char c) {
+    return c == ';' || CharClass.isWhitespace(c);
+  }
+
   @Override
   protected LispObject tryToParse(boolean isBackQuote) {
     skipSpacesAndEmptyComments();
-    char end = myWhitespaces.contains(getCurrentChar()) ? getNextChar() : getCurrentChar();
+    char end = CharClass.isWhitespace(getCurrentChar()) ? getNextChar() : getCurrentChar();
     char start = '0';
     switch (end) {
       case '"':
@@ -0,0 +1,33 @@
+package org.jetbrains.emacs4ij.jelisp.parser;
+
+/**
+ * reader character classes: a table lookup for ASCII, any other character is a symbol constituent
+ */
+final class CharClass {
+  private static final byte WHITESPACE = 1;
+  private static final byte SEPARATOR = 2;
+
+  private static final byte[] ourTable = new byte[128];
+
+  static {
+    for (char c: new char[] {' ', '\t', '\n', '\f'}) {
+      ourTable[c] = WHITESPACE | SEPARATOR;
+    }
+    for (char c: new char[] {'(', ')', '[', ']', '"', ';'}) {
+      ourTable[c] = SEPARATOR;
+    }
+  }
+
+  private CharClass() {}
+
+  static boolean isWhitespace (char c) {
+    return c < ourTable.length && (ourTable[c] & WHITESPACE) != 0;
+  }
+
+  /**
+   * @return true if given character ends a symbol or a number
+   */
+  static boolean isSeparator (char c) {
+    return c < ourTable.length && (ourTable[c] & SEPARATOR) != 0;
+  }
+}
@@ -8,7 +8,6 @@ import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispVector;
-import org.jetbrains.emacs4ij.jelisp.exception.LispException;
 import org.jetbrains.emacs4ij.jelisp.parser.exception.EndOfLineException;
 import org.jetbrains.emacs4ij.jelisp.parser.exception.InvalidReadSyntax;
 import org.jetbrains.emacs4ij.jelisp.parser.exception.InvalidReadSyntaxDot;
@@ -21,7 +20,6 @@ import org.jetbrains.emacs4ij.jelisp.subroutine.TextProperties;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 public final class ForwardParser extends Parser {
@@ -39,6 +37,11 @@ public final class ForwardParser extends Parser {
     return myCurrentIndex;
   }
 
+  @Override
+  protected boolean isEndOfLine() {
+    return myCurrentIndex >= myLispCode.length();
+  }
+
   @Override
   protected char getNextChar() {
     return myLispCode.charAt(getMyCurrentIndex() + 1);
@@ -50,89 +53,75 @@ public final class ForwardParser extends Parser {
   }
 
   @Override
-  protected int getNextIndexOfItem(List<Character> items) {
-    return Collections.min(getItemsIndexes(items));
+  protected int getNextSeparatorIndex() {
+    for (int i = myCurrentIndex; i < myLispCode.length(); ++i) {
+      if (CharClass.isSeparator(myLispCode.charAt(i)) && !isEscaped(i))
+        return i;
+    }
+    return myLispCode.length();
   }
 
-  private void skipWhitespaces() {
-    while (true) {
-      if (myWhitespaces.contains(getCurrentChar())) {
-        advance();
-        continue;
-      }
-      break;
+  /**
+   * @return false if the line has ended
+   */
+  private boolean skipWhitespaces() {
+    for (; myCurrentIndex < myLispCode.length(); ++myCurrentIndex) {
+      if (!CharClass.isWhitespace(myLispCode.charAt(myCurrentIndex)))
+        return true;
     }
+    return false;
   }
 
   private LispObject parseList(boolean isBackQuote) {
     ArrayList<LispObject> data = new ArrayList<>();
     boolean makeList = true;
     boolean wasCons = false;
-    boolean wasDot = false;
-    while (true) {
-      try {
-        while (true) {
-          skipWhitespaces();
-          if (getCurrentChar() == ')') {
-            if (wasDot)
+    try {
+      while (true) {
+        if (!skipWhitespaces())
+          throw new MissingClosingBracketException();
+        if (getCurrentChar() == ')')
+          break;
+        if (!makeList)
+          throw new InvalidReadSyntax(JelispBundle.message("dot.in.wrong.context"));
+        if (getCurrentChar() == '.') {
+          if (!hasNextChar())
+            throw new InvalidReadSyntaxDot();
+          if (!Character.isDigit(getNextChar())) {
+            advance();
+            skipWhitespaces();
+            if (getCurrentChar() == ')')
               throw new InvalidReadSyntax(")");
-            break;
-          }
-          if (!makeList)
-            throw new InvalidReadSyntax(JelispBundle.message("dot.in.wrong.context"));
-          if (getCurrentChar() == '.' || wasDot) {
-            if (!hasNextChar() && !wasDot) {
-              wasDot = true;
-              throw new InvalidReadSyntaxDot();
+            if (data.size() == 0) {
+              makeList = false;
+              LispObject object = parseObject(isBackQuote);
+              if (object != null)
+                data.add(object);
+              continue;
             }
-            if ((hasNextChar() && !Character.isDigit(getNextChar())) || wasDot) { //wasDot in this case means there was line break before dot, so the dot doesn't belong to lisp float
-              if (!wasDot) {
-                advance();
-                skipWhitespaces();
-              }
+            LispObject car = data.get(data.size()-1);
+            LispObject cdr = parseObject(isBackQuote);
+            while (cdr == null) {
+              advance();
               if (getCurrentChar() == ')')
                 throw new InvalidReadSyntax(")");
-              if (data.size() == 0) {
-                makeList = false;
-                LispObject object = parseObject(isBackQuote);
-                if (object != null)
-                  data.add(object);
-                continue;
-              }
-              LispObject car = data.get(data.size()-1);
-              LispObject cdr = parseObject(isBackQuote);
-              while (cdr == null) {
-                advance();
-                if (getCurrentChar() == ')')
-                  throw new InvalidReadSyntax(")");
-                cdr = parseObject(isBackQuote);
-              }
-              data.set(data.size()-1, LispList.cons(car, cdr));
-              wasCons = true;
-              wasDot = false;
-              skipWhitespaces();
-              if (getCurrentChar() != ')')
-                throw new InvalidReadSyntax(JelispBundle.message("dot.in.wrong.context"));
-              break;
+              cdr = parseObject(isBackQuote);
             }
-            wasDot = false;
-          }
-          LispObject object = parseObject(isBackQuote);
-          if (object != null) {
-            data.add(object);
+            data.set(data.size()-1, LispList.cons(car, cdr));
+            wasCons = true;
+            skipWhitespaces();
+            if (getCurrentChar() != ')')
+              throw new InvalidReadSyntax(JelispBundle.message("dot.in.wrong.context"));
+            break;
           }
         }
-        break;
-      } catch (EndOfLineException | InvalidReadSyntaxDot e) {
-        LispException exception = (LispException) (e instanceof InvalidReadSyntaxDot
-            ? e
-            : new MissingClosingBracketException());
-        if (countObservers() == 0)
-          throw exception;
-        setChanged();
-        notifyObservers(exception);
-        clearChanged();
+        LispObject object = parseObject(isBackQuote);
+        if (object != null) {
+          data.add(object);
+        }
       }
+    } catch (EndOfLineException e) {
+      throw new MissingClosingBracketException();
     }
     advanceTo(getMyCurrentIndex() + 1);
     if (makeList && (!(data.size() == 1 && wasCons))) {
@@ -145,76 +134,45 @@ public final class ForwardParser extends Parser {
 
   private LispObject parseVector(boolean isBackQuote) {
     LispVector vector = new LispVector();
-    while (true) {
-      try {
-        while (true) {
-          skipWhitespaces();
-          if (getCurrentChar() == ']')
-            break;
-          vector.add(parseObject(isBackQuote));
-        }
-        break;
-      } catch (EndOfLineException e) {
-        if (countObservers() == 0)
+    try {
+      while (true) {
+        if (!skipWhitespaces())
           throw new MissingClosingBracketException();
-        setChanged();
-        notifyObservers(new MissingClosingBracketException());
-        clearChanged();
+        if (getCurrentChar() == ']')
+          break;
+        vector.add(parseObject(isBackQuote));
       }
+    } catch (EndOfLineException e) {
+      throw new MissingClosingBracketException();
     }
     advanceTo(getMyCurrentIndex() + 1);
     return vector;
   }
 
   private int getNextIndex (char what, int from) {
-    int i = myLispCode.indexOf(what, from);
-    if (i == -1)
-      return myLispCode.length();
-    if (i != 0)
-      if (myLispCode.charAt(i - 1) == '\\') {
-        int slashCount = 1;
-        for (int j = i - 2; j > 0 && myLispCode.charAt(j) == '\\'; --j, ++slashCount) {}
-        if (slashCount % 2 == 1) {
-          i = getNextIndex(what, i + 1);
-        } else {
-          return i;
-        }
-      }
-    return i;
+    for (int i = from; i < myLispCode.length(); ++i) {
+      if (myLispCode.charAt(i) == what && !isEscaped(i))
+        return i;
+    }
+    return myLispCode.length();
   }
 
-  @Override
-  protected int getNextIndexOf (char what) {
-    if (myCurrentIndex == myLispCode.length())
-      return myLispCode.length();
-    int i = getNextIndex(what, getMyCurrentIndex());
-    return i == -1 ? myLispCode.length() : i;
+  int getNextIndexOf (char what) {
+    return getNextIndex(what, myCurrentIndex);
   }
 
   @Override
   protected String extractForm(int nextSeparatorIndex) {
     return myCurrentIndex < 0 || myCurrentIndex >= myLispCode.length()
         ? ""
-        : myLispCode.substring(getMyCurrentIndex(), nextSeparatorIndex);
+        : substring(getMyCurrentIndex(), nextSeparatorIndex);
   }
 
   private LispString parseString() {
-    int nextDoubleQuoteIndex;
-    String data = "";
-    while (true) {
-      nextDoubleQuoteIndex = getNextIndex('"', myCurrentIndex);
-      data += extractForm(nextDoubleQuoteIndex);
-      if (nextDoubleQuoteIndex == myLispCode.length()) {
-        if (countObservers() == 0)
-          throw new MissingClosingDoubleQuoteException();
-        setChanged();
-        notifyObservers(new MissingClosingDoubleQuoteException());
-        clearChanged();
-        data += '\n';
-        continue;
-      }
-      break;
-    }
+    int nextDoubleQuoteIndex = getNextIndex('"', myCurrentIndex);
+    if (nextDoubleQuoteIndex == myLispCode.length())
+      throw new MissingClosingDoubleQuoteException();
+    String data = extractForm(nextDoubleQuoteIndex);
     advanceTo(nextDoubleQuoteIndex + 1);
     return new LispString(data);
   }
@@ -327,7 +285,7 @@ public final class ForwardParser extends Parser {
   }
 
   private void setCharKey (Char c, @Nullable Integer key, boolean asIs) {
-    if (myLispCode.length() > myCurrentIndex + 1 && !mySeparators.contains(getNextChar()) // && getNextChar() != ']')
+    if (myLispCode.length() > myCurrentIndex + 1 && !CharClass.isSeparator(getNextChar()) // && getNextChar() != ']')
         && getCurrentChar() != ' ' && getNextChar() != '.')
       throw new InvalidReadSyntax("?");
 //        int ch = key == null ? Character.toLowerCase(getCurrentChar()) : key; //todo: not in ascii?
@@ -362,7 +320,7 @@ public final class ForwardParser extends Parser {
         spec = convert(getCurrentChar());
       if (Character.toLowerCase(getCurrentChar()) == 'u') { //unicode
         if (myCurrentIndex + 5 <= myLispCode.length() && nextFourCharsAreDigits()) {
-          spec = Integer.parseInt(myLispCode.substring(myCurrentIndex + 1, myCurrentIndex + 5), 16);
+          spec = Integer.parseInt(substring(myCurrentIndex + 1, myCurrentIndex + 5), 16);
           advanceTo(myCurrentIndex + 4);
         } else
           throw new InvalidUnicodeCharacterException();
@@ -427,33 +385,45 @@ public final class ForwardParser extends Parser {
       }
     }
     Integer n = c.toInteger();
-    return n == null ? LispSymbol.NIL : new LispInteger(n);
+    return n == null ? LispSymbol.NIL : LispInteger.valueOf(n);
   }
 
   @Override
   public LispObject parseLine (String lispCode, int startIndex) {
-    myCurrentIndex = startIndex;
-    myLispCode = lispCode;
+    reset(lispCode, startIndex);
     return parseNext();
   }
 
+  /**
+   * sets the code to parse, it may span any number of lines
+   */
+  void reset (CharSequence lispCode, int startIndex) {
+    myLispCode = lispCode;
+    myCurrentIndex = startIndex;
+  }
+
   public LispObject parseNext() {
-    try {
-      skipWhitespaces();
-    } catch (EndOfLineException e) {
+    if (!skipWhitespaces())
       return null;
-    }
     LispObject lispObject = parseObject();
-    try {
-      skipWhitespaces();
-      getMyCurrentIndex();
-      if (getCurrentChar() == ';')
-        myCurrentIndex = myLispCode.length();
-    } catch (EndOfLineException ignored) {
-    }
+    if (skipWhitespaces() && getCurrentChar() == ';')
+      advanceTo(getNextIndexOf('\n'));
     return lispObject;
   }
 
+  /**
+   * skips whitespaces and comments
+   * @return false if the code has ended
+   */
+  boolean skipToNextForm() {
+    while (skipWhitespaces()) {
+      if (getCurrentChar() != ';')
+        return true;
+      advanceTo(getNextIndexOf('\n'));
+    }
+    return false;
+  }
+
   public boolean isFinished() {
     return myCurrentIndex >= myLispCode.length();
   }
@@ -467,8 +437,8 @@ public final class ForwardParser extends Parser {
       while (myCurrentIndex < myLispCode.length() && Character.isLetterOrDigit(getCurrentChar())) {
         advance();
       }
-      String integer = myLispCode.substring(from, myCurrentIndex);
-      return new LispInteger(Integer.parseInt(integer, radix));
+      String integer = substring(from, myCurrentIndex);
+      return LispInteger.valueOf(Integer.parseInt(integer, radix));
     } catch (EndOfLineException | NumberFormatException e) {
       throw new InvalidReadSyntax("integer, radix " + radix);
     }
@@ -480,7 +450,8 @@ public final class ForwardParser extends Parser {
       advance();
       spec += '@';
     }
-    skipWhitespaces();
+    if (!skipWhitespaces())
+      throw new EndOfLineException();
     LispObject lispObject = parseObject(true);
     return LispList.list(new LispSymbol(spec), lispObject);
   }
@@ -491,7 +462,7 @@ public final class ForwardParser extends Parser {
       case '#':
         if (!hasNextChar())
 //                    throw new InvalidReadSyntax("#");
-          throw new UnknownCodeBlockException(myLispCode.substring(myCurrentIndex));
+          throw new UnknownCodeBlockException(substring(myCurrentIndex, getNextIndexOf('\n')));
         advance();
         switch (getCurrentChar()) {
           case '\'':
@@ -525,7 +496,8 @@ public final class ForwardParser extends Parser {
         }
       case '\'':
         advance();
-        skipWhitespaces();
+        if (!skipWhitespaces())
+          throw new EndOfLineException();
         return parseQuote(isBackQuote);
       case '"':
         advance();
@@ -552,7 +524,7 @@ public final class ForwardParser extends Parser {
         return parseComma();
       case '.':
         if (hasNextChar()) {
-          if (myWhitespaces.contains(getNextChar()))
+          if (CharClass.isWhitespace(getNextChar()))
             throw new InvalidReadSyntaxDot();
         }
     }
@@ -567,17 +539,12 @@ public final class ForwardParser extends Parser {
 
   @Override
   public void append (String lispCode) {
-    myLispCode = lispCode;
-    myCurrentIndex = 0;
-  }
-
-  public String getCode () {
-    return myLispCode;
+    reset(lispCode, 0);
   }
 
   /**
-   * for read-from-string only,
-   * @see org.jetbrains.emacs4ij.jelisp.subroutine.BString
+   * for read-from-string and top-level forms reading,
+   * @see LispReader
    */
   public int getCurrentIndex () {
     return myCurrentIndex;
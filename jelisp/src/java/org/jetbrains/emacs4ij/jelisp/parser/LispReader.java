@@ -0,0 +1,134 @@
+package org.jetbrains.emacs4ij.jelisp.parser;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.emacs4ij.jelisp.GlobalEnvironment;
+import org.jetbrains.emacs4ij.jelisp.LogUtil;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.parser.exception.InvalidReadSyntax;
+import org.jetbrains.emacs4ij.jelisp.parser.exception.ParserException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * reads top-level forms one by one from a whole source: a file, @see SourceFile, a string or a drained {@link Reader}.
+ * The source is never split into lines, so a form spanning many lines costs the same as a one-liner.
+ * Line numbers are counted only for error messages.
+ */
+public final class LispReader {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final CharSequence mySource;
+  private final String myName;
+  private final ForwardParser myParser = new ForwardParser();
+  private int myFormStart = 0;
+  private int myLineStart = 0;
+  private int myLine = 1;
+
+  public LispReader (CharSequence source, String name) {
+    mySource = source;
+    myName = name;
+    myParser.reset(source, 0);
+  }
+
+  public LispReader (Reader reader, String name) throws IOException {
+    this(drain(reader), name);
+  }
+
+  private static CharSequence drain (Reader reader) throws IOException {
+    StringBuilder source = new StringBuilder();
+    char[] buffer = new char[BUFFER_SIZE];
+    for (int n = reader.read(buffer); n != -1; n = reader.read(buffer)) {
+      source.append(buffer, 0, n);
+    }
+    return source;
+  }
+
+  public CharSequence getSource() {
+    return mySource;
+  }
+
+  public void seek (long offset) {
+    myParser.reset(mySource, (int) Math.min(Math.max(offset, 0), mySource.length()));
+  }
+
+  public long getOffset() {
+    return myParser.getCurrentIndex();
+  }
+
+  /**
+   * @return offset of the form read last
+   */
+  public long getFormStart() {
+    return myFormStart;
+  }
+
+  public boolean isFinished() {
+    return !myParser.skipToNextForm();
+  }
+
+  /**
+   * @return number of the line where the form read last starts, 1-based
+   */
+  public long getLine() {
+    return lineOf(myFormStart);
+  }
+
+  private int lineOf (int offset) {
+    if (offset < myLineStart) {
+      myLineStart = 0;
+      myLine = 1;
+    }
+    for (; myLineStart < offset; ++myLineStart) {
+      if (mySource.charAt(myLineStart) == '\n')
+        ++myLine;
+    }
+    return myLine;
+  }
+
+  private String lineAt (int offset) {
+    int start = offset;
+    while (start > 0 && mySource.charAt(start - 1) != '\n')
+      start--;
+    int end = offset;
+    while (end < mySource.length() && mySource.charAt(end) != '\n')
+      end++;
+    return mySource.subSequence(start, end).toString();
+  }
+
+  /**
+   * @return next form or null if the source has ended, parse errors are thrown as is
+   */
+  @Nullable
+  public LispObject read() {
+    if (!myParser.skipToNextForm())
+      return null;
+    myFormStart = myParser.getCurrentIndex();
+    return myParser.parseNext();
+  }
+
+  /**
+   * @return next form or null if the source has ended or the form has invalid syntax:
+   * such a form is reported and skipped up to the end of the line where the error is found.
+   * Any other parse error is thrown with the source name and line
+   */
+  @Nullable
+  public LispObject readForm() {
+    try {
+      return read();
+    } catch (InvalidReadSyntax e) {
+      int errorOffset = Math.min(myParser.getCurrentIndex(), mySource.length());
+      LogUtil.log(myName + ", ln " + lineOf(errorOffset) + ": " + e.getMessage() + "\n   " + lineAt(myFormStart),
+          GlobalEnvironment.MessageType.ERROR);
+      myParser.advanceTo(Math.max(myParser.getNextIndexOf('\n'), myFormStart + 1));
+      return null;
+    } catch (ParserException e) {
+      throw new ParserException(myName, getLine(), e.getMessage(), lineAt(myFormStart));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return myName;
+  }
+}
@@ -7,24 +7,18 @@ import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispNumber;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
-import org.jetbrains.emacs4ij.jelisp.parser.exception.EndOfLineException;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Observable;
 
 abstract class Parser extends Observable {
   protected int myCurrentIndex = 0;
-  protected String myLispCode;
+  protected CharSequence myLispCode;
 
-  protected static final List<Character> mySeparators = Arrays.asList(']', ')', '"', ' ', ';', '\n', '\t', '\f', '(', '[');
-  protected static final List<Character> myWhitespaces = Arrays.asList('\n', ' ', '\t', '\f');
   protected abstract void advance();
   protected abstract int getMyCurrentIndex();
+  protected abstract boolean isEndOfLine();
   protected abstract char getNextChar();
   protected abstract boolean hasNextChar();
-  protected abstract int getNextIndexOf (char what);
   protected abstract String extractForm(int nextSeparatorIndex);
 
   public abstract void append (String lispCode);
@@ -43,18 +37,22 @@ abstract class Parser extends Observable {
     return myLispCode.charAt(getMyCurrentIndex());
   }
 
-  protected abstract int getNextIndexOfItem (List<Character> items);
+  /**
+   * @return the index of the nearest unescaped separator in parsing direction starting from the current index,
+   * or the index right beyond the line end if there is none
+   */
+  protected abstract int getNextSeparatorIndex();
 
-  protected List<Integer> getItemsIndexes (List<Character> items) {
-    List<Integer> nextIndex = new ArrayList<>();
-    for (char separator : items) {
-      nextIndex.add(getNextIndexOf(separator));
-    }
-    return nextIndex;
+  protected String substring (int start, int end) {
+    return myLispCode.subSequence(start, end).toString();
   }
 
-  protected int getNextSeparatorIndex() {
-    return getNextIndexOfItem(mySeparators);
+  protected boolean isEscaped (int index) {
+    int slashCount = 0;
+    for (int i = index - 1; i >= 0 && myLispCode.charAt(i) == '\\'; --i) {
+      ++slashCount;
+    }
+    return slashCount % 2 == 1;
   }
 
   protected LispNumber parseNumber () {
@@ -63,7 +61,7 @@ abstract class Parser extends Observable {
     try {
       int intNumber = Integer.parseInt(numberCandidate);
       advanceTo(nextSeparatorIndex);
-      return new LispInteger(intNumber);
+      return LispInteger.valueOf(intNumber);
     } catch (NumberFormatException e) {
       try {
         double dblNumber = Double.parseDouble(numberCandidate);
@@ -118,11 +116,8 @@ abstract class Parser extends Observable {
   protected abstract LispObject tryToParse (boolean isBackQuote);
 
   protected LispObject parseObject(boolean isBackQuote) {
-    try {
-      getCurrentChar();
-    } catch (EndOfLineException e) {
+    if (isEndOfLine())
       return LispSymbol.NIL;
-    }
     return tryToParse(isBackQuote);
   }
 }
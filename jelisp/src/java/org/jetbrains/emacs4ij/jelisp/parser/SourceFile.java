@@ -0,0 +1,89 @@
+package org.jetbrains.emacs4ij.jelisp.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * read-only memory-mapped source file viewed as a sequence of chars, one char per byte
+ * (the same decoding as RandomAccessFile.readLine does, so char indices are file offsets).
+ * Mapped files are shared through a small LRU cache, a file changed on disk is mapped again.
+ */
+public final class SourceFile implements CharSequence {
+  private static final int CACHE_SIZE = 32;
+  private static final Map<String, SourceFile> ourCache = new LinkedHashMap<String, SourceFile>(CACHE_SIZE, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, SourceFile> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  private final ByteBuffer myBuffer;
+  private final int myStart;
+  private final int myLength;
+  private final long myModified;
+
+  private SourceFile (ByteBuffer buffer, int start, int length, long modified) {
+    myBuffer = buffer;
+    myStart = start;
+    myLength = length;
+    myModified = modified;
+  }
+
+  /**
+   * @return the cached view of given file, the file is mapped if it is not cached or has changed
+   */
+  public static SourceFile get (String path) throws IOException {
+    File file = new File(path);
+    synchronized (ourCache) {
+      SourceFile source = ourCache.get(path);
+      if (source != null && source.myLength == file.length() && source.myModified == file.lastModified())
+        return source;
+    }
+    SourceFile source = map(file);
+    synchronized (ourCache) {
+      ourCache.put(path, source);
+    }
+    return source;
+  }
+
+  private static SourceFile map (File file) throws IOException {
+    long modified = file.lastModified();
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new SourceFile(buffer, 0, buffer.capacity(), modified);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Override
+  public int length() {
+    return myLength;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (myBuffer.get(myStart + index) & 0xff);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return new SourceFile(myBuffer, myStart + start, end - start, myModified);
+  }
+
+  @Override
+  public String toString() {
+    char[] chars = new char[myLength];
+    for (int i = 0; i != myLength; ++i) {
+      chars[i] = charAt(i);
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,78 @@
+package org.jetbrains.emacs4ij.jelisp.parser;
+
+/**
+ * line cursor over a {@link SourceFile}, a replacement of RandomAccessFile without a system call per byte.
+ * Lines are split the same way RandomAccessFile.readLine splits them.
+ */
+public final class SourceReader {
+  private final SourceFile mySource;
+  private final String myPath;
+  private int myPosition = 0;
+  private int myLineStart = 0;
+
+  public SourceReader (SourceFile source, String path) {
+    mySource = source;
+    myPath = path;
+  }
+
+  public SourceFile getSource() {
+    return mySource;
+  }
+
+  public long getPosition() {
+    return myPosition;
+  }
+
+  /**
+   * @return offset of the start of the line last read
+   */
+  public long getLineStart() {
+    return myLineStart;
+  }
+
+  public void seek (long offset) {
+    myPosition = (int) Math.min(Math.max(offset, 0), mySource.length());
+  }
+
+  /**
+   * @return the end of the line which starts at current position, the position itself is not changed
+   */
+  public int findLineEnd() {
+    int end = myPosition;
+    while (end < mySource.length() && mySource.charAt(end) != '\n' && mySource.charAt(end) != '\r')
+      end++;
+    return end;
+  }
+
+  /**
+   * moves to the start of the next line
+   * @return false if there is no more lines
+   */
+  public boolean nextLine() {
+    int length = mySource.length();
+    if (myPosition == length)
+      return false;
+    myLineStart = myPosition;
+    int end = findLineEnd();
+    myPosition = end;
+    if (end < length) {
+      myPosition++;
+      if (mySource.charAt(end) == '\r' && myPosition < length && mySource.charAt(myPosition) == '\n')
+        myPosition++;
+    }
+    return true;
+  }
+
+  public String readLine() {
+    int start = myPosition;
+    int end = findLineEnd();
+    if (!nextLine())
+      return null;
+    return mySource.subSequence(start, end).toString();
+  }
+
+  @Override
+  public String toString() {
+    return myPath;
+  }
+}
@@ -90,14 +90,19 @@ public abstract class LispBuffer implements LispObject, HasTextPropertiesHolder
   //     text
   //-------------------------------------------------------------------------------
   public abstract String getText();
+
+  /**
+   * @return the text of the buffer without copying it, the sequence is valid until the buffer is modified
+   */
+  public abstract CharSequence getCharSequence();
   public abstract void setText (final String text);
   protected abstract void insertAt (final int position, final String insertion);
   public abstract void replace(final int from, final int to, final String text);
 
   public LispString substring(int start, int end, boolean withProperties) {
     return withProperties
-        ? new LispString(getText().substring(start - 1, end - 1), myPropertiesHolder.getTextPropertiesInRange(start - 1, end - 1))
-        : new LispString(getText().substring(start - 1, end - 1));
+        ? new LispString(getCharSequence().subSequence(start - 1, end - 1).toString(), myPropertiesHolder.getTextPropertiesInRange(start - 1, end - 1))
+        : new LispString(getCharSequence().subSequence(start - 1, end - 1).toString());
   }
 
   public void insert(String insertion, int where) {
@@ -234,13 +239,13 @@ public abstract class LispBuffer implements LispObject, HasTextPropertiesHolder
   public int precedingCharacter() {
     if (point() == pointMin())
       return 0;
-    return (int)getText().charAt(point()-2);
+    return (int)getCharSequence().charAt(point()-2);
   }
 
   public int followingCharacter() {
     if (point() == pointMax())
       return 0;
-    return (int)getText().charAt(point()-1);
+    return (int)getCharSequence().charAt(point()-1);
   }
 
   public String forwardChar(int shift) {
@@ -26,7 +26,7 @@ public abstract class Arithmetic {
         LispNumber n;
         if (Predicate.markerP(lispObject).equals(LispSymbol.T)) {
             if (((LispMarker)lispObject).isSet())
-                n = new LispInteger(((LispMarker)lispObject).getPosition());
+                n = LispInteger.valueOf(((LispMarker)lispObject).getPosition());
             else 
                 throw new MarkerPointsNowhereException();
         } else {
@@ -36,11 +36,36 @@ public abstract class Arithmetic {
     }
 
     private static LispNumber fromDouble (boolean isDouble, double d) {
-        return isDouble ? new LispFloat(d) : new LispInteger((int) d);
+        return isDouble ? new LispFloat(d) : LispInteger.valueOf((int) d);
+    }
+
+    /**
+     * integer results out of int range are truncated the same way as in {@link #fromDouble}
+     */
+    private static LispInteger fromLong (long n) {
+        return LispInteger.valueOf(n == (int) n ? (int) n : (int) (double) n);
+    }
+
+    private static boolean areIntegers (LispObject... args) {
+        for (LispObject arg: args) {
+            if (!(arg instanceof LispInteger))
+                return false;
+        }
+        return true;
+    }
+
+    private static int intData (LispObject integer) {
+        return ((LispInteger) integer).getData();
     }
 
     @Subroutine("+")
     public static LispNumber plus (@Optional LispObject... args) {
+        if (args != null && areIntegers(args)) {
+            long sum = 0;
+            for (LispObject arg: args)
+                sum += intData(arg);
+            return fromLong(sum);
+        }
         double ans = 0.0;
         boolean isDouble = false;
         if (args != null) {
@@ -57,7 +82,15 @@ public abstract class Arithmetic {
     @Subroutine("-")
     public static LispNumber minus (@Optional LispObject num, @Optional LispObject... rest) {
         if (num == null)
-            return new LispInteger(0);
+            return LispInteger.valueOf(0);
+        if (num instanceof LispInteger && (rest == null || areIntegers(rest))) {
+            long ans = intData(num);
+            if (rest == null || rest.length == 0)
+                return fromLong(-ans);
+            for (LispObject arg: rest)
+                ans -= intData(arg);
+            return fromLong(ans);
+        }
         if (rest == null || rest.length == 0) {
             LispNumber n = numberOrMarkerToNumber(num);
             double ans = -n.getDoubleData();
@@ -77,6 +110,16 @@ public abstract class Arithmetic {
 
     @Subroutine("*")
     public static LispNumber multiply (@Optional LispObject... args) {
+        if (areIntegers(args)) {
+            long product = 1;
+            for (LispObject arg: args) {
+                product *= intData(arg);
+                if (product != (int) product)
+                    break;
+            }
+            if (product == (int) product)
+                return LispInteger.valueOf((int) product);
+        }
         double ans = 1;
         boolean isDouble = false;
         for (LispObject lispObject: args) {
@@ -90,6 +133,8 @@ public abstract class Arithmetic {
 
     @Subroutine(">")
     public static LispSymbol more (LispObject num1, LispObject num2) {
+        if (num1 instanceof LispInteger && num2 instanceof LispInteger)
+            return LispSymbol.bool(intData(num1) > intData(num2));
         LispNumber n1 = numberOrMarkerToNumber(num1);
         LispNumber n2 = numberOrMarkerToNumber(num2);
         return LispSymbol.bool(n1.getDoubleData() > n2.getDoubleData());
@@ -97,6 +142,8 @@ public abstract class Arithmetic {
 
     @Subroutine("=")
     public static LispSymbol equalNumbersOrMarkers (LispObject num1, LispObject num2) {
+        if (num1 instanceof LispInteger && num2 instanceof LispInteger)
+            return LispSymbol.bool(intData(num1) == intData(num2));
         double n1 = numberOrMarkerToNumber(num1).getDoubleData();
         double n2 = numberOrMarkerToNumber(num2).getDoubleData();
         return LispSymbol.bool(n1 == n2);
@@ -115,6 +162,8 @@ public abstract class Arithmetic {
 
     @Subroutine("/=")
     public static LispSymbol notEqualNumbersOrMarkers (LispObject num1, LispObject num2) {
+        if (num1 instanceof LispInteger && num2 instanceof LispInteger)
+            return LispSymbol.bool(intData(num1) != intData(num2));
         double n1 = numberOrMarkerToNumber(num1).getDoubleData();
         double n2 = numberOrMarkerToNumber(num2).getDoubleData();
         return LispSymbol.bool(n1 != n2);
@@ -122,6 +171,8 @@ public abstract class Arithmetic {
 
     @Subroutine("<=")
     public static LispSymbol lessOrEqualNumbersOrMarkers (LispObject num1, LispObject num2) {
+        if (num1 instanceof LispInteger && num2 instanceof LispInteger)
+            return LispSymbol.bool(intData(num1) <= intData(num2));
         double n1 = numberOrMarkerToNumber(num1).getDoubleData();
         double n2 = numberOrMarkerToNumber(num2).getDoubleData();
         return LispSymbol.bool(n1 <= n2);
@@ -129,6 +180,8 @@ public abstract class Arithmetic {
 
     @Subroutine("<")
     public static LispSymbol less (LispObject num1, LispObject num2) {
+        if (num1 instanceof LispInteger && num2 instanceof LispInteger)
+            return LispSymbol.bool(intData(num1) < intData(num2));
         double n1 = numberOrMarkerToNumber(num1).getDoubleData();
         double n2 = numberOrMarkerToNumber(num2).getDoubleData();
         return LispSymbol.bool(n1 < n2);
@@ -141,6 +194,8 @@ public abstract class Arithmetic {
 
     @Subroutine("1-")
     public static LispNumber minusOne (LispObject num) {
+        if (num instanceof LispInteger)
+            return fromLong((long) intData(num) - 1);
         LispNumber n = numberOrMarkerToNumber(num);
         boolean isDouble = n.getData() instanceof Double;
         return fromDouble(isDouble, n.getDoubleData() - 1);
@@ -148,6 +203,8 @@ public abstract class Arithmetic {
 
     @Subroutine("1+")
     public static LispNumber plusOne (LispObject num) {
+        if (num instanceof LispInteger)
+            return fromLong((long) intData(num) + 1);
         LispNumber n = numberOrMarkerToNumber(num);
         boolean isDouble = n.getData() instanceof Double;
         return fromDouble(isDouble, n.getDoubleData() + 1);
@@ -156,7 +213,7 @@ public abstract class Arithmetic {
     @Subroutine("logand")
     public static LispInteger logAnd (@Optional LispObject... args) {
         if (args == null)
-            return new LispInteger(-1);
+            return LispInteger.valueOf(-1);
         int result = -1;
         for (LispObject arg: args) {
             LispNumber num = numberOrMarkerToNumber(arg);
@@ -164,17 +221,17 @@ public abstract class Arithmetic {
                 throw new WrongTypeArgumentException("integer-or-marker-p", num.toString());
             result = result & ((LispInteger)num).getData();
         }
-        return new LispInteger(result);
+        return LispInteger.valueOf(result);
     }
     
     @Subroutine("lognot")
     public static LispInteger logNot (LispInteger object) {
-        return new LispInteger(~object.getData());
+        return LispInteger.valueOf(~object.getData());
     }
 
     @Subroutine("lsh")
     public static LispInteger leftShift (LispInteger value, LispInteger count) {
-        return new LispInteger(value.getData() << count.getData());
+        return LispInteger.valueOf(value.getData() << count.getData());
     }
 
     @Subroutine("floor")
@@ -183,11 +240,11 @@ public abstract class Arithmetic {
             throw new WrongTypeArgumentException("numberp", divisor);
         double d = Predicate.isNil(divisor) ? 1 : ((LispNumber)divisor).getDoubleData();
         double n = number.getDoubleData();
-        return new LispInteger((int)Math.floor(n/d));
+        return LispInteger.valueOf((int)Math.floor(n/d));
     }
 
     private static LispNumber makeNumber (double n) {
-        return n == (int)n ? new LispInteger((int)n) : new LispFloat(n);
+        return n == (int)n ? LispInteger.valueOf((int)n) : new LispFloat(n);
     }
 
     @Subroutine("/")
@@ -206,6 +263,8 @@ public abstract class Arithmetic {
 
     @Subroutine("mod")
     public static LispNumber modulo (LispObject num1, LispObject num2) {
+        if (num1 instanceof LispInteger && num2 instanceof LispInteger && intData(num2) != 0)
+            return LispInteger.valueOf(intData(num1) % intData(num2));
         double n1 = numberOrMarkerToNumber(num1).getDoubleData();
         double n2 = numberOrMarkerToNumber(num2).getDoubleData();
         return makeNumber(n1 % n2);
@@ -8,8 +8,6 @@ import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
 import org.jetbrains.emacs4ij.jelisp.elisp.Optional;
 import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
 
-import java.util.List;
-
 /**
  * Created by IntelliJ IDEA.
  * User: Ekaterina.Polishchuk
@@ -117,13 +115,12 @@ public abstract class BList {
 
   @Subroutine("nth")
   public static LispObject nthElement (LispInteger n, LispList list) {
-    List<LispObject> elements = list.toLispObjectList();
-    int index = n.getData();
-    if (elements.size() <= index)
-      return LispSymbol.NIL;
-    if (index < 0)
-      return elements.get(0);
-    return elements.get(index);
+    int index = Math.max(n.getData(), 0);
+    for (LispObject element: list) {
+      if (index-- == 0)
+        return element;
+    }
+    return LispSymbol.NIL;
   }
 
   @Subroutine("assoc")
@@ -132,7 +129,7 @@ public abstract class BList {
       throw new WrongTypeArgumentException("listp", list);
     if (list.equals(LispSymbol.NIL))
       return LispList.list();
-    for (LispObject element : ((LispList)list).toLispObjectList()) {
+    for (LispObject element : (LispList)list) {
       if (element instanceof LispList) {
         if (key.equals(((LispList) element).car()))
           return (LispList) element;
@@ -4,20 +4,25 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.emacs4ij.jelisp.Environment;
 import org.jetbrains.emacs4ij.jelisp.GlobalEnvironment;
 import org.jetbrains.emacs4ij.jelisp.JelispBundle;
+import org.jetbrains.emacs4ij.jelisp.elisp.EmacsRegexp;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispInteger;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispNumber;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
 import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.elisp.MarkerOrInteger;
 import org.jetbrains.emacs4ij.jelisp.elisp.Optional;
 import org.jetbrains.emacs4ij.jelisp.elisp.StringOrVector;
+import org.jetbrains.emacs4ij.jelisp.elisp.StringRegexpUtil;
 import org.jetbrains.emacs4ij.jelisp.exception.ArgumentOutOfRange;
 import org.jetbrains.emacs4ij.jelisp.exception.InvalidFormatOperationException;
 import org.jetbrains.emacs4ij.jelisp.exception.LispException;
+import org.jetbrains.emacs4ij.jelisp.exception.SearchFailedException;
 import org.jetbrains.emacs4ij.jelisp.exception.WrongNumberOfArgumentsException;
 import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
-import org.jetbrains.emacs4ij.jelisp.parser.ForwardParser;
+import org.jetbrains.emacs4ij.jelisp.parser.LispReader;
+import org.jetbrains.emacs4ij.jelisp.platformDependent.LispBuffer;
 
 import java.util.Arrays;
 import java.util.IllegalFormatConversionException;
@@ -92,7 +97,7 @@ public abstract class BString {
     int r = string.match(environment, regexp, from, (s != null && !s.getValue().equals(LispSymbol.NIL)));
     if (r == -1)
       return LispSymbol.NIL;
-    return new LispInteger(r);
+    return LispInteger.valueOf(r);
   }
 
   @Subroutine("message")
@@ -125,9 +130,9 @@ public abstract class BString {
     if (object instanceof LispInteger) {
       int data = ((LispInteger)object).getData();
       if (data >= 'a' && data <= 'z') {
-        return new LispInteger(data - 'a' + 'A');
+        return LispInteger.valueOf(data - 'a' + 'A');
       }
-      return new LispInteger(data);
+      return LispInteger.valueOf(data);
     }
     throw new WrongTypeArgumentException("char-or-string-p", object);
   }
@@ -152,10 +157,9 @@ public abstract class BString {
     int begin = getInt(start, 0);
     int end = getInt(finish, string.size());
     try {
-      String code = string.getData().substring(begin, end);
-      ForwardParser forwardParser = new ForwardParser();
-      LispObject read = Core.thisOrNil(forwardParser.parseLine(code));
-      return LispList.cons(read, new LispInteger(begin + forwardParser.getCurrentIndex()));
+      LispReader reader = new LispReader(string.getData().substring(begin, end), "read-from-string");
+      LispObject read = Core.thisOrNil(reader.read());
+      return LispList.cons(read, LispInteger.valueOf(begin + (int) reader.getOffset()));
     } catch (StringIndexOutOfBoundsException e) {
       throw new ArgumentOutOfRange(string, begin, end);
     }
@@ -234,7 +238,7 @@ public abstract class BString {
 
   @Subroutine("string-to-char")
   public static LispInteger stringToChar(LispString string) {
-    return new LispInteger(string.getFirstCharacter());
+    return LispInteger.valueOf(string.getFirstCharacter());
   }
 
   @Subroutine("byte-to-string")
@@ -243,9 +247,46 @@ public abstract class BString {
   }
 
   @Subroutine(value = "re-search-backward", isCmd = true, interactive = "sRE search backward: ")
-  public static LispObject reSearchBackward(LispString regExp,
+  public static LispObject reSearchBackward(Environment environment, LispString regExp,
                                             @Optional LispObject bound, LispObject noError, LispObject count) {
-    //todo: implement
-    return LispSymbol.NIL;
+    int n = getInt(count, 1);
+    LispBuffer buffer = environment.getBufferCurrentForEditing();
+    int point = buffer.point();
+    if (n == 0)
+      return LispInteger.valueOf(point);
+    int limit;
+    if (Predicate.isNil(bound))
+      limit = n > 0 ? buffer.pointMin() : buffer.pointMax();
+    else if (bound instanceof MarkerOrInteger && ((MarkerOrInteger) bound).getPosition() != null)
+      limit = ((MarkerOrInteger) bound).getPosition();
+    else
+      throw new WrongTypeArgumentException("integer-or-marker-p", bound);
+    if (n > 0 ? limit > point : limit < point)
+      Core.error(JelispBundle.message("invalid.search.bound"));
+
+    LispSymbol caseFold = environment.find("case-fold-search");
+    EmacsRegexp regexp = StringRegexpUtil.compile(regExp.getData(),
+        caseFold != null && !caseFold.getValue().equals(LispSymbol.NIL));
+    CharSequence text = buffer.getCharSequence();
+    int from = point - 1;
+    int[] groups = null;
+    for (int i = Math.abs(n); i > 0; i--) {
+      groups = n > 0
+          ? regexp.searchBackward(environment, text, from, limit - 1)
+          : regexp.search(environment, text, from, limit - 1);
+      if (groups == null)
+        break;
+      from = n > 0 ? groups[0] : groups[1];
+    }
+    if (groups == null) {
+      if (Predicate.isNil(noError))
+        throw new SearchFailedException(regExp);
+      if (!noError.equals(LispSymbol.T))
+        buffer.gotoChar(limit);
+      return LispSymbol.NIL;
+    }
+    Match.registerSearchResult(groups, buffer);
+    buffer.gotoChar(from + 1);
+    return LispInteger.valueOf(from + 1);
   }
 }
@@ -52,7 +52,7 @@ public abstract class Buffer {
       buffer = environment.getBufferCurrentForEditing();
     if (!(buffer instanceof LispBuffer))
       throw new WrongTypeArgumentException("bufferp", buffer);
-    return new LispInteger(((LispBuffer)buffer).size());
+    return LispInteger.valueOf(((LispBuffer)buffer).size());
   }
 
   @Subroutine("buffer-name")
@@ -128,17 +128,17 @@ public abstract class Buffer {
 
   @Subroutine("point")
   public static LispInteger point (Environment environment) {
-    return new LispInteger(environment.getBufferCurrentForEditing().point());
+    return LispInteger.valueOf(environment.getBufferCurrentForEditing().point());
   }
 
   @Subroutine("point-min")
   public static LispObject pointMin (Environment environment) {
-    return new LispInteger(environment.getBufferCurrentForEditing().pointMin());
+    return LispInteger.valueOf(environment.getBufferCurrentForEditing().pointMin());
   }
 
   @Subroutine("point-max")
   public static LispObject pointMax (Environment environment) {
-    return new LispInteger(environment.getBufferCurrentForEditing().pointMax());
+    return LispInteger.valueOf(environment.getBufferCurrentForEditing().pointMax());
   }
 
   @Subroutine(value = "goto-char", isCmd = true, interactive = "nGoto char: ")
@@ -152,7 +152,7 @@ public abstract class Buffer {
   @Subroutine(value = "forward-char", isCmd = true, key = "\\C-f")
   public static LispObject forwardChar (Environment environment, @Optional LispObject shift) {
     if (isNil(shift))
-      shift = new LispInteger(1);
+      shift = LispInteger.valueOf(1);
     if (!(shift instanceof LispInteger))
       throw new WrongTypeArgumentException("integerp", shift.toString());
     String message = environment.getBufferCurrentForEditing().forwardChar(((LispInteger)shift).getData());
@@ -164,7 +164,7 @@ public abstract class Buffer {
   @Subroutine(value = "backward-char", isCmd = true, key = "\\C-b")
   public static LispObject backwardChar (Environment environment, @Optional LispObject shift) {
     if (isNil(shift))
-      shift = new LispInteger(1);
+      shift = LispInteger.valueOf(1);
     if (!(shift instanceof LispInteger))
       throw new WrongTypeArgumentException("integerp", shift.toString());
     String message = environment.getBufferCurrentForEditing().forwardChar(-((LispInteger)shift).getData());
@@ -255,7 +255,7 @@ public abstract class Buffer {
 
   @Subroutine("minibuffer-depth")
   public static LispInteger minibufferDepth (Environment environment) {
-    return new LispInteger(environment.getMiniBufferActivationsDepth());
+    return LispInteger.valueOf(environment.getMiniBufferActivationsDepth());
   }
 
   private static LispObject evaluateString (Environment environment, String code) {
@@ -289,12 +289,12 @@ public abstract class Buffer {
 
   @Subroutine("following-char")
   public static LispInteger followingChar (Environment environment) {
-    return new LispInteger(environment.getBufferCurrentForEditing().followingCharacter());
+    return LispInteger.valueOf(environment.getBufferCurrentForEditing().followingCharacter());
   }
 
   @Subroutine("preceding-char")
   public static LispInteger precedingChar (Environment environment) {
-    return new LispInteger(environment.getBufferCurrentForEditing().precedingCharacter());
+    return LispInteger.valueOf(environment.getBufferCurrentForEditing().precedingCharacter());
   }
 
   private static LispString bufferSubstring (Environment environment, MarkerOrInteger start, MarkerOrInteger end,
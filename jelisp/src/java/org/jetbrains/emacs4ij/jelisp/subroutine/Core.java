@@ -84,7 +84,7 @@ public abstract class Core {
       return (((LispNumber) one).getData()  == ((LispNumber) two).getData());
     }
     if (one instanceof LispSymbol) {
-      return ((LispSymbol) one).getName().equals(((LispSymbol) two).getName());
+      return one.equals(two);
     }
     return one instanceof LispString
         && ((LispString) one).getData().equals("")
@@ -328,7 +328,7 @@ public abstract class Core {
       throw new WrongTypeArgumentException("subrp",
           object instanceof LispSymbol ? ((LispSymbol) object).getName() : object.toString());
     Primitive subr = (Primitive)object;
-    return LispList.cons(new LispInteger(subr.getNRequiredArguments()), subr.getMaxNumArgs());
+    return LispList.cons(LispInteger.valueOf(subr.getNRequiredArguments()), subr.getMaxNumArgs());
   }
 
   @Subroutine("aref")
@@ -390,6 +390,25 @@ public abstract class Core {
     return object.evaluate(environment);
   }
 
+  @Subroutine("byte-compile")
+  public static LispObject byteCompile (LispObject form) {
+    if (form instanceof LispSymbol) {
+      LispSymbol function = GlobalEnvironment.INSTANCE.find(((LispSymbol) form).getName());
+      if (function == null || !function.isFunction())
+        return LispSymbol.NIL;
+      if (!function.isCustom())
+        return function.getFunction();
+      function.castToLambda();
+      ((Lambda) function.getFunction()).compile();
+      return function.getFunction();
+    }
+    if (form instanceof LispList && ((LispList) form).car().equals(LispSymbol.LAMBDA))
+      form = new Lambda((LispList) form);
+    if (form instanceof Lambda)
+      ((Lambda) form).compile();
+    return form;
+  }
+
   @Subroutine("defalias")
   public static LispObject defineFunctionAlias(LispSymbol symbol, LispObject functionDefinition, @Optional LispObject docString) {
     LispSymbol real = GlobalEnvironment.INSTANCE.find(symbol.getName());
@@ -501,7 +520,7 @@ public abstract class Core {
 
   @Subroutine("recursion-depth")
   public static LispInteger recursionDepth (Environment environment) {
-    return new LispInteger(environment.getMiniBufferActivationsDepth());
+    return LispInteger.valueOf(environment.getMiniBufferActivationsDepth());
   }
 
   @Subroutine("defvaralias")
@@ -618,15 +637,15 @@ public abstract class Core {
   @Subroutine("prefix-numeric-value")
   public static LispInteger prefixNumericValue(LispObject raw) {
     if (Predicate.isNil(raw)) {
-      return new LispInteger(1);
+      return LispInteger.valueOf(1);
     } else if (raw instanceof LispInteger) {
       return (LispInteger) raw;
     } else if (raw instanceof LispList && ((LispList) raw).car() instanceof LispInteger) {
       return (LispInteger) ((LispList) raw).car();
     } else if (new LispSymbol("-").equals(raw)) {
-      return new LispInteger(-1);
+      return LispInteger.valueOf(-1);
     } else {
-      return new LispInteger(1);
+      return LispInteger.valueOf(1);
     }
   }
 }
\ No newline at end of file
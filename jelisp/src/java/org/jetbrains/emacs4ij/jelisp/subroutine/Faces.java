@@ -204,7 +204,7 @@ public abstract class Faces {
         value = get(":ignore-defface");
       }
 
-    } else if (frame.equals(new LispInteger(0))) { //change face on all frames + default for new
+    } else if (frame.equals(LispInteger.valueOf(0))) { //change face on all frames + default for new
       internalSetLispFaceAttribute(environment, face, attribute, value, LispSymbol.T);
       for (LispFrame f: environment.getAllFrames()) {
         internalSetLispFaceAttribute(environment, face, attribute, value, f);
@@ -58,7 +58,7 @@ public abstract class Frame {
       frames = environment.getVisibleFrames(); //search all visible frames
     } else if (frame.equals(LispSymbol.T)) { //search all frames.
       frames = environment.getAllFrames();
-    } else if (frame.equals(new LispInteger(0))) { //search visible and iconified frames.
+    } else if (frame.equals(LispInteger.valueOf(0))) { //search visible and iconified frames.
       frames = environment.getVisibleAndIconifiedFrames();
     } else if (frame instanceof LispFrame) { //search only that frame.
       frames.add((LispFrame) frame);
@@ -126,7 +126,7 @@ public abstract class HashTable {
             if (!((LispSymbol) function).isFunction())
                 throw new VoidFunctionException(((LispSymbol) function).getName());
         } else if (function instanceof LispList) {
-            if (!((LispList) function).car().equals(new LispSymbol("lambda")))
+            if (!((LispList) function).car().equals(LispSymbol.LAMBDA))
                 throw new VoidFunctionException(function.toString());
         } else
             throw new InvalidFunctionException(function.toString());
@@ -143,7 +143,7 @@ public abstract class HashTable {
     @Subroutine("sxhash")
     public static LispInteger hashCode (LispObject object) {
         throw new UnsupportedOperationException("FUN sxhash");
-//        return new LispInteger(object.hashCode());
+//        return LispInteger.valueOf(object.hashCode());
     }
 
     @Subroutine("copy-hash-table")
@@ -153,7 +153,7 @@ public abstract class HashTable {
 
     @Subroutine("hash-table-count")
     public static LispInteger hashTableCount (LispHashTable table) {
-        return new LispInteger(table.size());
+        return LispInteger.valueOf(table.size());
     }
 
     @Subroutine("hash-table-test")
@@ -169,7 +169,7 @@ public abstract class HashTable {
     @Subroutine("hash-table-rehash-size")
     public static LispNumber hashTableRehashSize (LispHashTable table) {
         double rehashSize = table.getRehashSize();
-        return rehashSize == Math.round(rehashSize) ? new LispInteger((int) rehashSize) : new LispFloat(rehashSize);
+        return rehashSize == Math.round(rehashSize) ? LispInteger.valueOf((int) rehashSize) : new LispFloat(rehashSize);
     }
 
     @Subroutine("hash-table-rehash-threshold")
@@ -179,6 +179,6 @@ public abstract class HashTable {
 
     @Subroutine("hash-table-size")
     public static LispInteger hashTableSize (LispHashTable table) {
-        return new LispInteger(table.getCapacity());
+        return LispInteger.valueOf(table.getCapacity());
     }
 }
@@ -186,7 +186,7 @@ public abstract class Key {
   }
 
   public static void init() {
-    ourKeyMapSymbol.setProperty("char-table-extra-slots", new LispInteger(0));
+    ourKeyMapSymbol.setProperty("char-table-extra-slots", LispInteger.valueOf(0));
     GlobalEnvironment.INSTANCE.defineSymbol(ourKeyMapSymbol);
     LispSymbol globalMap = makeKeymap("global-map");
     if (globalMap.getValue().equals(LispSymbol.NIL))
@@ -75,7 +75,7 @@ public abstract class Marker {
 
   @Subroutine("marker-position")
   public static LispObject markerPosition (LispMarker marker) {
-    return marker.getPosition() == null ? LispSymbol.NIL : new LispInteger(marker.getPosition());
+    return marker.getPosition() == null ? LispSymbol.NIL : LispInteger.valueOf(marker.getPosition());
   }
 
   @Subroutine("marker-buffer")
@@ -98,7 +98,7 @@ public abstract class Marker {
   @Subroutine("region-beginning")
   public static LispInteger regionBeginning (Environment environment) {
     LispObject mark = LispList.list(new LispSymbol("mark"), LispSymbol.T).evaluate(environment);
-    LispInteger point = new LispInteger(environment.getBufferCurrentForEditing().point());
+    LispInteger point = LispInteger.valueOf(environment.getBufferCurrentForEditing().point());
     if (!mark.equals(LispSymbol.NIL)) {
       if (Arithmetic.less(mark, point).toBoolean())
         return (LispInteger)mark;
@@ -109,7 +109,7 @@ public abstract class Marker {
   @Subroutine("region-end")
   public static LispInteger regionEnd (Environment environment) {
     LispObject mark = LispList.list(new LispSymbol("mark"), LispSymbol.T).evaluate(environment);
-    LispInteger point = new LispInteger(environment.getBufferCurrentForEditing().point());
+    LispInteger point = LispInteger.valueOf(environment.getBufferCurrentForEditing().point());
     if (!mark.equals(LispSymbol.NIL)) {
       if (Arithmetic.more(mark, point).toBoolean())
         return (LispInteger)mark;
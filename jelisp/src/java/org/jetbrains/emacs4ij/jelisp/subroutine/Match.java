@@ -1,6 +1,7 @@
 package org.jetbrains.emacs4ij.jelisp.subroutine;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.emacs4ij.jelisp.BufferEnvironment;
 import org.jetbrains.emacs4ij.jelisp.Environment;
 import org.jetbrains.emacs4ij.jelisp.JelispBundle;
@@ -20,80 +21,105 @@ import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
 import org.jetbrains.emacs4ij.jelisp.platformDependent.LispBuffer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
 
 public abstract class Match {
   private Match() {}
 
-  private static List<Integer> myLastMatch = new ArrayList<>();
-  private static LispBuffer myBuffer = null;
+  /**
+   * positions of the last match, -1 for groups which didn't participate.
+   * Integers for positions out of the shared cache are created on the first request
+   */
+  private static final class MatchData {
+    private int[] myPositions = new int[20];
+    private LispInteger[] myIntegers = new LispInteger[20];
+    private int mySize = 0;
+    private LispBuffer myBuffer = null;
+
+    private void reset (int size, @Nullable LispBuffer buffer) {
+      if (size > myPositions.length) {
+        myPositions = new int[Math.max(size, myPositions.length * 2)];
+        myIntegers = new LispInteger[myPositions.length];
+      } else {
+        Arrays.fill(myIntegers, 0, mySize, null);
+      }
+      mySize = size;
+      myBuffer = buffer;
+    }
+
+    private LispObject getInteger (int slot) {
+      int position = myPositions[slot];
+      if (position < 0)
+        return LispSymbol.NIL;
+      if (myIntegers[slot] == null)
+        myIntegers[slot] = LispInteger.valueOf(position);
+      return myIntegers[slot];
+    }
+
+    private LispObject getPosition (int slot) {
+      int position = myPositions[slot];
+      if (position < 0 || myBuffer == null)
+        return getInteger(slot);
+      return new LispMarker(position, myBuffer);
+    }
+  }
+
+  private static final ThreadLocal<MatchData> ourData = new ThreadLocal<MatchData>() {
+    @Override
+    protected MatchData initialValue() {
+      return new MatchData();
+    }
+  };
 
   public static void clearData() {
-    myLastMatch.clear();
-    myBuffer = null;
+    ourData.get().reset(0, null);
   }
 
   //fro test
   public static LispBuffer getBuffer() {
-    return myBuffer;
+    return ourData.get().myBuffer;
   }
 
   //for test
   public static List<Integer> getLastMatch() {
-    return Collections.unmodifiableList(myLastMatch);
+    MatchData data = ourData.get();
+    List<Integer> positions = new ArrayList<>(data.mySize);
+    for (int i = 0; i < data.mySize; i++) {
+      positions.add(data.myPositions[i] < 0 ? null : data.myPositions[i]);
+    }
+    return Collections.unmodifiableList(positions);
   }
 
-  private static void addMatch (Matcher matcher, int group, List<Integer> insertions, int max) {
-    if (insertions.isEmpty()) {
-      myLastMatch.add(matcher.start(group));
-      myLastMatch.add(matcher.end(group));
-      return;
-    }
-    int nInsertionsBefore = 0;
-    //add start
-    int value = matcher.start(group);
-    for (; nInsertionsBefore < insertions.size() && insertions.get(nInsertionsBefore) < value; nInsertionsBefore++) {}
-    int i = value - nInsertionsBefore;
-    myLastMatch.add(i < 0 ? 0 : (i >= max ? max : i));
-
-    //add end
-    value = matcher.end(group);
-    for (; nInsertionsBefore < insertions.size() && insertions.get(nInsertionsBefore) <= value; nInsertionsBefore++) {}
-    i = value - nInsertionsBefore;
-    myLastMatch.add(i < 0 ? 0 : (i >= max ? max : i));
+  /**
+   * @param groups start and end of the match and of every group, -1 for groups which didn't participate
+   */
+  public static void registerSearchResult (int[] groups) {
+    MatchData data = ourData.get();
+    data.reset(groups.length, null);
+    System.arraycopy(groups, 0, data.myPositions, 0, groups.length);
   }
 
-  public static void registerSearchResult (@NotNull Matcher matcher, List<Integer> insertions, int max) {
-    clearData();
-    if (!insertions.isEmpty()) {
-      Collections.sort(insertions);
-    }
-    try {
-      for (int i = 0; i <= matcher.groupCount(); i++) {
-        addMatch(matcher, i, insertions, max);
-      }
-    } catch (IllegalStateException e) {
-      myLastMatch.clear();
+  /**
+   * @param groups text indices of the match found in given buffer, they are registered as buffer positions
+   */
+  public static void registerSearchResult (int[] groups, LispBuffer buffer) {
+    MatchData data = ourData.get();
+    data.reset(groups.length, buffer);
+    for (int i = 0; i < groups.length; i++) {
+      data.myPositions[i] = groups[i] < 0 ? -1 : groups[i] + 1;
     }
   }
 
   private static LispObject getMatch (LispInteger subExp, boolean start) {
-    if (myLastMatch.isEmpty())
+    MatchData data = ourData.get();
+    if (data.mySize == 0)
       throw new NoMatchData();
-    return getMatch(subExp.getData(), start);
-  }
-
-  private static LispObject getMatch (int index, boolean start) {
+    int index = subExp.getData();
     if (index < 0) throw new ArgumentOutOfRange(index, 0);
-    try {
-      Integer value = myLastMatch.get(index * 2 + (start ? 0 : 1));
-      if (value == null) return LispSymbol.NIL;
-      return myBuffer == null ? new LispInteger(value) : new LispMarker(value, myBuffer);
-    } catch (IndexOutOfBoundsException e) {
-      return LispSymbol.NIL;
-    }
+    int slot = index * 2 + (start ? 0 : 1);
+    return slot < data.mySize ? data.getPosition(slot) : LispSymbol.NIL;
   }
 
   @Subroutine("match-beginning")
@@ -121,37 +147,51 @@ public abstract class Match {
 
   @Subroutine("match-data")
   public static LispList matchData(@Optional LispObject integers, LispObject reuse, LispObject reset) {
-    List<LispObject> result = new ArrayList<>();
-    if (!Predicate.isNil(integers)) {
-      for (Integer item: myLastMatch) {
-        result.add(item == null ? LispSymbol.NIL : new LispInteger(item));
-      }
-      if (myBuffer != null)
-        result.add(myBuffer);
-    } else if (myBuffer != null) {
-      for (Integer item: myLastMatch) {
-        result.add(item == null ? LispSymbol.NIL : new LispMarker(item, myBuffer));
-      }
-    } else {
-      for (Integer item: myLastMatch) {
-        result.add(item == null ? LispSymbol.NIL : new LispInteger(item));
+    MatchData data = ourData.get();
+    boolean asIntegers = !Predicate.isNil(integers);
+    int size = asIntegers && data.myBuffer != null ? data.mySize + 1 : data.mySize;
+
+    LispList reuseList = reuse instanceof LispList && !((LispList) reuse).isEmpty() ? (LispList) reuse : null;
+    if (reuseList == null) {
+      List<LispObject> result = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        result.add(getMatchDataItem(data, i, asIntegers));
       }
+      return reuse instanceof LispList ? setEmptyList((LispList) reuse, result) : LispList.list(result);
     }
 
-    LispList reuseList = reuse instanceof LispList ? (LispList) reuse : null;
-    if (reuseList == null)
-      return LispList.list(result);
-
     resetMarkersInListIfNeeded(reset, reuseList);
 
-    ((LispList) reuse).resetWith(LispList.list(result));
-    return (LispList) reuse;
+    int i = 0;
+    LispList last = reuseList;
+    for (LispObject tail = reuseList; tail instanceof LispList && !((LispList) tail).isEmpty();
+         tail = ((LispList) tail).cdr(), i++) {
+      last = (LispList) tail;
+      last.setCar(i < size ? getMatchDataItem(data, i, asIntegers) : LispSymbol.NIL);
+    }
+    for (; i < size; i++) {
+      LispList cell = LispList.cons(getMatchDataItem(data, i, asIntegers), null);
+      last.setCdr(cell);
+      last = cell;
+    }
+    return reuseList;
+  }
+
+  private static LispList setEmptyList (LispList reuse, List<LispObject> result) {
+    reuse.resetWith(LispList.list(result));
+    return reuse;
   }
 
-  private static int getPosition (MarkerOrInteger item) {
+  private static LispObject getMatchDataItem (MatchData data, int i, boolean asIntegers) {
+    if (i == data.mySize)
+      return data.myBuffer;
+    return asIntegers ? data.getInteger(i) : data.getPosition(i);
+  }
+
+  private static int getPosition (MarkerOrInteger item, @Nullable LispBuffer buffer) {
     Integer position = item.getPosition();
     return position == null
-        ? myBuffer == null ? 0 : 1
+        ? buffer == null ? 0 : 1
         : position;
   }
 
@@ -169,11 +209,10 @@ public abstract class Match {
           buffer = ((LispMarker) item).getBuffer();
         }
       }
-      myLastMatch.clear();
-      myBuffer = buffer;
-      for (int i = 0; i + 1 < objects.size(); i += 2) {
-        myLastMatch.add(getPosition((MarkerOrInteger) objects.get(i)));
-        myLastMatch.add(getPosition((MarkerOrInteger) objects.get(i + 1)));
+      MatchData data = ourData.get();
+      data.reset(objects.size() / 2 * 2, buffer);
+      for (int i = 0; i < data.mySize; i++) {
+        data.myPositions[i] = getPosition((MarkerOrInteger) objects.get(i), buffer);
       }
       resetMarkersInListIfNeeded(reset, (LispList) list);
     } else {
@@ -183,21 +222,16 @@ public abstract class Match {
   }
 
   private static int getMatchIndex (LispInteger index, boolean start) {
-    LispObject match = getMatch(index, start);
-    if (match instanceof MarkerOrInteger) {
-      Integer position = ((MarkerOrInteger) match).getPosition();
-      return position == null ? -1 : position;
-    }
-    return -1;
+    if (ourData.get().mySize == 0)
+      throw new NoMatchData();
+    return getMatchIndex(index.getData(), start);
   }
 
   private static int getMatchIndex (int index, boolean start) {
-    LispObject match = getMatch(index, start);
-    if (match instanceof MarkerOrInteger) {
-      Integer position = ((MarkerOrInteger) match).getPosition();
-      return position == null ? -1 : position;
-    }
-    return -1;
+    if (index < 0) throw new ArgumentOutOfRange(index, 0);
+    MatchData data = ourData.get();
+    int slot = index * 2 + (start ? 0 : 1);
+    return slot < data.mySize ? data.myPositions[slot] : -1;
   }
 
   @Subroutine("replace-match")
@@ -206,14 +240,14 @@ public abstract class Match {
                                          LispObject string, LispObject subExp) {
     if (!Predicate.isNil(subExp) && !(subExp instanceof LispInteger))
       throw new WrongTypeArgumentException("integerp", subExp);
-    LispInteger index = Predicate.isNil(subExp) ? new LispInteger(0) : (LispInteger)subExp;
+    LispInteger index = Predicate.isNil(subExp) ? LispInteger.valueOf(0) : (LispInteger)subExp;
     int from = getMatchIndex(index, true);
     int to = getMatchIndex(index, false);
     try {
       String text = applyFixedCase(environment, fixedCase, newText, index, string);
-      String source = string instanceof LispString
+      CharSequence source = string instanceof LispString
           ? ((LispString)string).getData()
-          : environment.getBufferCurrentForEditing().getText();
+          : environment.getBufferCurrentForEditing().getCharSequence();
 
       text = applyLiteral(literal, text, index, source, string instanceof LispString ? 0 : -1);
 
@@ -266,7 +300,7 @@ public abstract class Match {
     return newText.getData();
   }
 
-  private static String applyLiteral (LispObject literal, String replacement, LispInteger index, String source, int add) {
+  private static String applyLiteral (LispObject literal, String replacement, LispInteger index, CharSequence source, int add) {
     if (!Predicate.isNil(literal))
       return replacement;
 
@@ -292,10 +326,10 @@ public abstract class Match {
           head = replacement.substring(previousSubgroupIndex, i);
 
         if (next == '&') {
-          tail = source.substring(getMatchIndex(index, true), getMatchIndex(index, false));
+          tail = source.subSequence(getMatchIndex(index, true), getMatchIndex(index, false)).toString();
         } else if (next >= '1' && next <= '9') {
-          if (next <= myLastMatch.size() / 2 + '0' && getMatchIndex(next - '0', true) >= 0) {
-            tail = source.substring(getMatchIndex(next - '0', true) + add, getMatchIndex(next - '0', false) + add);
+          if (next <= ourData.get().mySize / 2 + '0' && getMatchIndex(next - '0', true) >= 0) {
+            tail = source.subSequence(getMatchIndex(next - '0', true) + add, getMatchIndex(next - '0', false) + add).toString();
           }
         } else
           throw new InvalidBackslashInReplacementException();
@@ -315,20 +349,12 @@ public abstract class Match {
   public static LispSymbol lookingAt(Environment environment, LispString regexp) {
     LispBuffer current = environment.getBufferCurrentForEditing();
     BufferEnvironment currentEnv = current.getEnvironment();
-    int point = current.point();
-    Matcher m = StringRegexpUtil.find(currentEnv, regexp.getData(), current.getText(), point, LispSymbol.T.equals(currentEnv.find("case-fold-search")));
-    try {
-      int start = m.start();
-      if (start == point) {
-        myBuffer = current;
-        myLastMatch.clear();
-        myLastMatch.add(m.start(0));
-        myLastMatch.add(m.end(0));
-        return LispSymbol.T;
-      }
-    } catch (IllegalStateException e) { //no match
+    CharSequence text = current.getCharSequence();
+    int[] groups = StringRegexpUtil.compile(regexp.getData(), LispSymbol.T.equals(currentEnv.find("case-fold-search")))
+        .match(currentEnv, text, current.point() - 1, text.length());
+    if (groups == null)
       return LispSymbol.NIL;
-    }
-    return LispSymbol.NIL;
+    registerSearchResult(groups, current);
+    return LispSymbol.T;
   }
 }
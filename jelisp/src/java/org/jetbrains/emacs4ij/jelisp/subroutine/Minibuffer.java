@@ -59,7 +59,7 @@ public abstract class Minibuffer {
         throw new WrongTypeArgumentException("symbolp or (symbol . integer)", historyObject);
       }
     }
-    return LispList.cons(historySymbol, new LispInteger(historyPosition));
+    return LispList.cons(historySymbol, LispInteger.valueOf(historyPosition));
   }
 
   private static LispList historyValue() {
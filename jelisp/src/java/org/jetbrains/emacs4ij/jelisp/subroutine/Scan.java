@@ -33,13 +33,13 @@ public abstract class Scan {
 
     //todo: scan and return real data)))
 
-    return LispList.list(new LispInteger(1),
+    return LispList.list(LispInteger.valueOf(1),
         LispSymbol.NIL,
         to,
         LispSymbol.NIL,
         LispSymbol.NIL,
         LispSymbol.NIL,
-        new LispInteger(0),
+        LispInteger.valueOf(0),
         LispSymbol.NIL,
         LispSymbol.NIL,
         LispSymbol.NIL
@@ -208,7 +208,7 @@ public abstract class Scan {
     if (count < 0)
       throw new LispException("generic scan-forward error");
     iterator.checkUnbalancedParentheses(depth);
-    return iterator.valid() ? new LispInteger(iterator.from + 1) : LispSymbol.NIL;
+    return iterator.valid() ? LispInteger.valueOf(iterator.from + 1) : LispSymbol.NIL;
   }
 
   private static LispObject scanBackward (Environment environment, int from) {
@@ -216,7 +216,7 @@ public abstract class Scan {
     while (from > finish) {
       //todo
     }
-    return new LispInteger(from); // or nil
+    return LispInteger.valueOf(from); // or nil
   }
 
   private static boolean skipCommentForward (final SyntaxDescriptor.CommentStyle style, boolean prevValid, SyntaxIterator iterator) {
@@ -292,13 +292,13 @@ public abstract class Scan {
 
     private int lastGood;
     private final Environment environment;
-    private final String text;
+    private final CharSequence text;
     private Descriptor current;
     private Descriptor previous;
 
     public SyntaxIterator (Environment e, int start, int end) {
       environment = e;
-      text = environment.getBufferCurrentForEditing().getText();
+      text = environment.getBufferCurrentForEditing().getCharSequence();
       from = start - 1;
 //      LogUtil.info(text.substring(from));
       finish = end;
@@ -43,8 +43,8 @@ public abstract class Sequence {
         if (!isSequence(sequence))
             throw new WrongTypeArgumentException("sequencep", sequence);
         if (sequence.equals(LispSymbol.NIL))
-            return new LispInteger(0);
-        return new LispInteger(((LispSequence)sequence).size());
+            return LispInteger.valueOf(0);
+        return LispInteger.valueOf(((LispSequence)sequence).size());
     }
 
     @Subroutine(value = "append")
@@ -1,6 +1,7 @@
 package org.jetbrains.emacs4ij.jelisp.subroutine;
 
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.emacs4ij.jelisp.BindingStack;
 import org.jetbrains.emacs4ij.jelisp.BufferEnvironment;
 import org.jetbrains.emacs4ij.jelisp.CustomEnvironment;
 import org.jetbrains.emacs4ij.jelisp.Environment;
@@ -33,46 +34,55 @@ import java.util.List;
 public abstract class SpecialForms {
   private SpecialForms() {}
 
+  private static LispObject letValue (LispObject var, Environment inner) {
+    if (var instanceof LispSymbol)
+      return LispSymbol.NIL;
+    if (var instanceof LispList && ((LispList) var).car() instanceof LispSymbol) {
+      LispObject valueForm = ((LispList) var).cdr();
+      return valueForm instanceof LispList
+          ? ((LispList) valueForm).car().evaluate(inner)
+          : valueForm.evaluate(inner);
+    }
+    throw new InternalException(JelispBundle.message("wrong.variable", var.toString()));
+  }
+
+  private static String letName (LispObject var) {
+    return var instanceof LispSymbol
+        ? ((LispSymbol) var).getName()
+        : ((LispSymbol) ((LispList) var).car()).getName();
+  }
+
   private static void bindLetVariables (boolean isStar, Environment inner, LispList varList) {
-    ArrayList<LispSymbol> vars = new ArrayList<>();
-    for (LispObject var: varList.toLispObjectList()) {
-      if (var instanceof LispList) {
-        LispSymbol symbol = new LispSymbol(((LispSymbol) ((LispList) var).car()).getName());
-        LispObject valueForm = ((LispList) var).cdr();
-        if (valueForm instanceof LispList) {
-          LispObject value = ((LispList)valueForm).car().evaluate(inner);
-          symbol.setValue(value);
-        } else {
-          symbol.setValue(valueForm.evaluate(inner));
-        }
-        if (isStar)
-          inner.defineSymbol(symbol);
-        else vars.add(symbol);
-        continue;
+    if (isStar) {
+      for (LispObject var: varList) {
+        BindingStack.bind(inner, letName(var), letValue(var, inner));
       }
-      if (var instanceof LispSymbol) {
-        LispSymbol symbol = new LispSymbol (((LispSymbol) var).getName(), LispSymbol.NIL);
-        if (isStar)
-          inner.defineSymbol(symbol);
-        else vars.add(symbol);
-        continue;
-      }
-      throw new InternalException(JelispBundle.message("wrong.variable", var.toString()));
+      return;
+    }
+    ArrayList<LispObject> vars = new ArrayList<>();
+    ArrayList<LispObject> values = new ArrayList<>();
+    for (LispObject var: varList) {
+      values.add(letValue(var, inner));
+      vars.add(var);
+    }
+    for (int i = 0; i != vars.size(); ++i) {
+      BindingStack.bind(inner, letName(vars.get(i)), values.get(i));
     }
-    if (!isStar)
-      for (LispSymbol symbol : vars) {
-        inner.defineSymbol(symbol);
-      }
   }
 
   private static LispObject executeLet (boolean isStar, Environment environment, LispList varList, LispObject... body) {
     Environment inner = new CustomEnvironment(environment);
-    bindLetVariables(isStar, inner, varList);
-    LispObject result = LispSymbol.NIL;
-    for (LispObject bodyForm: body) {
-      result = bodyForm.evaluate(inner);
+    int depth = BindingStack.depth();
+    try {
+      bindLetVariables(isStar, inner, varList);
+      LispObject result = LispSymbol.NIL;
+      for (LispObject bodyForm: body) {
+        result = bodyForm.evaluate(inner);
+      }
+      return result;
+    } finally {
+      BindingStack.unbindTo(depth);
     }
-    return result;
   }
 
   @Subroutine("quote")
@@ -366,9 +376,11 @@ public abstract class SpecialForms {
         }
       }
     }
+    int depth = BindingStack.depth();
     try {
       return bodyForm.evaluate(environment);
     } catch (RuntimeException e) {
+      BindingStack.unbindTo(depth);
       Throwable exc = e;
       while (exc.getCause() != null) {
         exc = exc.getCause();
@@ -379,7 +391,6 @@ public abstract class SpecialForms {
       for (LispList handler: h) {
         LispSymbol errorSymbol = (LispSymbol) handler.car();
         if (errorSymbol.getName().equals(annotation.value())) {
-          // todo: unbind all bindings; clean-ups for all unwind-protect forms
           ForwardParser forwardParser = new ForwardParser();
           LispList errorInfo = (LispList) forwardParser.parseLine(exc.getMessage());
           while (!GlobalEnvironment.ourCallStack.getFirst().getFirst().equals("condition-case")) {
@@ -389,22 +400,24 @@ public abstract class SpecialForms {
             GlobalEnvironment.ourCallStack.removeFirst();
           }
           Environment inner = new CustomEnvironment(environment);
-          if (!var.equals(LispSymbol.NIL)) {
-            LispSymbol test = environment.find(var.getName());
-            if (test == null) {
-              //init in given environment
-              setq(environment, var, errorInfo);
-            } else {
-              //create local binding
-              var.setValue(errorInfo.evaluate(inner));
-              inner.defineSymbol(var);
+          try {
+            if (!var.equals(LispSymbol.NIL)) {
+              if (environment.find(var.getName()) == null) {
+                //init in given environment
+                setq(environment, var, errorInfo);
+              } else {
+                //create local binding
+                BindingStack.bind(inner, var.getName(), errorInfo.evaluate(inner));
+              }
             }
+            LispObject result = LispSymbol.NIL;
+            for (LispObject form: ((LispList)handler.cdr()).toLispObjectList()) {
+              result = form.evaluate(inner);
+            }
+            return result;
+          } finally {
+            BindingStack.unbindTo(depth);
           }
-          LispObject result = LispSymbol.NIL;
-          for (LispObject form: ((LispList)handler.cdr()).toLispObjectList()) {
-            result = form.evaluate(inner);
-          }
-          return result;
         }
       }
       throw e;
@@ -415,6 +428,7 @@ public abstract class SpecialForms {
   public static LispObject lispCatch (Environment environment, LispObject tagObject, @Optional LispObject... body) {
     //note: emacs man says nil cannot be tag, but signals no error though
     LispObject tag = tagObject.evaluate(environment);
+    int depth = BindingStack.depth();
     try {
       LispObject result = LispSymbol.NIL;
       for (LispObject bodyForm: body) {
@@ -423,6 +437,7 @@ public abstract class SpecialForms {
       return result;
     } catch (LispThrow e) {
       if (Core.eqs(tag, e.getTag())) {
+        BindingStack.unbindTo(depth);
         return e.getValue();
       }
       throw e;
@@ -463,9 +478,11 @@ public abstract class SpecialForms {
 
   @Subroutine("unwind-protect")
   public static LispObject unwindProtect (Environment environment, LispObject body, @Optional LispObject... protectForms) {
+    int depth = BindingStack.depth();
     try {
       return body.evaluate(environment);
     } finally {
+      BindingStack.unbindTo(depth);
       for (LispObject protectForm: protectForms) {
         protectForm.evaluate(environment);
       }
@@ -181,7 +181,7 @@ public abstract class Symbol {
     }
     List<LispSymbol> filtered = new ArrayList<>();
     for (LispObject o: objectArray.toLispObjectList()) {
-      if (o.equals(new LispInteger(0))) continue;
+      if (o.equals(LispInteger.valueOf(0))) continue;
       if (o instanceof LispSymbol) {
         if (((LispSymbol) o).getName().equals(name)) {
           filtered.add((LispSymbol) o);
@@ -203,27 +203,64 @@ public abstract class Symbol {
   public static LispSymbol intern(String name, LispObject objectArray) {
     //TODO? you cannot intern a given symbol in more than one object array
 
-    if (Predicate.isNil(objectArray))
-      objectArray = null;
-    if (objectArray != null && (!(objectArray instanceof LispVector) || ((LispVector) objectArray).isEmpty()))
-      throw new WrongTypeArgumentException("vectorp", objectArray);
+    LispVector vector = checkObjectArray(objectArray);
+    if (vector == null)
+      return GlobalEnvironment.INSTANCE.intern(name);
 
-    LispSymbol symbol = getSymbol(name, (LispVector) objectArray);
+    LispSymbol symbol = getSymbol(name, vector);
     if (symbol != null)
       return symbol;
 
     symbol = new LispSymbol(name);
+    GlobalEnvironment.INSTANCE.defineSymbol(symbol);
+    vector.defineSymbol(symbol);
+    return symbol;
+  }
 
-    if (objectArray == null)
-      GlobalEnvironment.INSTANCE.defineSymbol(symbol);
-    else {
-      GlobalEnvironment.INSTANCE.defineSymbol(symbol);
-      ((LispVector)objectArray).defineSymbol(symbol);
-    }
+  private static LispVector checkObjectArray (@Nullable LispObject objectArray) {
+    if (Predicate.isNil(objectArray))
+      return null;
+    if (!(objectArray instanceof LispVector) || ((LispVector) objectArray).isEmpty())
+      throw new WrongTypeArgumentException("vectorp", objectArray);
+    return (LispVector) objectArray;
+  }
 
+  @Subroutine("intern-soft")
+  public static LispObject internSoft (LispObject name, @Optional LispObject objectArray) {
+    LispVector vector = checkObjectArray(objectArray);
+    String symbolName;
+    if (name instanceof LispString)
+      symbolName = ((LispString) name).getData();
+    else if (name instanceof LispSymbol)
+      symbolName = ((LispSymbol) name).getName();
+    else
+      throw new WrongTypeArgumentException("stringp", name);
+    LispSymbol symbol = vector == null
+        ? GlobalEnvironment.INSTANCE.internSoft(symbolName)
+        : getSymbol(symbolName, vector);
+    if (symbol == null || (name instanceof LispSymbol && !symbol.equals(name)))
+      return LispSymbol.NIL;
     return symbol;
   }
 
+  @Subroutine("mapatoms")
+  public static LispObject mapAtoms (Environment environment, LispObject function, @Optional LispObject objectArray) {
+    LispVector vector = checkObjectArray(objectArray);
+    List<LispObject> symbols = new ArrayList<>();
+    if (vector == null)
+      symbols.addAll(GlobalEnvironment.INSTANCE.getSymbols());
+    else {
+      for (LispObject item: vector.toLispObjectList()) {
+        if (item instanceof LispSymbol)
+          symbols.add(item);
+      }
+    }
+    for (LispObject symbol: symbols) {
+      Core.functionCall(environment, function, symbol);
+    }
+    return LispSymbol.NIL;
+  }
+
   @Subroutine("interactive-form")
   public static LispObject interactiveForm (LispObject command) {
     if (command instanceof LispList)
@@ -131,7 +131,11 @@ public abstract class SyntaxTable {
   }
 
   public static SyntaxDescriptor.ClassType getSyntaxClass (@Nullable Environment environment, char c) {
-    LispObject car = getSyntaxTable(environment).getCharSyntax(c).car();
+    return getSyntaxClass(getSyntaxTable(environment), c);
+  }
+
+  public static SyntaxDescriptor.ClassType getSyntaxClass (LispSyntaxTable table, char c) {
+    LispObject car = table.getCharSyntax(c).car();
     if (!(car instanceof LispInteger))
       return SyntaxDescriptor.ClassType.WHITESPACE;
     return SyntaxDescriptor.classBySyntaxCode(((LispInteger) car).getData());
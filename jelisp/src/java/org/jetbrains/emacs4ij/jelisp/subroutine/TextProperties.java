@@ -31,7 +31,7 @@ public abstract class TextProperties {
       throw new WrongNumberOfArgumentsException("propertize");
     LispList propertyList = revert(Arrays.asList(properties));
     LispString copy = (LispString) string.copy();
-    addTextProperties(environment, new LispInteger(0), new LispInteger(copy.size()), propertyList, copy);
+    addTextProperties(environment, LispInteger.valueOf(0), LispInteger.valueOf(copy.size()), propertyList, copy);
     return copy;
   }
 
@@ -72,7 +72,7 @@ public abstract class Window {
       frames = environment.getVisibleFrames(); //search all visible frames
     } else if (allFrames.equals(LispSymbol.T)) { //search all frames.
       frames = environment.getAllFrames();
-    } else if (allFrames.equals(new LispInteger(0))) { //search visible and iconified frames.
+    } else if (allFrames.equals(LispInteger.valueOf(0))) { //search visible and iconified frames.
       frames = environment.getVisibleAndIconifiedFrames();
     } else if (allFrames instanceof LispFrame) { //search only that frame.
       frames.add((LispFrame) allFrames);
@@ -126,13 +126,13 @@ public abstract class Window {
   public static LispObject windowStart (Environment environment, @Optional LispObject windowObject) {
     LispWindow window = getWindow(environment, windowObject);
     Integer start = window.getDisplayStart();
-    return start == null ? LispSymbol.NIL : new LispInteger(start);
+    return start == null ? LispSymbol.NIL : LispInteger.valueOf(start);
   }
 
   @Subroutine("window-point")
   public static LispObject windowPoint (Environment environment, @Optional LispObject windowObject) {
     LispWindow window = getWindow(environment, windowObject);
-    return new LispInteger(window.getBuffer().point());
+    return LispInteger.valueOf(window.getBuffer().point());
   }
 
   @Subroutine("window-system")
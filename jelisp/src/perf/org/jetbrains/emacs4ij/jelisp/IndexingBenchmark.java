@@ -0,0 +1,53 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * indexes the whole Emacs lisp tree and reports the throughput of definition recognition.
+ * Usage: IndexingBenchmark [emacs-lisp-dir [runs]], the lisp directory of the Emacs sources by default
+ */
+public final class IndexingBenchmark {
+  private IndexingBenchmark() {}
+
+  public static void main (String[] args) throws IOException {
+    File root = new File(args.length > 0 ? args[0] : GlobalEnvironment.getEmacsSource() + "/lisp/");
+    if (!root.isDirectory()) {
+      System.err.println("Not a directory: " + root);
+      System.exit(1);
+    }
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    int lines = countLines(root);
+    for (int run = 1; run <= runs; ++run) {
+      long start = System.nanoTime();
+      DefinitionIndex index = DefinitionLoader.buildIndex(root);
+      long time = System.nanoTime() - start;
+      System.out.println(String.format("run %d: indexed %d definitions in %d lines: %.0f lines/sec",
+          run, index.size(), lines, lines * 1e9 / time));
+    }
+  }
+
+  private static int countLines (File file) throws IOException {
+    if (file.isDirectory()) {
+      int n = 0;
+      File[] files = file.listFiles();
+      if (files != null)
+        for (File f: files)
+          n += countLines(f);
+      return n;
+    }
+    if (!file.getName().endsWith(".el"))
+      return 0;
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      int n = 0;
+      while (reader.readLine() != null)
+        n++;
+      return n;
+    } finally {
+      reader.close();
+    }
+  }
+}
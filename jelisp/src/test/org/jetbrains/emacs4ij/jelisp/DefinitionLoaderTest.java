@@ -6,9 +6,14 @@ import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.SortedMap;
 
-public class DefinitionLoaderTest extends JelispTestCase {
+public class DefinitionLoaderTest extends TemporaryDirectoryTestCase {
   @Test
   public void testInit() {
     DefinitionLoader.test();
@@ -117,4 +122,173 @@ public class DefinitionLoaderTest extends JelispTestCase {
     DefinitionLoader.loadEmacsFile("jit-lock.el");
     Assert.assertNotNull(GlobalEnvironment.INSTANCE.find("with-buffer-prepared-for-jit-lock"));
   }
+
+
+  @Test
+  public void testBuildIndex() throws IOException {
+    File top = writeFile(myRoot, "a.el", ";; (defun commented ())\n(defvar v 1)\n(defun f () (defun g ()))\n");
+    File nested = writeFile(myRoot, "sub/b.el", "(defun f (x) x)\n(defun f (y) y)\n");
+    writeFile(myRoot, "language/c.el", "(defun skipped ())\n");
+    writeFile(myRoot, "sub/d.txt", "(defun not-elisp ())\n");
+
+    DefinitionIndex index = DefinitionLoader.buildIndex(myRoot);
+    Assert.assertEquals(3, index.size());
+    SortedMap<String, Long> locations = index.get(new Identifier("f", DefinitionLoader.DefType.FUN));
+    Assert.assertEquals(Arrays.asList(top.getAbsolutePath(), nested.getAbsolutePath()), new ArrayList<>(locations.keySet()));
+    Assert.assertEquals(Long.valueOf(37), locations.get(top.getAbsolutePath()));
+    Assert.assertEquals(Long.valueOf(0), locations.get(nested.getAbsolutePath()));
+    Assert.assertEquals(Long.valueOf(49), index.get(new Identifier("g", DefinitionLoader.DefType.FUN)).get(top.getAbsolutePath()));
+    Assert.assertEquals(Long.valueOf(24), index.get(new Identifier("v", DefinitionLoader.DefType.VAR)).get(top.getAbsolutePath()));
+  }
+
+  @Test
+  public void testDefStartIndex() {
+    Assert.assertEquals(0, DefinitionLoader.defStartIndex("(defvaralias 'a b)", "a", DefinitionLoader.myDefVars));
+    Assert.assertEquals(-1, DefinitionLoader.defStartIndex("(defvar-local a b)", "a", DefinitionLoader.myDefVars));
+    Assert.assertEquals(2, DefinitionLoader.defStartIndex("  ( defun\tf", "f", DefinitionLoader.myDefFuns));
+    Assert.assertEquals(-1, DefinitionLoader.defStartIndex("(defun f(x) x)", "f", DefinitionLoader.myDefFuns));
+    Assert.assertEquals(-1, DefinitionLoader.defStartIndex("(defun fg () x)", "f", DefinitionLoader.myDefFuns));
+    Assert.assertEquals(-1, DefinitionLoader.defStartIndex("(defvar f)", "f", DefinitionLoader.myDefFuns));
+    Assert.assertEquals(12, DefinitionLoader.defStartIndex("(defun f () (defalias 'g 'f))", "g", DefinitionLoader.myDefFuns));
+  }
+
+  @Test
+  public void testSaveAndLoadIndex() throws IOException {
+    writeFile(myRoot, "a.el", "(defvar v 1)\n(defun f () (defun \u00e9t\u00e9 ()))\n(defvar f)\n");
+    writeFile(myRoot, "sub/b.el", "(defun f (x) x)\n");
+    writeFile(myRoot, "sub/c/d.el", "(defun f (x) x)\n(defun g (x) x)\n");
+    DefinitionIndex built = DefinitionLoader.buildIndex(myRoot);
+    File file = new File(myRoot, "index.bin");
+    built.save(file);
+
+    DefinitionIndex loaded = DefinitionIndex.load(file);
+    Assert.assertTrue(loaded.isMapped());
+    Assert.assertEquals(built.size(), loaded.size());
+    for (Map.Entry<Identifier, IdLocation> entry: built.entrySet()) {
+      SortedMap<String, Long> locations = loaded.get(entry.getKey());
+      Assert.assertEquals(entry.getValue().getLocations(), locations);
+      Assert.assertEquals(new ArrayList<>(entry.getValue().getLocations().keySet()), new ArrayList<>(locations.keySet()));
+    }
+    Assert.assertFalse(loaded.containsKey(new Identifier("g", DefinitionLoader.DefType.VAR)));
+    Assert.assertNull(loaded.get(new Identifier("h", DefinitionLoader.DefType.FUN)));
+
+    Identifier f = new Identifier("f", DefinitionLoader.DefType.FUN);
+    loaded.get(f).remove(loaded.get(f).firstKey());
+    Assert.assertEquals(2, loaded.get(f).size());
+    Assert.assertEquals(built.keySet(), loaded.keySet());
+    Assert.assertFalse(loaded.isMapped());
+    Assert.assertEquals(2, loaded.get(f).size());
+  }
+
+  @Test
+  public void testUpdateIndex() throws IOException {
+    File a = writeFile(myRoot, "a.el", "(defvar v 1)\n(defun f ())\n");
+    writeFile(myRoot, "sub/b.el", "(defun f (x) x)\n(defun g (x) x)\n");
+    File c = writeFile(myRoot, "sub/c.el", "(defun h ())\n");
+    File file = new File(myRoot, "index.bin");
+    DefinitionLoader.buildIndex(myRoot).save(file);
+
+    DefinitionIndex index = DefinitionIndex.load(file);
+    DefinitionLoader.updateIndex(index, myRoot);
+    Assert.assertTrue(index.isMapped());
+    Assert.assertFalse(index.isModified());
+
+    Assert.assertTrue(a.setLastModified(a.lastModified() - 10000));
+    writeFile(myRoot, "sub/b.el", "\n(defun g (y) y)\n");
+    Assert.assertTrue(c.delete());
+    writeFile(myRoot, "sub/e.el", "(defvar w)\n");
+    DefinitionLoader.updateIndex(index, myRoot);
+    Assert.assertTrue(index.isModified());
+
+    DefinitionIndex rebuilt = DefinitionLoader.buildIndex(myRoot);
+    Assert.assertEquals(rebuilt.keySet(), index.keySet());
+    for (Map.Entry<Identifier, IdLocation> entry: rebuilt.entrySet()) {
+      Assert.assertEquals(entry.getValue().getLocations(), index.get(entry.getKey()));
+    }
+    Assert.assertEquals(Long.valueOf(1), index.get(new Identifier("g", DefinitionLoader.DefType.FUN)).values().iterator().next());
+    Assert.assertEquals(rebuilt.getFileStamps().keySet(), index.getFileStamps().keySet());
+  }
+
+  @Test
+  public void testSaveLoadedIndexToSamePath() throws IOException {
+    writeFile(myRoot, "a.el", "(defvar v 1)\n(defun f ())\n");
+    File file = new File(myRoot, "index.bin");
+    DefinitionLoader.buildIndex(myRoot).save(file);
+
+    DefinitionIndex index = DefinitionIndex.load(file);
+    writeFile(myRoot, "b.el", "(defun g ())\n");
+    DefinitionLoader.updateIndex(index, myRoot);
+    Assert.assertTrue(index.isModified());
+    index.save(file);
+    Assert.assertFalse(index.isMapped());
+    Assert.assertFalse(DefinitionIndexFile.getPendingFile(file).exists());
+
+    DefinitionIndex loaded = DefinitionIndex.load(file);
+    Assert.assertEquals(DefinitionLoader.buildIndex(myRoot).keySet(), loaded.keySet());
+  }
+
+  @Test
+  public void testLoadPendingIndex() throws IOException {
+    writeFile(myRoot, "a.el", "(defun f ())\n");
+    File file = new File(myRoot, "index.bin");
+    DefinitionLoader.buildIndex(myRoot).save(file);
+    writeFile(myRoot, "a.el", "(defun g ())\n");
+    File pending = DefinitionIndexFile.getPendingFile(file);
+    DefinitionLoader.buildIndex(myRoot).save(pending);
+    Assert.assertTrue(pending.setLastModified(file.lastModified() + 10000));
+
+    DefinitionIndex loaded = DefinitionIndex.load(file);
+    Assert.assertFalse(pending.exists());
+    Assert.assertTrue(loaded.containsKey(new Identifier("g", DefinitionLoader.DefType.FUN)));
+    Assert.assertFalse(loaded.containsKey(new Identifier("f", DefinitionLoader.DefType.FUN)));
+  }
+
+  @Test
+  public void testFormCache() throws IOException {
+    File a = writeFile(myRoot, "a.el", "(defvar v 1)\n(defun f (x . y) \"doc\n\" [1 2.5 ()] '(a . b))\n");
+    String path = a.getAbsolutePath();
+    Identifier f = new Identifier("f", DefinitionLoader.DefType.FUN);
+    FormCache.clear();
+
+    LispList parsed = DefinitionLoader.FileScanner.getDefFromFile(path, 13, f);
+    LispList cached = FormCache.get(path, 13, f);
+    Assert.assertEquals(parsed, cached);
+    Assert.assertNotSame(cached, FormCache.get(path, 13, f));
+    Assert.assertNull(FormCache.get(path, 13, new Identifier("v", DefinitionLoader.DefType.FUN)));
+
+    File file = new File(myRoot, "forms.bin");
+    FormCache.save(file);
+    FormCache.clear();
+    FormCache.load(file);
+    Assert.assertFalse(FormCache.isModified());
+    Assert.assertEquals(parsed, FormCache.get(path, 13, f));
+
+    Assert.assertTrue(a.setLastModified(a.lastModified() - 10000));
+    Assert.assertEquals(parsed, FormCache.get(path, 13, f));
+    writeFile(myRoot, "a.el", "(defvar w 1)\n(defun f (y) y)\n");
+    Assert.assertNull(FormCache.get(path, 13, f));
+    Assert.assertEquals(0, FormCache.size());
+  }
+
+  @Test
+  public void testPrefetch() throws IOException, InterruptedException {
+    File a = writeFile(myRoot, "a.el", "(defun prefetch-a () (prefetch-b prefetch-v 'car))\n(defun prefetch-b (x) x)\n");
+    File b = writeFile(myRoot, "b.el", "(defvar prefetch-v 1)\n");
+    DefinitionIndex index = DefinitionLoader.buildIndex(myRoot);
+    Identifier function = new Identifier("prefetch-b", DefinitionLoader.DefType.FUN);
+    Identifier variable = new Identifier("prefetch-v", DefinitionLoader.DefType.VAR);
+    FormCache.clear();
+
+    DefinitionPrefetcher.setEnabled(true);
+    try {
+      Identifier loaded = new Identifier("prefetch-a", DefinitionLoader.DefType.FUN);
+      DefinitionPrefetcher.schedule(DefinitionLoader.FileScanner.readDef(a.getAbsolutePath(), 0, loaded), loaded, index);
+      DefinitionPrefetcher.flush();
+    } finally {
+      DefinitionPrefetcher.setEnabled(false);
+    }
+    Assert.assertEquals(2, FormCache.size());
+    Assert.assertEquals(evaluateString("'(defun prefetch-b (x) x)"), FormCache.get(a.getAbsolutePath(), 51, function));
+    Assert.assertEquals(evaluateString("'(defvar prefetch-v 1)"), FormCache.get(b.getAbsolutePath(), 0, variable));
+  }
 }
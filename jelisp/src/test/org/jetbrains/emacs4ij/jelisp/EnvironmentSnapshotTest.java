@@ -0,0 +1,114 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.jetbrains.emacs4ij.jelisp.elisp.LispInteger;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispVector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EnvironmentSnapshotTest extends TemporaryDirectoryTestCase {
+  private static List<LispSymbol> globals (String... names) {
+    List<LispSymbol> symbols = new ArrayList<>();
+    for (String name: names) {
+      symbols.add(GlobalEnvironment.INSTANCE.find(name));
+    }
+    return symbols;
+  }
+
+  @Test
+  public void testWriteAndRestore() throws IOException {
+    evaluateString("(defun snapshot-f (x &optional y) \"doc\" (list x y [1 2.5] '(a . b)))");
+    evaluateString("(defmacro snapshot-m (x) (list 'quote x))");
+    evaluateString("(defvar snapshot-v '(1 \"two\" ()))");
+    evaluateString("(put 'snapshot-v 'snapshot-p 'value)");
+    evaluateString("(defvaralias 'snapshot-a 'snapshot-v)");
+    evaluateString("(defalias 'snapshot-car (symbol-function 'car))");
+
+    File dependency = writeFile(myRoot, "snapshot.el", "");
+    File file = new File(myRoot, "snapshot.bin");
+    int n = EnvironmentSnapshot.write(file, "test", Arrays.asList(dependency), new DocumentationExtractor(""),
+        globals("snapshot-f", "snapshot-m", "snapshot-v", "snapshot-a", "snapshot-car"));
+    Assert.assertEquals(5, n);
+
+    EnvironmentSnapshot snapshot = EnvironmentSnapshot.open(file, "test");
+    Assert.assertNotNull(snapshot);
+
+    LispSymbol f = snapshot.restore("snapshot-f", null);
+    Assert.assertTrue(f.isCustom());
+    Assert.assertEquals(GlobalEnvironment.INSTANCE.find("snapshot-f").getFunction().toString(), f.getFunction().toString());
+    Assert.assertEquals(new LispString("doc"), f.getDocumentation());
+    Assert.assertTrue(snapshot.restore("snapshot-m", null).isMacro());
+    Assert.assertSame(GlobalEnvironment.INSTANCE.find("car").getFunction(), snapshot.restore("snapshot-car", null).getFunction());
+
+    LispSymbol v = snapshot.restore("snapshot-v", null);
+    Assert.assertEquals(GlobalEnvironment.INSTANCE.find("snapshot-v").getValue(), v.getValue());
+    Assert.assertEquals(new LispSymbol("value"), v.getProperty("snapshot-p"));
+    Assert.assertEquals("snapshot-v", snapshot.restore("snapshot-a", null).next().getName());
+
+    LispSymbol existing = new LispSymbol("snapshot-v", LispInteger.valueOf(1));
+    Assert.assertSame(existing, snapshot.restore("snapshot-v", existing));
+    Assert.assertEquals(v.getValue(), existing.getValue());
+  }
+
+  @Test
+  public void testSharedAndCircularStructure() throws IOException {
+    evaluateString("(defvar snapshot-c (list 1 2 3))");
+    evaluateString("(setcdr (nthcdr 2 snapshot-c) snapshot-c)");
+    evaluateString("(defvar snapshot-s (let ((x (list 'a \"s\"))) (list x x (vector x))))");
+    evaluateString("(aset (nth 2 snapshot-s) 0 (nth 2 snapshot-s))");
+    evaluateString("(put 'snapshot-s 'snapshot-p (car snapshot-s))");
+
+    File dependency = writeFile(myRoot, "snapshot.el", "");
+    File file = new File(myRoot, "snapshot.bin");
+    Assert.assertEquals(2, EnvironmentSnapshot.write(file, "test", Arrays.asList(dependency), new DocumentationExtractor(""),
+        globals("snapshot-c", "snapshot-s")));
+    EnvironmentSnapshot snapshot = EnvironmentSnapshot.open(file, "test");
+    Assert.assertNotNull(snapshot);
+
+    LispList c = (LispList) snapshot.restore("snapshot-c", null).getValue();
+    Assert.assertEquals(LispInteger.valueOf(3), ((LispList) c.nthCdr(2)).car());
+    Assert.assertSame(c, c.nthCdr(3));
+
+    LispSymbol s = snapshot.restore("snapshot-s", null);
+    LispList value = (LispList) s.getValue();
+    LispList x = (LispList) value.car();
+    Assert.assertEquals(evaluateString("'(a \"s\")"), x);
+    Assert.assertSame(x, ((LispList) value.nthCdr(1)).car());
+    Assert.assertSame(x, s.getProperty("snapshot-p"));
+    LispVector vector = (LispVector) ((LispList) value.nthCdr(2)).car();
+    Assert.assertSame(vector, vector.get(0));
+  }
+
+  @Test
+  public void testUnencodableSymbol() throws IOException {
+    evaluateString("(defvar snapshot-h (make-hash-table))");
+    File dependency = writeFile(myRoot, "snapshot.el", "");
+    File file = new File(myRoot, "snapshot.bin");
+    try {
+      EnvironmentSnapshot.write(file, "test", Arrays.asList(dependency), new DocumentationExtractor(""),
+          globals("car", "snapshot-h"));
+      Assert.fail("snapshot-h must not be encoded");
+    } catch (IOException e) {
+      Assert.assertFalse(file.exists());
+    }
+  }
+
+  @Test
+  public void testInvalidation() throws IOException {
+    File dependency = writeFile(myRoot, "snapshot.el", "");
+    File file = new File(myRoot, "snapshot.bin");
+    EnvironmentSnapshot.write(file, "test", Arrays.asList(dependency), new DocumentationExtractor(""), globals("car"));
+    Assert.assertNotNull(EnvironmentSnapshot.open(file, "test"));
+    Assert.assertNull(EnvironmentSnapshot.open(file, "other"));
+    Assert.assertTrue(dependency.setLastModified(dependency.lastModified() - 10000));
+    Assert.assertNull(EnvironmentSnapshot.open(file, "test"));
+  }
+}
@@ -27,4 +27,63 @@ public class EnvironmentTest extends JelispTestCase {
     List<String> commandList = GlobalEnvironment.INSTANCE.getCommandList("f");
     Assert.assertFalse(commandList.isEmpty());
   }
+
+  @Test
+  public void testShallowBinding() {
+    myEnvironment.defineSymbol(new LispSymbol("a", new LispInteger(1)));
+    CustomEnvironment inner = new CustomEnvironment(myEnvironment);
+    int depth = BindingStack.depth();
+    LispSymbol cell = BindingStack.bind(inner, "a", new LispInteger(2));
+    Assert.assertSame(myEnvironment.find("a"), cell);
+    Assert.assertEquals(new LispInteger(2), myEnvironment.find("a").getValue());
+    BindingStack.bind(inner, "b", new LispInteger(3));
+    Assert.assertEquals(new LispInteger(3), inner.find("b").getValue());
+    BindingStack.unbindTo(depth);
+    Assert.assertEquals(new LispInteger(1), myEnvironment.find("a").getValue());
+    Assert.assertNull(inner.find("b"));
+  }
+
+  @Test
+  public void testBindingDoesNotIntern() {
+    Assert.assertEquals(new LispInteger(1), evaluateString("(let ((let-bound-symbol 1)) let-bound-symbol)"));
+    Assert.assertEquals(LispSymbol.NIL, evaluateString("(intern-soft \"let-bound-symbol\")"));
+    evaluateString("(let ((let-bound-symbol 1)) (defun let-bound-symbol () 2))");
+    Assert.assertEquals(new LispInteger(2), evaluateString("(let-bound-symbol)"));
+  }
+
+  @Test
+  public void testBindingsAreThreadLocal() throws InterruptedException {
+    int depth = BindingStack.depth();
+    BindingStack.bind(myEnvironment, "a", new LispInteger(1));
+    final int[] otherDepth = new int[1];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        otherDepth[0] = BindingStack.depth();
+      }
+    });
+    thread.start();
+    thread.join();
+    Assert.assertEquals(0, otherDepth[0]);
+    Assert.assertEquals(depth + 1, BindingStack.depth());
+    BindingStack.unbindTo(depth);
+  }
+
+  @Test
+  public void testUnbindOnNonLocalExit() {
+    evaluateString("(setq a 1)");
+    evaluateString("(catch 'done (let ((a 2)) (throw 'done a)))");
+    Assert.assertEquals(new LispInteger(1), evaluateString("a"));
+    evaluateString("(condition-case nil (let ((a 3)) (car a)) (wrong-type-argument a))");
+    Assert.assertEquals(new LispInteger(1), evaluateString("a"));
+    Assert.assertEquals(new LispInteger(5), evaluateString("(let ((a 4)) (unwind-protect (let ((a 5)) a) (setq b a)))"));
+    Assert.assertEquals(new LispInteger(4), evaluateString("b"));
+  }
+
+  @Test
+  public void testCalleeSetsCallerArgument() {
+    evaluateString("(defun g () (setq x 5))");
+    evaluateString("(defun f (x) (g) x)");
+    Assert.assertEquals(new LispInteger(5), evaluateString("(f 1)"));
+  }
 }
@@ -0,0 +1,47 @@
+package org.jetbrains.emacs4ij.jelisp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * a test case whose files are kept in a fresh directory, it is deleted after each test
+ */
+public abstract class TemporaryDirectoryTestCase extends JelispTestCase {
+  protected File myRoot;
+
+  @Before
+  public void createRoot() {
+    myRoot = new File(System.getProperty("java.io.tmpdir"), "jelisp-test-" + System.nanoTime());
+    Assert.assertTrue(myRoot.mkdirs());
+  }
+
+  @After
+  public void deleteRoot() {
+    delete(myRoot);
+  }
+
+  private static void delete (File file) {
+    File[] files = file.listFiles();
+    if (files != null)
+      for (File f: files)
+        delete(f);
+    file.delete();
+  }
+
+  protected static File writeFile (File dir, String name, String text) throws IOException {
+    File file = new File(dir, name);
+    file.getParentFile().mkdirs();
+    FileWriter writer = new FileWriter(file);
+    try {
+      writer.write(text);
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+}
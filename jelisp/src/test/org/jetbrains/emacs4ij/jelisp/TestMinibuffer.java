@@ -48,6 +48,11 @@ public class TestMinibuffer extends LispMinibuffer {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public CharSequence getCharSequence() {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void setText(String text) {
   }
@@ -0,0 +1,122 @@
+package org.jetbrains.emacs4ij.jelisp.compiler;
+
+import junit.framework.Assert;
+import org.jetbrains.emacs4ij.jelisp.JelispTestCase;
+import org.jetbrains.emacs4ij.jelisp.elisp.Lambda;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispInteger;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.exception.VoidVariableException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class CompilerTest extends JelispTestCase {
+  private void assertCompiledEquals (String defun, String call) {
+    LispObject name = evaluateString(defun);
+    LispObject expected = evaluateString(call);
+    LispObject compiled = evaluateString("(byte-compile '" + name + ")");
+    Assert.assertTrue(compiled instanceof Lambda && ((Lambda) compiled).isCompiled());
+    Assert.assertEquals(expected, evaluateString(call));
+  }
+
+  @Test
+  public void testIf() {
+    assertCompiledEquals("(defun f (x) (if (> x 0) (+ x 1) (setq x (- x)) 'neg))", "(list (f 1) (f -1))");
+  }
+
+  @Test
+  public void testAndOrCond() {
+    assertCompiledEquals("(defun f (x) (list (and) (and x 1) (or) (or nil x) (or nil ()) " +
+        "(cond ((null x) 'null) ((eq x 1)) (t 'other))))", "(list (f nil) (f 1) (f 2))");
+  }
+
+  @Test
+  public void testWhileSetq() {
+    assertCompiledEquals("(defun f (n) (let ((i 0) (s 0)) (while (< i n) (setq i (1+ i) s (+ s i))) s))", "(f 10)");
+  }
+
+  @Test
+  public void testLet() {
+    evaluateString("(defun f (x) (let ((x 1) (y x)) (let* ((x (+ x 1)) (z x)) (list x y z))))");
+    evaluateString("(byte-compile 'f)");
+    Assert.assertEquals(evaluateString("'(2 5 2)"), evaluateString("(f 5)"));
+  }
+
+  @Test
+  public void testDynamicScope() {
+    evaluateString("(defun g () v)");
+    evaluateString("(defun f (v) (g))");
+    evaluateString("(byte-compile 'f)");
+    Assert.assertEquals(new LispInteger(3), evaluateString("(f 3)"));
+    try {
+      evaluateString("(g)");
+    } catch (VoidVariableException e) {
+      return;
+    }
+    Assert.fail();
+  }
+
+  @Test
+  public void testVariableReference() {
+    ByteCode byteCode = Compiler.compile(Arrays.<LispObject>asList(new LispSymbol("v")));
+    Assert.assertEquals(ByteCode.VARIABLE, byteCode.getInstructions()[0]);
+    evaluateString("(setq v 1)");
+    assertCompiledEquals("(defun f () (list v :key nil t))", "(f)");
+    evaluateString("(defun f () undefined-variable)");
+    evaluateString("(byte-compile 'f)");
+    try {
+      evaluateString("(f)");
+    } catch (VoidVariableException e) {
+      return;
+    }
+    Assert.fail();
+  }
+
+  @Test
+  public void testLocalReference() {
+    ByteCode byteCode = Compiler.compile(Arrays.asList("x"),
+        Arrays.<LispObject>asList(evaluateString("'(let ((y x)) (setq x y))")));
+    int[] code = byteCode.getInstructions();
+    Assert.assertEquals(ByteCode.LOCAL, code[2]);
+    Assert.assertEquals(0, code[3]);
+    Assert.assertEquals(ByteCode.LOCAL, code[6]);
+    Assert.assertEquals(1, code[7]);
+    Assert.assertEquals(ByteCode.SET_LOCAL, code[8]);
+    Assert.assertEquals(0, code[9]);
+    Assert.assertEquals(Arrays.asList("x", "y"), Arrays.asList(byteCode.getLocals()));
+  }
+
+  @Test
+  public void testLocalSetByCallee() {
+    evaluateString("(defun g () (setq x (1+ x)) (setq y (* y 10)))");
+    assertCompiledEquals("(defun f (x) (let ((y 1)) (g) (setq x (+ x y)) (let ((y 2)) (g) (list x y))))", "(f 1)");
+    Assert.assertEquals(evaluateString("'(13 20)"), evaluateString("(f 1)"));
+  }
+
+  @Test
+  public void testRecursion() {
+    assertCompiledEquals("(defun fib (n) (if (< n 2) n (+ (fib (- n 1)) (fib (- n 2)))))", "(fib 15)");
+  }
+
+  @Test
+  public void testCalleeBecomesMacro() {
+    evaluateString("(defun g (x) x)");
+    evaluateString("(defun f () (g (undefined-function)))");
+    evaluateString("(byte-compile 'f)");
+    evaluateString("(defmacro g (x) \"macro\")");
+    Assert.assertEquals(new LispString("macro"), evaluateString("(f)"));
+  }
+
+  @Test
+  public void testCompileLambda() {
+    Assert.assertEquals(new LispInteger(2), evaluateString("(funcall (byte-compile '(lambda (x) (1+ x))) 1)"));
+  }
+
+  @Test
+  public void testCompileSubroutine() {
+    Assert.assertEquals(LispSymbol.NIL, evaluateString("(byte-compile 'undefined-function)"));
+    Assert.assertEquals(evaluateString("(symbol-function 'car)"), evaluateString("(byte-compile 'car)"));
+  }
+}
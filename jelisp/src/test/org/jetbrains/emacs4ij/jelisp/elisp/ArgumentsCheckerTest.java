@@ -0,0 +1,79 @@
+package org.jetbrains.emacs4ij.jelisp.elisp;
+
+import junit.framework.Assert;
+import org.jetbrains.emacs4ij.jelisp.exception.WrongNumberOfArgumentsException;
+import org.jetbrains.emacs4ij.jelisp.exception.WrongTypeArgumentException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ArgumentsCheckerTest {
+  private static ArgumentsChecker checker (String subroutine) {
+    return LispSubroutine.getDescriptor(subroutine).getArgumentsChecker();
+  }
+
+  private static List<LispObject> args (LispObject... objects) {
+    return new ArrayList<>(Arrays.asList(objects));
+  }
+
+  @Test
+  public void testRequiredAndOptional() {
+    ArgumentsChecker checker = checker("substring");
+    List<LispObject> args = args(new LispString("hello"), new LispInteger(1));
+    int n = checker.check(args);
+    Assert.assertEquals(2, n);
+    Assert.assertEquals(new LispInteger(1), checker.getValue(1, n, null, args));
+    Assert.assertNull(checker.getValue(2, n, null, args));
+  }
+
+  @Test
+  public void testOptionalTypeMismatchStopsBinding() {
+    ArgumentsChecker checker = checker("generate-new-buffer-name");
+    List<LispObject> args = args(new LispString("name"), new LispInteger(1));
+    int n = checker.check(args);
+    Assert.assertEquals(2, n);
+    Assert.assertNull(checker.getValue(2, n, null, args));
+  }
+
+  @Test (expected = WrongTypeArgumentException.class)
+  public void testRequiredTypeMismatch() {
+    checker("substring").check(args(new LispInteger(1), new LispInteger(1)));
+  }
+
+  @Test (expected = WrongNumberOfArgumentsException.class)
+  public void testTooFewArguments() {
+    checker("car").check(args());
+  }
+
+  @Test (expected = WrongNumberOfArgumentsException.class)
+  public void testTooManyArguments() {
+    checker("car").check(args(LispSymbol.NIL, LispSymbol.NIL));
+  }
+
+  @Test
+  public void testNilAsList() {
+    ArgumentsChecker checker = checker("let");
+    List<LispObject> args = args(LispSymbol.NIL, new LispInteger(1));
+    int n = checker.check(args);
+    Assert.assertEquals(3, n);
+    Assert.assertEquals(LispList.list(), checker.getValue(1, n, null, args));
+    Object[] body = (Object[]) checker.getValue(2, n, null, args);
+    Assert.assertEquals(1, body.length);
+  }
+
+  @Test
+  public void testEmptyRest() {
+    ArgumentsChecker checker = checker("+");
+    List<LispObject> args = args();
+    int n = checker.check(args);
+    Assert.assertEquals(1, n);
+    Assert.assertEquals(0, ((Object[]) checker.getValue(0, n, null, args)).length);
+  }
+
+  @Test (expected = WrongTypeArgumentException.class)
+  public void testRestComponentType() {
+    checker("run-hooks").check(args(new LispSymbol("a-hook"), new LispInteger(1)));
+  }
+}
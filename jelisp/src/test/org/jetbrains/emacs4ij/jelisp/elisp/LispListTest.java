@@ -203,4 +203,31 @@ public class LispListTest {
     current.resetWith(list);
     Assert.assertEquals(LispList.list(LispSymbol.NIL, LispSymbol.NIL, LispSymbol.NIL, LispSymbol.NIL, LispSymbol.NIL), current);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testLongList() {
+    List<LispObject> data = new ArrayList<>();
+    for (int i = 0; i != 100000; ++i) {
+      data.add(new LispInteger(i));
+    }
+    LispList list = LispList.list(data);
+    Assert.assertEquals(100000, list.size());
+    Assert.assertEquals(LispList.list(data), list);
+    int i = 0;
+    for (LispObject element: list) {
+      Assert.assertEquals(new LispInteger(i++), element);
+    }
+    Assert.assertEquals(100000, i);
+  }
+
+  @Test
+  public void testIteratorDottedList() {
+    LispList list = LispList.testList(new LispInteger(1), new LispInteger(2), new LispInteger(3));
+    Assert.assertEquals("(1 2 . 3)", list.toString());
+    List<LispObject> elements = new ArrayList<>();
+    for (LispObject element: list) {
+      elements.add(element);
+    }
+    Assert.assertEquals(list.toLispObjectList(), elements);
+  }
+}
@@ -4,6 +4,8 @@ import junit.framework.Assert;
 import org.jetbrains.emacs4ij.jelisp.subroutine.Match;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 /**
  * Created with IntelliJ IDEA.
  * User: kate
@@ -13,59 +15,110 @@ import org.junit.Test;
  */
 public class StringRegexpUtilTest {
     @Test
-    public void testInvertQuotation() {
-        Assert.assertEquals("(ba\\(r)", StringRegexpUtil.invertQuotation("\\\\(ba(r\\\\)", "()"));
+    public void testGroup() {
+        Assert.assertEquals(4, StringRegexpUtil.match(null, "\\\\(ba(r\\\\)", "foo ba(r", 0, false));
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(4), new LispInteger(8), new LispInteger(4), new LispInteger(8)), data);
+    }
+
+    @Test
+    public void testQuotedGroup() {
+        Assert.assertEquals(0, StringRegexpUtil.match(null, "\\\\\\\\(ba\\\\)", "\\ba", 0, false));
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(0), new LispInteger(3), new LispInteger(1), new LispInteger(3)), data);
+    }
+
+    @Test
+    public void testSequentialGroups() {
+        StringRegexpUtil.match(null, "\\\\(qu\\\\)\\\\(ick\\\\)", "quick", 0, false);
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(0), new LispInteger(5), new LispInteger(0), new LispInteger(2),
+            new LispInteger(2), new LispInteger(5)), data);
+    }
+
+    @Test
+    public void testUnmatchedGroup() {
+        StringRegexpUtil.match(null, "a\\\\(x\\\\)?b", "ab", 0, false);
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(0), new LispInteger(2), LispSymbol.NIL, LispSymbol.NIL), data);
+    }
+
+    @Test
+    public void testBackReference() {
+        Assert.assertEquals(4, StringRegexpUtil.match(null, "\\\\(te*st\\\\) \\\\1", "wow teeest teeest hello", 0, false));
+        Assert.assertEquals(-1, StringRegexpUtil.match(null, "\\\\(te*st\\\\) \\\\1", "wow teeest test hello", 0, false));
+    }
+
+    @Test
+    public void testTextEnd() {
+        Assert.assertEquals(3, StringRegexpUtil.match(null, "\\\\'", "hei", 0, false));
+    }
+
+    @Test
+    public void testTextBeginning() {
+        Assert.assertEquals(0, StringRegexpUtil.match(null, "\\\\`", "hei", 0, false));
+        Assert.assertEquals(-1, StringRegexpUtil.match(null, "\\\\`", "hei", 1, false));
     }
 
     @Test
-    public void testInvertQuotation2() {
-        Assert.assertEquals("\\\\(ba\\(r)", StringRegexpUtil.invertQuotation("\\\\\\(ba(r\\\\)", "()"));
+    public void testOpeningSquareBracketInSquareBrackets() {
+        Assert.assertEquals(4, StringRegexpUtil.match(null, "o[[w]", "hello[wow", 0, false));
+        Assert.assertEquals(0, StringRegexpUtil.match(null, "[]a]", "]", 0, false));
     }
 
     @Test
-    public void testInvertQuotation3() {
-        Assert.assertEquals("\\\\(ba\\(r)", StringRegexpUtil.invertQuotation("\\\\\\\\(ba(r\\\\)", "()"));
+    public void testLiteralBackslashes() {
+        StringRegexpUtil.match(null, "\\\\\\\\[{[]", "\\\\{", 0, false);
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(0), new LispInteger(3)), data);
     }
 
     @Test
-    public void testInvertQuotation4() {
-        Assert.assertEquals("(qu)(ick)", StringRegexpUtil.invertQuotation("\\\\(qu\\\\)\\\\(ick\\\\)", "()"));
+    public void testInterval() {
+        StringRegexpUtil.match(null, "a\\\\{2,3\\\\}", "caaaa", 0, false);
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(1), new LispInteger(4)), data);
+        Assert.assertEquals(-1, StringRegexpUtil.match(null, "ca\\\\{2\\\\}c", "cac", 0, false));
     }
 
     @Test
-    public void testGetNthMatchAlternative() {
-        String s = StringRegexpUtil.getNthMatchAlternative("(wow)(te*st)\\\\1", 1, 13, "wow teeest hello");
-        Assert.assertEquals("teeest", s);
+    public void testNonGreedy() {
+        StringRegexpUtil.match(null, "<.*?>", "<a><b>", 0, false);
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(0), new LispInteger(3)), data);
     }
 
     @Test
-    public void testTransformToRegexpClassEnd() {
-        StringRegexpUtil.transformEmacsRegexpToJava(null, "\\\\'", "hei");
-        Assert.assertEquals("\\z", StringRegexpUtil.myTransformedRegex);
+    public void testEmptyLoop() {
+        Assert.assertEquals(0, StringRegexpUtil.match(null, "\\\\(a*\\\\)*b", "b", 0, false));
     }
 
     @Test
-    public void testTransformToRegexpClassBegin() {
-        StringRegexpUtil.transformEmacsRegexpToJava(null, "\\\\`", "hei");
-        Assert.assertEquals("\\A", StringRegexpUtil.myTransformedRegex);
+    public void testCharClass() {
+        Assert.assertEquals(2, StringRegexpUtil.match(null, "[[:digit:]]+", "ab12", 0, false));
+        Assert.assertEquals(2, StringRegexpUtil.match(null, "[[:space:]]", "ab\tc", 0, false));
     }
 
     @Test
-    public void testQuoteOpeningSquareBracketInSquareBrackets() {
-        String s = StringRegexpUtil.quoteOpeningSquareBracketInSquareBrackets("hello[wow[how[are]you[fine[hm]ok");
-        Assert.assertEquals("hello[wow\\[how\\[are]you[fine\\[hm]ok", s);
+    public void testCategory() {
+        Assert.assertEquals(1, StringRegexpUtil.match(null, "\\cg", "a\u03b1", 0, false));
+        Assert.assertEquals(0, StringRegexpUtil.match(null, "\\Cg", "a\u03b1", 0, false));
     }
 
     @Test
-    public void testTransform() {
-        StringRegexpUtil.transformEmacsRegexpToJava(null, "\\\\\\\\[{[]", "");
-        Assert.assertEquals("\\\\\\\\[\\{\\[]", StringRegexpUtil.myTransformedRegex);
+    public void testSearchRegion() {
+        CharSequence text = new StringBuilder("one two three");
+        EmacsRegexp regexp = EmacsRegexp.compile("t[a-z]*\\\\'", false);
+        Assert.assertEquals(8, regexp.search(null, text, 0)[0]);
+        int[] groups = regexp.search(null, text, 0, 6);
+        Assert.assertNotNull(groups);
+        Assert.assertEquals(4, groups[0]);
+        Assert.assertEquals(6, groups[1]);
+        Assert.assertNull(regexp.search(null, text, 0, 3));
     }
 
     @Test
     public void testWordContentBound() {
-        String dataString = StringRegexpUtil.markBounds(null, "\\b", "word bound");
-        Assert.assertEquals("1word2 1bound2", dataString);
         StringRegexpUtil.match(null, "\\bword\\b", "word bound", 0, false);
         LispList data = Match.matchData(null, null, null);
         Assert.assertEquals(LispList.list(new LispInteger(0), new LispInteger(4)), data);
@@ -122,38 +175,30 @@ public class StringRegexpUtilTest {
     }
 
     @Test
-    public void testMarkWordStart() {
-        String data = StringRegexpUtil.markBounds(null, "\\<", "word start");
-        Assert.assertEquals("1word 1start", data);
-        Assert.assertEquals("1", StringRegexpUtil.myTransformedRegex);
+    public void testFindWordStart() {
+        Assert.assertEquals(5, StringRegexpUtil.match(null, "\\<", "word start", 1, false));
     }
 
     @Test
-    public void testMarkWordEnd() {
-        String data = StringRegexpUtil.markBounds(null, "\\>", "word start");
-        Assert.assertEquals("word2 start2", data);
-        Assert.assertEquals("2", StringRegexpUtil.myTransformedRegex);
+    public void testFindWordEnd() {
+        Assert.assertEquals(10, StringRegexpUtil.match(null, "\\>", "word start", 5, false));
     }
 
     @Test
-    public void testMarkSymbolStart() {
-        String data = StringRegexpUtil.markBounds(null, "\\_<", "symbol _start");
-        Assert.assertEquals("3symbol 3_start", data);
-        Assert.assertEquals("3", StringRegexpUtil.myTransformedRegex);
+    public void testFindSymbolStart() {
+        Assert.assertEquals(7, StringRegexpUtil.match(null, "\\_<", "symbol _start", 1, false));
     }
 
     @Test
-    public void testMarkSymbolEnd() {
-        String data = StringRegexpUtil.markBounds(null, "\\_>", "symbol_ end");
-        Assert.assertEquals("symbol_4 end4", data);
-        Assert.assertEquals("4", StringRegexpUtil.myTransformedRegex);
+    public void testFindSymbolEnd() {
+        Assert.assertEquals(7, StringRegexpUtil.match(null, "\\_>", "symbol_ end", 0, false));
+        Assert.assertEquals(11, StringRegexpUtil.match(null, "\\_>", "symbol_ end", 8, false));
     }
 
     @Test
-    public void testMarkWordBounds() {
-        String data = StringRegexpUtil.markBounds(null, "\\b", "word start");
-        Assert.assertEquals("1word2 1start2", data);
-        Assert.assertEquals("[012]", StringRegexpUtil.myTransformedRegex);
+    public void testFindWordBounds() {
+        Assert.assertEquals(4, StringRegexpUtil.match(null, "\\b", "word start", 1, false));
+        Assert.assertEquals(5, StringRegexpUtil.match(null, "\\b", "word start", 5, false));
     }
 
     @Test
@@ -201,4 +246,54 @@ public class StringRegexpUtilTest {
         LispList data = Match.matchData(null, null, null);
         Assert.assertEquals(LispList.list(new LispInteger(1), new LispInteger(1)), data);
     }
+
+    @Test
+    public void testPatternCache() {
+        StringRegexpUtil.clearPatternCache();
+        Assert.assertEquals(1, StringRegexpUtil.match(null, "o+", "hoo", 0, false));
+        Assert.assertEquals(1, StringRegexpUtil.match(null, "o+", "hoo", 0, false));
+        Assert.assertEquals(-1, StringRegexpUtil.match(null, "O+", "hoo", 0, false));
+        Assert.assertEquals(1, StringRegexpUtil.match(null, "O+", "hoo", 0, true));
+        Assert.assertEquals(1, StringRegexpUtil.getPatternCacheHits());
+        Assert.assertEquals(3, StringRegexpUtil.getPatternCacheMisses());
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(1), new LispInteger(3)), data);
+    }
+
+    @Test
+    public void testPatternCacheKeepsBoundRegexps() {
+        StringRegexpUtil.clearPatternCache();
+        StringRegexpUtil.match(null, "\\>", "$bound", 0, false);
+        StringRegexpUtil.match(null, "\\>", "$bound", 0, false);
+        Assert.assertEquals(1, StringRegexpUtil.getPatternCacheHits());
+        LispList data = Match.matchData(null, null, null);
+        Assert.assertEquals(LispList.list(new LispInteger(6), new LispInteger(6)), data);
+    }
+
+    @Test
+    public void testSearchBackward() {
+        EmacsRegexp regexp = EmacsRegexp.compile("b[a-z]*", false);
+        String text = "abc abd abe";
+        Assert.assertEquals("[9, 11]", Arrays.toString(regexp.searchBackward(null, text, text.length(), 0)));
+        Assert.assertEquals("[5, 7]", Arrays.toString(regexp.searchBackward(null, text, 9, 0)));
+        Assert.assertEquals("[5, 6]", Arrays.toString(regexp.searchBackward(null, text, 6, 0)));
+        Assert.assertNull(regexp.searchBackward(null, text, 5, 2));
+    }
+
+    @Test
+    public void testSearchBackwardAlternatives() {
+        EmacsRegexp regexp = EmacsRegexp.compile("\\\\(foo\\\\|ba[rz]\\\\)", false);
+        String text = "foo bar baz";
+        Assert.assertEquals("[8, 11, 8, 11]", Arrays.toString(regexp.searchBackward(null, text, text.length(), 0)));
+        Assert.assertEquals("[0, 3, 0, 3]", Arrays.toString(regexp.searchBackward(null, text, 4, 0)));
+        Assert.assertNull(EmacsRegexp.compile("\\\\`bar", false).searchBackward(null, text, text.length(), 0));
+    }
+
+    @Test
+    public void testSearchPrefix() {
+        EmacsRegexp regexp = EmacsRegexp.compile("abc*", true);
+        Assert.assertEquals("[3, 6]", Arrays.toString(regexp.search(null, "xaxABCC", 0, 6)));
+        Assert.assertEquals("[3, 5]", Arrays.toString(regexp.search(null, "xaxAB", 0)));
+        Assert.assertNull(regexp.search(null, "xaxa", 0));
+    }
 }
@@ -1080,6 +1080,10 @@ public class ForwardParserTest {
     }
     Assert.fail("#37r");
   }
-}
-
 
+  @Test
+  public void testSymbolWithEscapedSeparators() {
+    LispObject lispObject = p.parseLine("(a\\ b\\(c \\\\ d)");
+    Assert.assertEquals(LispList.list(new LispSymbol("a\\ b\\(c"), new LispSymbol("\\\\"), new LispSymbol("d")), lispObject);
+  }
+}
@@ -0,0 +1,92 @@
+package org.jetbrains.emacs4ij.jelisp.parser;
+
+import junit.framework.Assert;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispInteger;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.jetbrains.emacs4ij.jelisp.parser.exception.MissingClosingBracketException;
+import org.jetbrains.emacs4ij.jelisp.parser.exception.ParserException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class LispReaderTest {
+  @Test
+  public void testParseSplitString() throws IOException {
+    LispReader reader = new LispReader(new StringReader("\"one\ntwo\""), "test");
+    LispObject lispObject = reader.readForm();
+    Assert.assertEquals(new LispString("one\ntwo"), lispObject);
+  }
+
+  @Test
+  public void testParseList() throws IOException {
+    LispReader reader = new LispReader(new StringReader("(defun test (\n) \"doc\ndoc\ndoc()\" (message\n\"test\")\n)"), "test");
+    LispObject lispObject = reader.readForm();
+    Assert.assertEquals(LispList.list(new LispSymbol("defun"), new LispSymbol("test"), LispList.list(),
+        new LispString("doc\ndoc\ndoc()"), LispList.list(new LispSymbol("message"), new LispString("test"))),
+        lispObject);
+  }
+
+  @Test
+  public void testParseStringWithManyDefs() throws IOException {
+    LispReader reader = new LispReader(new StringReader("(defvar problems)       (defvar \nqlist) a"), "test");
+    LispObject lispObject = reader.readForm();
+    Assert.assertEquals(LispList.list(new LispSymbol("defvar"), new LispSymbol("problems")), lispObject);
+    lispObject = reader.readForm();
+    Assert.assertEquals(LispList.list(new LispSymbol("defvar"), new LispSymbol("qlist")), lispObject);
+    lispObject = reader.readForm();
+    Assert.assertEquals(new LispSymbol("a"), lispObject);
+    Assert.assertTrue(reader.isFinished());
+  }
+
+  @Test
+  public void testParseDotOnNewLine() throws IOException {
+    LispReader reader = new LispReader(new StringReader("(\n1\n\t.\n 2\n)"), "test");
+    LispObject lispObject = reader.readForm();
+    Assert.assertEquals(LispList.cons(new LispInteger(1), new LispInteger(2)), lispObject);
+  }
+
+  @Test
+  public void testCommentsAndOffsets() {
+    LispReader reader = new LispReader(";; header\n(a ; comment (\n b) ; (c\n\n  'd", "test");
+    Assert.assertEquals(LispList.list(new LispSymbol("a"), new LispSymbol("b")), reader.read());
+    Assert.assertEquals(10, reader.getFormStart());
+    Assert.assertEquals(2, reader.getLine());
+    Assert.assertEquals(LispList.list(new LispSymbol("quote"), new LispSymbol("d")), reader.read());
+    Assert.assertEquals(5, reader.getLine());
+    Assert.assertNull(reader.read());
+    Assert.assertTrue(reader.isFinished());
+  }
+
+  @Test
+  public void testSeek() {
+    LispReader reader = new LispReader("(a)\n(b\n c)", "test");
+    reader.seek(4);
+    Assert.assertEquals(LispList.list(new LispSymbol("b"), new LispSymbol("c")), reader.read());
+    Assert.assertEquals(2, reader.getLine());
+    reader.seek(0);
+    Assert.assertEquals(LispList.list(new LispSymbol("a")), reader.read());
+    Assert.assertEquals(1, reader.getLine());
+  }
+
+  @Test (expected = MissingClosingBracketException.class)
+  public void testUnclosedList() {
+    new LispReader("(a\n(b)", "test").read();
+  }
+
+  @Test
+  public void testErrorLine() {
+    LispReader reader = new LispReader("(a)\n\n(b\n(c)", "test");
+    reader.readForm();
+    try {
+      reader.readForm();
+    } catch (ParserException e) {
+      Assert.assertEquals(3, reader.getLine());
+      return;
+    }
+    Assert.fail();
+  }
+}
@@ -0,0 +1,73 @@
+package org.jetbrains.emacs4ij.jelisp.parser;
+
+import junit.framework.Assert;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispList;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispObject;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispString;
+import org.jetbrains.emacs4ij.jelisp.elisp.LispSymbol;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class SourceReaderTest {
+  private static File writeFile (String text) throws IOException {
+    File file = File.createTempFile("source", ".el");
+    file.deleteOnExit();
+    FileWriter writer = new FileWriter(file);
+    try {
+      writer.write(text);
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void testReadLines() throws IOException {
+    File file = writeFile("one\r\ntwo\rthree\n\nfour");
+    SourceReader reader = new SourceReader(SourceFile.get(file.getPath()), file.getPath());
+    Assert.assertEquals("one", reader.readLine());
+    Assert.assertEquals(0, reader.getLineStart());
+    Assert.assertEquals("two", reader.readLine());
+    Assert.assertEquals(5, reader.getLineStart());
+    Assert.assertEquals("three", reader.readLine());
+    Assert.assertEquals("", reader.readLine());
+    Assert.assertEquals("four", reader.readLine());
+    Assert.assertEquals(16, reader.getLineStart());
+    Assert.assertNull(reader.readLine());
+    reader.seek(6);
+    Assert.assertEquals("wo", reader.readLine());
+    Assert.assertEquals(9, reader.getPosition());
+  }
+
+  @Test
+  public void testRemapChangedFile() throws IOException {
+    File file = writeFile("(defvar a 1)");
+    SourceFile source = SourceFile.get(file.getPath());
+    Assert.assertSame(source, SourceFile.get(file.getPath()));
+    Assert.assertEquals("(defvar a 1)", source.toString());
+    writeFile(file, "(defvar b 22)");
+    Assert.assertEquals("(defvar b 22)", SourceFile.get(file.getPath()).toString());
+    Assert.assertEquals("var", source.subSequence(4, 7).toString());
+  }
+
+  private static void writeFile (File file, String text) throws IOException {
+    FileWriter writer = new FileWriter(file);
+    try {
+      writer.write(text);
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Test
+  public void testParseMultiline() throws IOException {
+    File file = writeFile(";; comment\n(defun test ()\n  \"doc\ndoc\"\n  (message \"test\"))\n");
+    LispReader reader = new LispReader(SourceFile.get(file.getPath()), file.getPath());
+    LispObject parsed = reader.readForm();
+    Assert.assertEquals(LispList.list(new LispSymbol("defun"), new LispSymbol("test"), LispList.list(),
+        new LispString("doc\ndoc"), LispList.list(new LispSymbol("message"), new LispString("test"))), parsed);
+  }
+}
@@ -225,4 +225,22 @@ public class ArithmeticTest extends JelispTestCase {
     Assert.assertEquals(new LispFloat(2.2), evaluateString("(mod 2.2 2.3)"));
     Assert.assertEquals(new LispFloat(2.1000000000000005), evaluateString("(mod 4.4 2.3)"));
   }
+
+  @Test
+  public void testSmallIntegersShared() {
+    Assert.assertSame(LispInteger.valueOf(1000), evaluateString("(+ 999 1)"));
+    assertT(evaluateString("(eq (1+ 999) 1000)"));
+    Assert.assertNotSame(LispInteger.valueOf(100000), LispInteger.valueOf(100000));
+  }
+
+  @Test
+  public void testIntegerOverflow() {
+    Assert.assertEquals(new LispInteger(Integer.MAX_VALUE), evaluateString("(+ 2147483647 1)"));
+    Assert.assertEquals(new LispInteger(Integer.MAX_VALUE), evaluateString("(1+ 2147483647)"));
+    Assert.assertEquals(new LispInteger(Integer.MIN_VALUE), evaluateString("(* -65536 65536 2)"));
+    Assert.assertEquals(new LispInteger(-6), evaluateString("(- 1 2 5)"));
+    Assert.assertEquals(new LispInteger(-1), evaluateString("(- 1)"));
+    assertT(evaluateString("(<= 3 3)"));
+    assertNil(evaluateString("(/= 3 3)"));
+  }
 }
@@ -109,6 +109,19 @@ public class MatchTest extends JelispTestCase {
     Assert.assertEquals(LispList.list(new LispInteger(4), new LispInteger(9)), data);
   }
 
+  @Test
+  public void testMatchDataReuseKeepsCells() {
+    evaluateString("(string-match \"quick\" \"The quick fox jumped quickly.\")");
+    evaluateString("(setq reuse (list 1 2 3 4))");
+    evaluateString("(setq tail (cdr reuse))");
+    Assert.assertEquals(LispSymbol.T, evaluateString("(eq reuse (match-data nil reuse))"));
+    Assert.assertEquals(LispList.list(new LispInteger(9), LispSymbol.NIL, LispSymbol.NIL), evaluateString("tail"));
+    evaluateString("(string-match \"\\\\(qu\\\\)\\\\(ick\\\\)\" \"The quick fox jumped quickly.\" 5)");
+    evaluateString("(match-data nil reuse)");
+    Assert.assertEquals(LispList.list(new LispInteger(21), new LispInteger(26), new LispInteger(21), new LispInteger(23),
+        new LispInteger(23), new LispInteger(26)), evaluateString("reuse"));
+  }
+
   @Test
   public void testMatchDataFromStringSearchReuseNotListNoMarkers() {
     evaluateString("(string-match \"quick\" \"The quick fox jumped quickly.\")");
@@ -511,6 +511,29 @@ public class SpecialFormsTest extends JelispTestCase {
         fCell);
   }
 
+  @Test
+  public void testMacroExpandedOncePerCallSite() {
+    evaluateString("(defvar expansions 0)");
+    evaluateString("(defmacro m1 (x) (setq expansions (1+ expansions)) x)");
+    evaluateString("(defun f (x) (m1 x))");
+    evaluateString("(f 1)");
+    Assert.assertEquals(new LispInteger(2), evaluateString("(f 2)"));
+    Assert.assertEquals(new LispInteger(1), evaluateString("expansions"));
+    evaluateString("(m1 3)");
+    Assert.assertEquals(new LispInteger(2), evaluateString("expansions"));
+  }
+
+  @Test
+  public void testMacroRedefinitionDropsExpansion() {
+    evaluateString("(defmacro m1 () 1)");
+    evaluateString("(defun f () (m1))");
+    Assert.assertEquals(new LispInteger(1), evaluateString("(f)"));
+    evaluateString("(defmacro m1 () 2)");
+    Assert.assertEquals(new LispInteger(2), evaluateString("(f)"));
+    evaluateString("(fset 'm1 '(macro lambda () 3))");
+    Assert.assertEquals(new LispInteger(3), evaluateString("(f)"));
+  }
+
   private static void conditionCaseErrorChecker (Object error, String expectedMessage) {
     if (error instanceof LispString) { // from signal
       Assert.assertEquals(expectedMessage, ((LispString) error).getData());
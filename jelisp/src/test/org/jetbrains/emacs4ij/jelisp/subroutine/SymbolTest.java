@@ -427,4 +427,31 @@ public class SymbolTest extends JelispTestCase {
     Assert.assertEquals(new LispString("doc2"), doc);
   }
 
+  @Test
+  public void testInternSoft() {
+    Assert.assertEquals(LispSymbol.NIL, evaluateString("(intern-soft \"never-interned-symbol\")"));
+    LispObject symbol = evaluateString("(intern \"never-interned-symbol\")");
+    Assert.assertSame(symbol, evaluateString("(intern-soft \"never-interned-symbol\")"));
+    Assert.assertSame(symbol, evaluateString("(intern-soft 'never-interned-symbol)"));
+    Assert.assertEquals(LispSymbol.NIL, evaluateString("(intern-soft \"b\" [a 0 0])"));
+  }
+
+  @Test
+  public void testInternEq() {
+    assertT(evaluateString("(eq (intern \"some-symbol\") 'some-symbol)"));
+    assertT(evaluateString("(eq (make-symbol \"some-symbol\") 'some-symbol)"));
+    Assert.assertSame(new LispSymbol("some-symbol").getName(), new LispSymbol(new String("some-symbol")).getName());
+  }
+
+  @Test
+  public void testMapAtoms() {
+    evaluateString("(setq count 0)");
+    evaluateString("(mapatoms (quote (lambda (s) (setq count (1+ count)))) [a b 0])");
+    Assert.assertEquals(new LispInteger(2), evaluateString("count"));
+    evaluateString("(intern \"mapatoms-marker\")");
+    evaluateString("(setq found nil)");
+    evaluateString("(mapatoms (quote (lambda (s) (if (eq s 'mapatoms-marker) (setq found t)))))");
+    assertT(evaluateString("found"));
+  }
+
 }